@@ -0,0 +1,108 @@
+package io.github.joshy56.benchmark;
+
+import co.aikar.idb.Database;
+import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
+import io.github.joshy56.Economic;
+import io.github.joshy56.StatementPool;
+import io.github.joshy56.currency.SimpleCurrency;
+import io.github.joshy56.currency.SimpleCurrencyRepository;
+import io.github.joshy56.response.Response;
+import io.github.joshy56.subject.SimpleSubjectRepository;
+import io.github.joshy56.transaction.SimpleTransactionHandler;
+import io.github.joshy56.transaction.SimpleTransactionRepository;
+import io.github.joshy56.transaction.Transaction;
+import io.github.joshy56.transaction.TransactionHandler;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repositories over a throwaway SQLite file, wired the same way {@code ClientEconomic} does.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    static final String CURRENCY = "coins";
+    private final Path file;
+    private final Database database;
+    private final SimpleCurrencyRepository currencies;
+    private final SimpleSubjectRepository subjects;
+    private final SimpleTransactionRepository transactions;
+    private final TransactionHandler handler;
+
+    BenchmarkDatabase() throws IOException {
+        this.file = Files.createTempFile("economic-benchmark", ".db");
+        this.database = new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                .options(DatabaseOptions.builder().sqlite(file.toAbsolutePath().toString()).build())
+                .minIdleConnections(4)
+                .maxConnections(4)
+                .build());
+        StatementPool statements = new StatementPool(database);
+        this.currencies = new SimpleCurrencyRepository(database, statements);
+        this.subjects = new SimpleSubjectRepository(database, statements);
+        this.transactions = new SimpleTransactionRepository(database, statements, currencies::scaleOf, currencies.ids());
+        currencies.set(new SimpleCurrency(CURRENCY));
+        this.handler = new SimpleTransactionHandler(economic(), null);
+    }
+
+    /**
+     * Stores {@code accounts} balances of {@link #CURRENCY} for new subjects.
+     * @return the subjects, in creation order
+     */
+    @NotNull
+    List<UUID> seed(int accounts, double amount) {
+        List<UUID> subjectIds = new ArrayList<>(accounts);
+        Set<Transaction> balances = new HashSet<>();
+        for (int index = 0; index < accounts; index++) {
+            UUID subjectId = UUID.randomUUID();
+            subjectIds.add(subjectId);
+            balances.add(new Transaction(CURRENCY, subjectId, amount));
+        }
+        transactions.setAll(balances);
+        return subjectIds;
+    }
+
+    @NotNull
+    SimpleTransactionRepository transactions() {
+        return transactions;
+    }
+
+    @NotNull
+    TransactionHandler handler() {
+        return handler;
+    }
+
+    @Override
+    public void close() throws IOException {
+        transactions.close();
+        database.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * The economic API only hands out the repositories, so a proxy is enough and stays valid as the API grows.
+     */
+    @NotNull
+    private Economic economic() {
+        return (Economic) Proxy.newProxyInstance(Economic.class.getClassLoader(), new Class<?>[]{Economic.class}, (proxy, method, args) -> switch (method.getName()) {
+            case "transactions" -> Response.ofNullable(transactions, null);
+            case "currencies" -> Response.ofNullable(currencies, null);
+            case "subjects" -> Response.ofNullable(subjects, null);
+            case "transactionHandler" -> Response.ofNullable(handler, null);
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "BenchmarkEconomic";
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.joshy56.benchmark;
+
+import io.github.joshy56.Namespace;
+import io.github.joshy56.transaction.SimpleTransactionRepository;
+import io.github.joshy56.transaction.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory kept by {@code accounts} balances held in the Guava cache or in off-heap mode, with the
+ * currency ranked by the leaderboard or not. Every iteration is one full collection, the score is its
+ * pause, which grows with the objects left to trace. The heap and native memory retained per account
+ * since before the balances were loaded are printed once loaded; JMH counters are summed over
+ * iterations, so they can't carry them.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FootprintBenchmark {
+    private static final int LOAD_BATCH = 10_000;
+    @Param({"100000", "1000000"})
+    public int accounts;
+    @Param({"cache", "off-heap"})
+    public String store;
+    @Param({"false", "true"})
+    public boolean ranked;
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        database = new BenchmarkDatabase();
+        database.seed(accounts, 100);
+        long heap = usedHeap(), direct = usedNative();
+        load(database.transactions());
+        System.out.printf("%nRetained per account: %.1f heap bytes, %.1f native bytes%n", (double) (usedHeap() - heap) / accounts, (double) (usedNative() - direct) / accounts);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    @Benchmark
+    public long fullCollection() {
+        return usedHeap();
+    }
+
+    /**
+     * Only the repository keeps a reference to what's loaded here.
+     */
+    private void load(SimpleTransactionRepository transactions) throws Throwable {
+        if (store.equals("off-heap")) transactions.offHeap(accounts).getOrThrow();
+        else {
+            Set<Namespace> namespaces = new HashSet<>();
+            for (Transaction transaction : transactions.getAll().getOrThrow()) {
+                namespaces.add(new Namespace(transaction.subjectIdentifier().toString(), transaction.currencyName()));
+                if (namespaces.size() < LOAD_BATCH) continue;
+                transactions.getAllOfThem(namespaces).getOrThrow();
+                namespaces.clear();
+            }
+            if (!namespaces.isEmpty()) transactions.getAllOfThem(namespaces).getOrThrow();
+        }
+        if (ranked) transactions.leaderboard().size(BenchmarkDatabase.CURRENCY);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedNative() {
+        long used = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) used += pool.getMemoryUsed();
+        }
+        return used;
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.joshy56.benchmark;
+
+import io.github.joshy56.response.Response;
+import io.github.joshy56.transaction.TransactionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits and withdrawals through {@code SimpleTransactionHandler} from one and many threads.
+ * A single account measures contention on one lock, many accounts measure parallel throughput.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandlerBenchmark {
+    @Param({"1", "1024"})
+    public int accounts;
+    private BenchmarkDatabase database;
+    private TransactionHandler handler;
+    private List<UUID> subjectIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        database = new BenchmarkDatabase();
+        handler = database.handler();
+        // Enough money that withdrawals never run dry during a trial.
+        subjectIds = database.seed(accounts, 1_000_000_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Response<Boolean> depositSingleThread() {
+        return handler.deposit(randomSubject(), BenchmarkDatabase.CURRENCY, 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Response<Boolean> depositFourThreads() {
+        return handler.deposit(randomSubject(), BenchmarkDatabase.CURRENCY, 1);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Response<Boolean> depositAllCores() {
+        return handler.deposit(randomSubject(), BenchmarkDatabase.CURRENCY, 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Response<Boolean> withdrawSingleThread() {
+        return handler.withdraw(randomSubject(), BenchmarkDatabase.CURRENCY, 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Response<Boolean> withdrawFourThreads() {
+        return handler.withdraw(randomSubject(), BenchmarkDatabase.CURRENCY, 1);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Response<Boolean> withdrawAllCores() {
+        return handler.withdraw(randomSubject(), BenchmarkDatabase.CURRENCY, 1);
+    }
+
+    private UUID randomSubject() {
+        return subjectIds.get(ThreadLocalRandom.current().nextInt(subjectIds.size()));
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.joshy56.benchmark;
+
+import io.github.joshy56.Namespace;
+import io.github.joshy56.response.Response;
+import io.github.joshy56.transaction.SimpleTransactionRepository;
+import io.github.joshy56.transaction.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes of {@link SimpleTransactionRepository}, {@code size} is the amount of
+ * stored accounts and of keys read or written by the bulk operations.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+    @Param({"16", "256", "4096"})
+    public int size;
+    private BenchmarkDatabase database;
+    private SimpleTransactionRepository transactions;
+    private List<UUID> subjectIds;
+    private Set<Namespace> namespaces;
+    private Set<Transaction> balances;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        database = new BenchmarkDatabase();
+        transactions = database.transactions();
+        subjectIds = database.seed(size, 100);
+        namespaces = new HashSet<>();
+        balances = new HashSet<>();
+        for (UUID subjectId : subjectIds) {
+            namespaces.add(new Namespace(subjectId.toString(), BenchmarkDatabase.CURRENCY));
+            balances.add(new Transaction(BenchmarkDatabase.CURRENCY, subjectId, 50));
+        }
+        transactions.getAllOfThem(namespaces);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    @Benchmark
+    public Response<Transaction> getCached() {
+        return transactions.get(new Namespace(randomSubject().toString(), BenchmarkDatabase.CURRENCY));
+    }
+
+    @Benchmark
+    public Response<Transaction> getUncached() {
+        UUID subjectId = randomSubject();
+        transactions.evict(subjectId);
+        return transactions.get(new Namespace(subjectId.toString(), BenchmarkDatabase.CURRENCY));
+    }
+
+    @Benchmark
+    public Response<Set<Transaction>> getAllOfThem() {
+        return transactions.getAllOfThem(namespaces);
+    }
+
+    @Benchmark
+    public Response<Void> set() {
+        return transactions.set(new Transaction(BenchmarkDatabase.CURRENCY, randomSubject(), ThreadLocalRandom.current().nextInt(1_000)));
+    }
+
+    @Benchmark
+    public Response<Void> setAll() {
+        return transactions.setAll(balances);
+    }
+
+    private UUID randomSubject() {
+        return subjectIds.get(ThreadLocalRandom.current().nextInt(subjectIds.size()));
+    }
+}
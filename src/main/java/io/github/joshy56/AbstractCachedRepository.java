@@ -2,30 +2,91 @@ package io.github.joshy56;
 
 import co.aikar.idb.Database;
 import co.aikar.idb.DbStatement;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.github.joshy56.response.Response;
 import io.github.joshy56.response.ResponseCode;
+import org.intellij.lang.annotations.Language;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
+ * Base of the cached repositories. {@code K} is the cache key, subclasses may key the cache with
+ * something cheaper than the key of the {@link Repository} they implement.
  * @author joshy56
  * @since 6/3/2024
  */
-public abstract class AbstractCachedRepository<K, V> implements Repository<K, V> {
+public abstract class AbstractCachedRepository<K, V> {
+    protected static final int LOAD_CHUNK_SIZE = 256;
+    public static final int DEFAULT_FETCH_SIZE = 512;
+    /**
+     * Thrown by loaders when the row doesn't exist. Shared and without stack trace, a miss is
+     * a normal outcome and shouldn't pay for building an exception.
+     */
+    protected static final RuntimeException NOT_FOUND = new RuntimeException("Value not found.", null, false, false) {
+    };
     private final UUID uniqueIdentifier;
     private final LoadingCache<K, V> cache;
+    private volatile Cache<K, Boolean> absent;
     private final Database database;
+    private final StatementPool statements;
+    private final RepositoryMetrics metrics;
+    @Nullable
+    private volatile CacheInvalidations.Channel<K> invalidations;
 
     public AbstractCachedRepository(@NotNull Database database, @NotNull LoadingCache<K, V> cache) {
+        this(database, cache, new StatementPool(database));
+    }
+
+    /**
+     * @param database backing database
+     * @param cache cache of loaded values
+     * @param statements pool shared by the repositories of the same database
+     */
+    public AbstractCachedRepository(@NotNull Database database, @NotNull LoadingCache<K, V> cache, @NotNull StatementPool statements) {
         this.uniqueIdentifier = UUID.randomUUID();
         this.database = database;
         this.cache = cache;
+        this.statements = statements;
+        this.metrics = new RepositoryMetrics();
+        this.absent = CacheBuilder.newBuilder().maximumSize(10_000).expireAfterWrite(30, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * Replaces the cache of keys known to have no value, dropping what it remembered.
+     * @param maximumSize max keys remembered as absent
+     * @param timeToLive how long a key is remembered as absent
+     * @param unit unit of {@code timeToLive}
+     */
+    public void negativeCache(long maximumSize, long timeToLive, @NotNull TimeUnit unit) {
+        this.absent = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive, unit).build();
     }
 
     /**
@@ -83,6 +144,7 @@ public abstract class AbstractCachedRepository<K, V> implements Repository<K, V>
      * @return
      */
     protected <T> @NotNull Response<T> query(Function<DbStatement, Response<T>> map) {
+        long start = System.nanoTime();
         try (DbStatement statement = database.createStatement()) {
             try {
                 statement.startTransaction();
@@ -91,9 +153,11 @@ public abstract class AbstractCachedRepository<K, V> implements Repository<K, V>
 
                 Response<T> response = map.apply(statement);
                 if (statement.inTransaction()) statement.commit();
+                metrics.committed(start, "(statement)");
                 return response;
             } catch (SQLException ok) {
                 statement.rollback();
+                metrics.rolledBack(start, "(statement)");
                 throw ok;
             }
         } catch (SQLException ok) {
@@ -101,6 +165,341 @@ public abstract class AbstractCachedRepository<K, V> implements Repository<K, V>
         }
     }
 
+    /**
+     * Runs the same statement once per element as a single JDBC batch inside one transaction,
+     * so N writes cost one prepare and one commit instead of N.
+     * @param sql statement to batch, with its parameters filled by {@code binder}
+     * @param elements values to bind, one batch entry each
+     * @param binder fills the statement parameters for one element
+     * @return an empty response or the error that rolled the batch back
+     */
+    protected <E> @NotNull Response<Void> batch(@Language("SQL") @NotNull String sql, @NotNull Collection<E> elements, @NotNull Binder<E> binder) {
+        try {
+            executeBatch(sql, elements, binder);
+            return Response.empty();
+        } catch (SQLException ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Something got wrong, can't execute the batch.", ok)), Optional.empty());
+        }
+    }
+
+    /**
+     * Same as {@link #batch(String, Collection, Binder)} but lets the failure reach the caller.
+     * @param sql statement to batch
+     * @param elements values to bind
+     * @param binder fills the statement parameters for one element
+     * @throws SQLException if any entry fails, after rolling back the whole batch
+     */
+    protected <E> void executeBatch(@Language("SQL") @NotNull String sql, @NotNull Collection<E> elements, @NotNull Binder<E> binder) throws SQLException {
+        if (elements.isEmpty()) return;
+        executeSession(sql, connection -> {
+            PreparedStatement statement = statements.prepare(connection, sql);
+            for (E element : elements) {
+                binder.bind(statement, element);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            return null;
+        });
+    }
+
+    /**
+     * Runs {@code work} over one pooled connection inside a transaction, committed when it returns.
+     * Statements should come from {@link #prepare(Connection, String)} so they're reused.
+     * @param work database work
+     * @return the value of {@code work} or the error that rolled it back
+     */
+    protected <T> @NotNull Response<T> session(@NotNull Session<T> work) {
+        try {
+            return Response.ofNullable(executeSession(work), null);
+        } catch (SQLException ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Something got wrong, check it you SQL query.", ok)), Optional.empty());
+        }
+    }
+
+    /**
+     * Same as {@link #session(Session)} but lets the failure reach the caller.
+     */
+    protected <T> T executeSession(@NotNull Session<T> work) throws SQLException {
+        return executeSession("(session)", work);
+    }
+
+    /**
+     * Same as {@link #executeSession(Session)} but over a read connection, see {@link StatementPool#borrowRead()}.
+     * @param work database work that only reads
+     */
+    protected <T> T executeRead(@NotNull Session<T> work) throws SQLException {
+        return executeSession("(read)", work, true);
+    }
+
+    private <T> T executeSession(@NotNull String sql, @NotNull Session<T> work) throws SQLException {
+        return executeSession(sql, work, false);
+    }
+
+    private <T> T executeSession(@NotNull String sql, @NotNull Session<T> work, boolean read) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = read ? statements.borrowRead() : statements.borrow()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                T value = work.apply(connection);
+                connection.commit();
+                metrics.committed(start, sql);
+                return value;
+            } catch (SQLException | RuntimeException ok) {
+                connection.rollback();
+                metrics.rolledBack(start, sql);
+                throw ok;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Streams the rows of {@code sql} through a JDBC cursor, {@code fetchSize} rows at a time, instead of
+     * materializing the whole result. The stream holds a pooled connection until it's closed, so it must
+     * be used in a try-with-resources block. Read errors surface as {@link IllegalStateException}.
+     * The connection comes from the read pool, if there's one.
+     * @param sql fixed query without parameters
+     * @param fetchSize rows fetched per round trip, a hint the driver may ignore
+     * @param mapper reads one row
+     * @return lazily fetched rows
+     * @throws SQLException if the query can't be started
+     */
+    protected <T> @NotNull Stream<T> stream(@Language("SQL") @NotNull String sql, int fetchSize, @NotNull RowMapper<T> mapper) throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = statements.borrowRead();
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            // Some drivers, like PostgreSQL, only fetch lazily inside a transaction.
+            connection.setAutoCommit(false);
+            // Not from the statement pool, the fetch size would stick to the cached statement.
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            ResultSet result = statement.executeQuery();
+            Spliterator<T> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        if (!result.next()) return false;
+                        action.accept(mapper.map(result));
+                        return true;
+                    } catch (SQLException ok) {
+                        throw new IllegalStateException("AbstractCachedRepository@stream() | Can't read the next row.", ok);
+                    }
+                }
+            };
+            return StreamSupport.stream(rows, false).onClose(() -> {
+                try (connection; statement; result) {
+                    connection.rollback();
+                    connection.setAutoCommit(autoCommit);
+                    metrics.committed(start, sql);
+                } catch (SQLException ok) {
+                    throw new IllegalStateException("AbstractCachedRepository@stream() | Can't close the cursor.", ok);
+                }
+            });
+        } catch (SQLException | RuntimeException ok) {
+            connection.close();
+            throw ok;
+        }
+    }
+
+    /**
+     * @param connection connection of the current {@link #session(Session)}
+     * @param sql fixed SQL string
+     * @return cached statement with cleared parameters, never close it
+     * @throws SQLException if it can't be prepared
+     */
+    protected @NotNull PreparedStatement prepare(@NotNull Connection connection, @Language("SQL") @NotNull String sql) throws SQLException {
+        return statements.prepare(connection, sql);
+    }
+
+    /**
+     * @return pool this repository borrows connections and statements from
+     */
+    @NotNull
+    public StatementPool statementPool() {
+        return statements;
+    }
+
+    /**
+     * @return latency, commits and rollbacks of the database work of this repository
+     */
+    @NotNull
+    public RepositoryMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * @return hits, misses, loads and evictions of the cache, all zero unless it was built with {@code recordStats()}
+     */
+    @NotNull
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Reads through the cache, remembering keys without value for a while so repeated lookups
+     * of them, like balances of new players, neither hit the database nor build exceptions.
+     * @param key key to read
+     * @return the value, empty if it doesn't exist
+     * @throws ExecutionException if loading fails
+     */
+    protected @NotNull Optional<V> find(@NotNull K key) throws ExecutionException {
+        Cache<K, Boolean> absent = this.absent;
+        if (absent.getIfPresent(key) != null) return Optional.empty();
+        V value = cache.getIfPresent(key);
+        if (value != null) return Optional.of(value);
+        try {
+            return Optional.of(cache.get(key));
+        } catch (ExecutionException | UncheckedExecutionException ok) {
+            if (ok.getCause() != NOT_FOUND) throw new ExecutionException(ok.getCause());
+            absent.put(key, Boolean.TRUE);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Bulk read through the cache, every missing key is fetched by one {@code CacheLoader.loadAll} call.
+     * @param keys keys to read
+     * @return values of the keys that exist, absent ones are left out
+     * @throws ExecutionException if loading fails
+     */
+    protected @NotNull Map<K, V> getAllCached(@NotNull Iterable<? extends K> keys) throws ExecutionException {
+        Cache<K, Boolean> absent = this.absent;
+        List<K> candidates = new ArrayList<>();
+        for (K key : keys) if (absent.getIfPresent(key) == null) candidates.add(key);
+        try {
+            return cache.getAll(candidates);
+        } catch (CacheLoader.InvalidCacheLoadException ok) {
+            // Found values were cached before the missing ones made getAll fail.
+            Map<K, V> found = cache.getAllPresent(candidates);
+            for (K key : candidates) if (!found.containsKey(key)) absent.put(key, Boolean.TRUE);
+            return found;
+        } catch (UncheckedExecutionException ok) {
+            throw new ExecutionException(ok.getCause());
+        }
+    }
+
+    /**
+     * Must be called by every write, so a key remembered as absent is seen again once it has a value.
+     * @param key written key
+     */
+    protected void forgetAbsent(@NotNull K key) {
+        absent.invalidate(key);
+    }
+
+    protected void forgetAbsent(@NotNull Iterable<? extends K> keys) {
+        absent.invalidateAll(keys);
+    }
+
+    /**
+     * Shares the invalidations of this cache with other nodes: keys passed to {@link #broadcast(Collection)}
+     * are sent to them and theirs come back through {@link #invalidated(Collection)}.
+     * @param invalidations link to the other nodes
+     * @param channel name of this cache, the same on every node
+     * @param encoder key to text
+     * @param decoder text to key
+     */
+    protected void attach(@NotNull CacheInvalidations invalidations, @NotNull String channel, @NotNull Function<K, String> encoder, @NotNull Function<String, K> decoder) {
+        this.invalidations = invalidations.channel(channel, this, encoder, decoder);
+    }
+
+    /**
+     * Tells the other nodes, if attached, that the keys changed. Must be called once the change is
+     * in the database, or they'd load the old value again.
+     * @param keys written or deleted keys
+     */
+    protected void broadcast(@NotNull Collection<? extends K> keys) {
+        CacheInvalidations.Channel<K> invalidations = this.invalidations;
+        if (invalidations != null) invalidations.publish(keys);
+    }
+
+    /**
+     * Same as {@link #broadcast(Collection)} for every key.
+     */
+    protected void broadcastAll() {
+        CacheInvalidations.Channel<K> invalidations = this.invalidations;
+        if (invalidations != null) invalidations.publishAll();
+    }
+
+    /**
+     * Called with keys changed by another node, from the thread of the bus. Evicts them, subclasses
+     * keeping other views of the values refresh them here.
+     * @param keys changed keys
+     */
+    protected void invalidated(@NotNull Collection<K> keys) {
+        cache.invalidateAll(keys);
+        absent.invalidateAll(keys);
+    }
+
+    /**
+     * Same as {@link #invalidated(Collection)} when another node changed every key.
+     */
+    protected void invalidatedAll() {
+        cache.invalidateAll();
+        absent.invalidateAll();
+    }
+
+    /**
+     * Loads one row over a read connection, meant for {@code CacheLoader.load}.
+     * @param statements pool to borrow the connection from
+     * @param sql query with only string parameters
+     * @param mapper reads the first row
+     * @param parameters values of the parameters, in order
+     * @return the first row
+     * @throws SQLException if the query fails
+     * @throws RuntimeException {@link #NOT_FOUND} if there's no row
+     */
+    protected static <T> @NotNull T loadFirst(@NotNull StatementPool statements, @Language("SQL") @NotNull String sql, @NotNull RowMapper<T> mapper, @NotNull String... parameters) throws SQLException {
+        try (Connection connection = statements.borrowRead()) {
+            PreparedStatement statement = statements.prepare(connection, sql);
+            for (int index = 0; index < parameters.length; index++) statement.setString(index + 1, parameters[index]);
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next()) throw NOT_FOUND;
+                return mapper.map(result);
+            }
+        }
+    }
+
+    /**
+     * Loads many keys with {@code WHERE key IN (...)} queries of up to {@link #LOAD_CHUNK_SIZE} keys each,
+     * meant for {@code CacheLoader.loadAll}, over a read connection. Full chunks share the same SQL, so their statement is reused.
+     * @param statements pool to borrow the connection from
+     * @param keys keys to load
+     * @param sql builds the query for a chunk of the given size
+     * @param binder binds one key starting at the given parameter index
+     * @param reader reads one row into its key and value
+     * @return loaded entries, keys without a row are left out
+     * @throws SQLException if any query fails
+     */
+    protected static <K, V> @NotNull Map<K, V> loadChunked(@NotNull StatementPool statements, @NotNull Iterable<? extends K> keys, @NotNull IntFunction<String> sql, @NotNull KeyBinder<K> binder, @NotNull RowReader<K, V> reader) throws SQLException {
+        Map<K, V> loaded = new HashMap<>();
+        try (Connection connection = statements.borrowRead()) {
+            for (List<? extends K> chunk : Iterables.partition(keys, LOAD_CHUNK_SIZE)) {
+                PreparedStatement statement = statements.prepare(connection, sql.apply(chunk.size()));
+                int index = 1;
+                for (K key : chunk) index = binder.bind(statement, index, key);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        Map.Entry<K, V> entry = reader.read(result);
+                        loaded.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @param size amount of placeholders
+     * @param placeholder placeholder of one key, like {@code ?} or {@code (?, ?)}
+     * @return placeholders separated by commas
+     */
+    protected static @NotNull String placeholders(int size, @NotNull String placeholder) {
+        return String.join(", ", Collections.nCopies(size, placeholder));
+    }
+
     @NotNull
     protected LoadingCache<K, V> cache() {
         return cache;
@@ -110,4 +509,47 @@ public abstract class AbstractCachedRepository<K, V> implements Repository<K, V>
     protected Database database() {
         return database;
     }
+
+    /**
+     * Database work done over a borrowed connection.
+     */
+    @FunctionalInterface
+    protected interface Session<T> {
+        T apply(@NotNull Connection connection) throws SQLException;
+    }
+
+    /**
+     * Reads one row of a {@link #stream(String, int, RowMapper)} or {@link #loadFirst(StatementPool, String, RowMapper, String...)}.
+     */
+    @FunctionalInterface
+    protected interface RowMapper<T> {
+        @NotNull T map(@NotNull ResultSet row) throws SQLException;
+    }
+
+    /**
+     * Binds one key of a chunked load.
+     */
+    @FunctionalInterface
+    protected interface KeyBinder<K> {
+        /**
+         * @return index of the next free parameter
+         */
+        int bind(@NotNull PreparedStatement statement, int index, @NotNull K key) throws SQLException;
+    }
+
+    /**
+     * Reads the key and value of one row of a chunked load.
+     */
+    @FunctionalInterface
+    protected interface RowReader<K, V> {
+        @NotNull Map.Entry<K, V> read(@NotNull ResultSet row) throws SQLException;
+    }
+
+    /**
+     * Binds the parameters of one batch entry.
+     */
+    @FunctionalInterface
+    protected interface Binder<E> {
+        void bind(@NotNull PreparedStatement statement, @NotNull E element) throws SQLException;
+    }
 }
@@ -0,0 +1,68 @@
+package io.github.joshy56;
+
+import io.github.joshy56.response.Response;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking view of a {@link Repository}, every call runs on the given executor
+ * and completes with the same {@link Response} the blocking call would return.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public class AsyncRepository<K, V> {
+    private final Repository<K, V> repository;
+    private final Executor executor;
+
+    public AsyncRepository(@NotNull Repository<K, V> repository, @NotNull Executor executor) {
+        this.repository = repository;
+        this.executor = executor;
+    }
+
+    public @NotNull CompletableFuture<Response<V>> get(@NotNull K key) {
+        return supply(() -> repository.get(key));
+    }
+
+    public @NotNull CompletableFuture<Response<Set<V>>> getAllOfThem(@NotNull Set<K> keys) {
+        return supply(() -> repository.getAllOfThem(keys));
+    }
+
+    public @NotNull CompletableFuture<Response<Set<V>>> getAll() {
+        return supply(repository::getAll);
+    }
+
+    public @NotNull CompletableFuture<Response<Void>> set(@NotNull V value) {
+        return supply(() -> repository.set(value));
+    }
+
+    public @NotNull CompletableFuture<Response<Void>> setAll(@NotNull Set<V> values) {
+        return supply(() -> repository.setAll(values));
+    }
+
+    public @NotNull CompletableFuture<Response<Void>> delete(@NotNull K key) {
+        return supply(() -> repository.delete(key));
+    }
+
+    public @NotNull CompletableFuture<Response<Void>> deleteAllOfThem(@NotNull Set<K> keys) {
+        return supply(() -> repository.deleteAllOfThem(keys));
+    }
+
+    public @NotNull CompletableFuture<Response<Void>> deleteAll() {
+        return supply(repository::deleteAll);
+    }
+
+    /**
+     * @return the blocking repository behind this view
+     */
+    public @NotNull Repository<K, V> blocking() {
+        return repository;
+    }
+
+    protected <T> @NotNull CompletableFuture<T> supply(@NotNull Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+}
@@ -0,0 +1,263 @@
+package io.github.joshy56;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Links the caches of this node to the other nodes through an {@link InvalidationBus}. Keys written
+ * here are collected per cache and sent in batches, every {@code window} or once {@code maxBatch} keys
+ * are waiting; keys written by other nodes are handed to the repository of their cache, which evicts
+ * or refreshes them.
+ * <p>
+ * A value may be read stale on other nodes from its write until its batch is received, the
+ * {@linkplain Stats#averageStaleMillis() stale window}: up to {@code window} of batching plus the
+ * transport. It's measured on the receiving side with wall clocks, so it's only as exact as the clocks
+ * of the nodes are in sync.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class CacheInvalidations implements AutoCloseable {
+    private final InvalidationBus bus;
+    private final UUID node;
+    private final int maxBatch;
+    private final Map<String, Channel<?>> channels;
+    private final ScheduledExecutorService worker;
+    private final Consumer<InvalidationBus.Message> listener;
+    private final LongAdder sent, keysSent, received, keysReceived, staleMillis, failures;
+    private final LongAccumulator maxStaleMillis;
+    private volatile Logger failureLog;
+
+    /**
+     * @param bus bus shared with the other nodes, not closed by this
+     * @param window max time a written key waits before being sent
+     * @param unit unit of {@code window}
+     * @param maxBatch keys per message, reaching it sends the batch early
+     */
+    public CacheInvalidations(@NotNull InvalidationBus bus, long window, @NotNull TimeUnit unit, int maxBatch) {
+        if (window <= 0 || maxBatch <= 0) throw new IllegalArgumentException("CacheInvalidations@constructor() | Window and batch size must be positive.");
+        this.bus = bus;
+        this.node = UUID.randomUUID();
+        this.maxBatch = maxBatch;
+        this.channels = new ConcurrentHashMap<>();
+        this.sent = new LongAdder();
+        this.keysSent = new LongAdder();
+        this.received = new LongAdder();
+        this.keysReceived = new LongAdder();
+        this.staleMillis = new LongAdder();
+        this.failures = new LongAdder();
+        this.maxStaleMillis = new LongAccumulator(Math::max, 0);
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "economic-invalidations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.listener = this::receive;
+        bus.subscribe(listener);
+        worker.scheduleWithFixedDelay(this::flush, window, window, unit);
+    }
+
+    /**
+     * @param name name of the cache, the same on every node
+     * @param repository repository owning the cache
+     * @param encoder key to the text sent to other nodes
+     * @param decoder text received from other nodes to key
+     * @return channel the repository publishes its writes to
+     */
+    @NotNull
+    <K> Channel<K> channel(@NotNull String name, @NotNull AbstractCachedRepository<K, ?> repository, @NotNull Function<K, String> encoder, @NotNull Function<String, K> decoder) {
+        Channel<K> channel = new Channel<>(name, repository, encoder, decoder);
+        if (channels.putIfAbsent(name, channel) != null) throw new IllegalStateException("CacheInvalidations@channel() | Channel " + name + " is already taken.");
+        return channel;
+    }
+
+    /**
+     * @param logger told every received batch a repository failed to apply
+     */
+    public void failureLog(@NotNull Logger logger) {
+        this.failureLog = logger;
+    }
+
+    /**
+     * Sends every waiting key now.
+     */
+    public void flush() {
+        channels.values().forEach(Channel::flush);
+    }
+
+    /**
+     * @return numbers of the messages sent and received so far
+     */
+    @NotNull
+    public Stats stats() {
+        long messages = received.sum();
+        return new Stats(sent.sum(), keysSent.sum(), messages, keysReceived.sum(), messages == 0 ? 0 : (double) staleMillis.sum() / messages, maxStaleMillis.get(), failures.sum());
+    }
+
+    /**
+     * Sends what's waiting and stops listening, the bus is left open.
+     */
+    @Override
+    public void close() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ok) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        bus.unsubscribe(listener);
+    }
+
+    private void receive(@NotNull InvalidationBus.Message message) {
+        if (message.origin().equals(node)) return;
+        Channel<?> channel = channels.get(message.channel());
+        if (channel == null) return;
+        try {
+            channel.receive(message);
+        } catch (RuntimeException ok) {
+            failures.increment();
+            Logger logger = this.failureLog;
+            if (logger != null) logger.log(Level.WARNING, "Can't apply the invalidations of " + message.channel() + " sent by " + message.origin() + ".", ok);
+        }
+        long stale = Math.max(0, System.currentTimeMillis() - message.firstChangeMillis());
+        received.increment();
+        keysReceived.add(message.keys().size());
+        staleMillis.add(stale);
+        maxStaleMillis.accumulate(stale);
+    }
+
+    /**
+     * Keys of one cache waiting to be sent.
+     */
+    final class Channel<K> {
+        private final String name;
+        private final AbstractCachedRepository<K, ?> repository;
+        private final Function<K, String> encoder;
+        private final Function<String, K> decoder;
+        private final Set<String> pending;
+        private final AtomicLong firstChange;
+        private final AtomicBoolean all, flushQueued;
+
+        private Channel(@NotNull String name, @NotNull AbstractCachedRepository<K, ?> repository, @NotNull Function<K, String> encoder, @NotNull Function<String, K> decoder) {
+            this.name = name;
+            this.repository = repository;
+            this.encoder = encoder;
+            this.decoder = decoder;
+            this.pending = ConcurrentHashMap.newKeySet();
+            this.firstChange = new AtomicLong();
+            this.all = new AtomicBoolean();
+            this.flushQueued = new AtomicBoolean();
+        }
+
+        /**
+         * @param keys keys written to the database, to be invalidated on the other nodes
+         */
+        void publish(@NotNull Collection<? extends K> keys) {
+            if (keys.isEmpty()) return;
+            for (K key : keys) pending.add(encoder.apply(key));
+            changed();
+        }
+
+        /**
+         * Invalidates the whole cache on the other nodes, like after deleting every row.
+         */
+        void publishAll() {
+            all.set(true);
+            changed();
+        }
+
+        private void changed() {
+            firstChange.compareAndSet(0, System.currentTimeMillis());
+            if ((all.get() || pending.size() >= maxBatch) && flushQueued.compareAndSet(false, true)) {
+                try {
+                    worker.execute(this::flush);
+                } catch (RuntimeException ok) {
+                    // Shutting down, close() flushes what's left.
+                    flushQueued.set(false);
+                }
+            }
+        }
+
+        private synchronized void flush() {
+            flushQueued.set(false);
+            long first = firstChange.getAndSet(0), now = System.currentTimeMillis();
+            if (first == 0) first = now;
+            if (all.getAndSet(false)) {
+                // Whatever keys were waiting are covered by the whole cache.
+                pending.clear();
+                send(new InvalidationBus.Message(node, name, Set.of(), true, first, now), 0);
+                return;
+            }
+            Set<String> batch = new HashSet<>();
+            for (Iterator<String> keys = pending.iterator(); keys.hasNext(); ) {
+                batch.add(keys.next());
+                keys.remove();
+                if (batch.size() == maxBatch) {
+                    send(new InvalidationBus.Message(node, name, Set.copyOf(batch), false, first, now), batch.size());
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) send(new InvalidationBus.Message(node, name, Set.copyOf(batch), false, first, now), batch.size());
+        }
+
+        private void send(@NotNull InvalidationBus.Message message, int keys) {
+            bus.publish(message);
+            sent.increment();
+            keysSent.add(keys);
+        }
+
+        private void receive(@NotNull InvalidationBus.Message message) {
+            if (message.all()) {
+                repository.invalidatedAll();
+                return;
+            }
+            List<K> keys = new ArrayList<>(message.keys().size());
+            for (String key : message.keys()) {
+                try {
+                    keys.add(decoder.apply(key));
+                } catch (RuntimeException ignored) {
+                    // Malformed, likely from a node of another version, there's nothing to evict.
+                }
+            }
+            if (!keys.isEmpty()) repository.invalidated(keys);
+        }
+    }
+
+    /**
+     * @param messagesSent batches sent to other nodes
+     * @param keysSent keys in those batches
+     * @param messagesReceived batches of other nodes applied here
+     * @param keysReceived keys in those batches
+     * @param averageStaleMillis mean time from the oldest write of a received batch until it was applied
+     * @param maxStaleMillis longest of those times
+     * @param failures received batches a repository failed to apply
+     */
+    public record Stats(long messagesSent, long keysSent, long messagesReceived, long keysReceived, double averageStaleMillis, long maxStaleMillis, long failures) {
+        /**
+         * @return mean keys per batch sent
+         */
+        public double keysPerMessage() {
+            return messagesSent == 0 ? 0 : (double) keysSent / messagesSent;
+        }
+    }
+}
@@ -5,14 +5,39 @@ import co.aikar.idb.BaseDatabase;
 import co.aikar.idb.DB;
 import co.aikar.idb.Database;
 import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheBuilderSpec;
+import io.github.joshy56.currency.SimpleCurrencyRepository;
+import io.github.joshy56.listener.CacheWarmupListener;
+import io.github.joshy56.subject.SimpleSubjectRepository;
+import io.github.joshy56.transaction.BalanceAdjuster;
+import io.github.joshy56.transaction.BalanceWal;
+import io.github.joshy56.transaction.SimpleTransactionRepository;
+import io.github.joshy56.transaction.TransactionJournal;
 import io.github.joshy56.transaction.TransactionRepository;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongUnaryOperator;
+import java.util.logging.Level;
 
 /**
  * @author joshy56
@@ -20,12 +45,310 @@ import java.sql.Connection;
  */
 public class ClientEconomic extends JavaPlugin {
     Database database;
+    Database readDatabase;
+    StatementPool statements;
+    SimpleCurrencyRepository currencies;
+    SimpleSubjectRepository subjects;
+    SimpleTransactionRepository transactions;
+    ExecutorService databaseExecutor;
+    BalanceWal wal;
+    MetricsRegistry metrics;
+    EconomyArchive archive;
+    CacheWarmupListener warmup;
+    CacheInvalidations invalidations;
+    LoopbackInvalidationBus loopbackBus;
+    ScheduledExecutorService adjustmentScheduler;
+    ForkJoinPool adjustmentPool;
+    final List<BalanceAdjuster> adjusters = new ArrayList<>();
 
     @Override
     public void onEnable() {
-        database = new BaseDatabase(DatabaseOptions.builder().sqlite("").build());
+        saveDefaultConfig();
+        databaseExecutor = DatabaseExecutors.create(
+                getConfig().getBoolean("async.virtual-threads", false),
+                getConfig().getInt("async.threads", 4)
+        );
+        openDatabase();
+        currencies = new SimpleCurrencyRepository(database, statements);
+        if (getConfig().getBoolean("cache.resident-currencies", true)) {
+            try {
+                currencies.resident().getOrThrow();
+            } catch (Throwable ok) {
+                getLogger().log(Level.WARNING, "Can't load every currency, they'll be read through the cache.", ok);
+            }
+        }
+        subjects = new SimpleSubjectRepository(database, statements);
+        if (getConfig().getBoolean("storage.journal.enabled", false)) {
+            transactions = new SimpleTransactionRepository(
+                    database,
+                    statements,
+                    currencies::scaleOf,
+                    currencies.ids(),
+                    new TransactionJournal(
+                            statements,
+                            getConfig().getLong("storage.journal.append-interval", 200),
+                            getConfig().getLong("storage.journal.snapshot-interval", 60_000),
+                            TimeUnit.MILLISECONDS
+                    )
+            );
+            try {
+                TransactionJournal.Recovery recovery = transactions.recovery().getOrThrow();
+                getLogger().info(String.format("Replayed %d journal entries in %d ms.", recovery.entries(), recovery.millis()));
+            } catch (Throwable ok) {
+                getLogger().log(Level.SEVERE, "Can't replay the transaction journal.", ok);
+            }
+        } else if (getConfig().getBoolean("storage.write-behind.enabled", false))
+            transactions = new SimpleTransactionRepository(
+                    database,
+                    statements,
+                    currencies::scaleOf,
+                    currencies.ids(),
+                    getConfig().getLong("storage.write-behind.flush-interval", 5000),
+                    TimeUnit.MILLISECONDS,
+                    getConfig().getInt("storage.write-behind.flush-threshold", 512)
+            );
+        else transactions = new SimpleTransactionRepository(database, statements, currencies::scaleOf, currencies.ids());
+        currencies.pendingBalances(transactions::hasPending);
+        long negativeSize = getConfig().getLong("cache.negative.maximum-size", 10_000), negativeTtl = getConfig().getLong("cache.negative.time-to-live", 30);
+        currencies.negativeCache(negativeSize, negativeTtl, TimeUnit.SECONDS);
+        subjects.negativeCache(negativeSize, negativeTtl, TimeUnit.SECONDS);
+        transactions.negativeCache(negativeSize, negativeTtl, TimeUnit.SECONDS);
+        metrics = new MetricsRegistry(statements);
+        metrics.register("currencies", currencies);
+        metrics.register("subjects", subjects);
+        metrics.register("transactions", transactions);
+        metrics.slowQueryLog(getConfig().getLong("metrics.slow-query-threshold", 50), TimeUnit.MILLISECONDS, getLogger());
+        if (getConfig().getBoolean("storage.invalidation.enabled", false)) openInvalidations();
+        if (getConfig().getBoolean("storage.wal.enabled", false)) openWal();
+        if (getConfig().getBoolean("cache.off-heap-balances.enabled", false)) {
+            try {
+                int loaded = transactions.offHeap(getConfig().getInt("cache.off-heap-balances.expected-accounts", 1_000_000)).getOrThrow();
+                getLogger().info(String.format("Loaded %d balances off-heap, %d KiB.", loaded, transactions.offHeapBytes() / 1024));
+            } catch (Throwable ok) {
+                getLogger().log(Level.WARNING, "Can't load balances off-heap, they'll be read through the cache.", ok);
+            }
+        }
+        scheduleAdjustments();
+        archive = new EconomyArchive(currencies, subjects, transactions);
+        if (getConfig().getBoolean("cache.warmup", true)) {
+            warmup = new CacheWarmupListener(subjects, transactions, databaseExecutor, getLogger());
+            getServer().getPluginManager().registerEvents(warmup, this);
+            metrics.warmup(warmup);
+        }
         getServer().getServicesManager().getRegistration(TransactionRepository.class);
         PaperCommandManager commandManager = new PaperCommandManager(this);
         commandManager.enableUnstableAPI("brigadier");
     }
+
+    /**
+     * Opens the database with the storage profile of the config. The default profile pools connections
+     * over the file, or keeps the database in memory without a file; every connection to an in-memory
+     * database opens a new empty one, so it gets a single connection. The WAL profile opens one writer
+     * connection every write queues for and a pool of read-only connections over the same file.
+     */
+    private void openDatabase() {
+        int statementsPerConnection = getConfig().getInt("storage.pool.statements-per-connection", StatementPool.DEFAULT_STATEMENTS_PER_CONNECTION);
+        String fileName = getConfig().getString("storage.sqlite.file", "economy.db");
+        if (!"WAL".equalsIgnoreCase(getConfig().getString("storage.sqlite.profile", "DEFAULT"))) {
+            if (fileName == null || fileName.isBlank()) {
+                database = pooledDatabase("", 1);
+            } else {
+                getDataFolder().mkdirs();
+                database = pooledDatabase(getDataFolder().toPath().resolve(fileName).toString(), Math.max(1, getConfig().getInt("storage.pool.size", 4)));
+            }
+            statements = new StatementPool(database, statementsPerConnection);
+            return;
+        }
+        if (fileName == null || fileName.isBlank()) throw new IllegalStateException("ClientEconomic@openDatabase() | The WAL profile needs a database file.");
+        int readConnections = getConfig().getInt("storage.sqlite.read-connections", 0);
+        SqliteProfile profile = new SqliteProfile(
+                true,
+                getConfig().getString("storage.sqlite.synchronous", "NORMAL"),
+                getConfig().getLong("storage.sqlite.mmap-size", 268_435_456L),
+                getConfig().getInt("storage.sqlite.cache-size-kb", 16_384),
+                readConnections > 0 ? readConnections : Runtime.getRuntime().availableProcessors()
+        );
+        getDataFolder().mkdirs();
+        String file = getDataFolder().toPath().resolve(fileName).toString();
+        database = pooledDatabase(file, 1);
+        readDatabase = pooledDatabase(file, profile.readConnections());
+        statements = new StatementPool(database, readDatabase, statementsPerConnection, profile.writerSetup(), profile.readerSetup());
+        // Borrowing runs the setup, switching the file to WAL before any table is touched.
+        try (Connection ignored = statements.borrow()) {
+            getLogger().info(String.format("Opened %s in WAL mode, 1 writer and %d reader connections.", file, profile.readConnections()));
+        } catch (SQLException ok) {
+            getLogger().log(Level.SEVERE, "Can't apply the SQLite storage profile.", ok);
+        }
+    }
+
+    private static Database pooledDatabase(String file, int connections) {
+        return new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                .options(DatabaseOptions.builder().sqlite(file).build())
+                .minIdleConnections(connections)
+                .maxConnections(connections)
+                .build());
+    }
+
+    /**
+     * Links the caches to the other nodes of the same database, through the {@link InvalidationBus}
+     * another plugin provides or, without one, a loopback bus.
+     */
+    private void openInvalidations() {
+        RegisteredServiceProvider<InvalidationBus> provider = getServer().getServicesManager().getRegistration(InvalidationBus.class);
+        InvalidationBus bus = provider != null ? provider.getProvider() : (loopbackBus = new LoopbackInvalidationBus());
+        invalidations = new CacheInvalidations(
+                bus,
+                getConfig().getLong("storage.invalidation.batch-window", 50),
+                TimeUnit.MILLISECONDS,
+                getConfig().getInt("storage.invalidation.max-batch", 256)
+        );
+        invalidations.failureLog(getLogger());
+        currencies.attach(invalidations);
+        subjects.attach(invalidations);
+        transactions.attach(invalidations);
+        metrics.invalidations(invalidations);
+        getLogger().info("Sharing cache invalidations through " + bus.getClass().getSimpleName() + ".");
+    }
+
+    /**
+     * Maps the write-ahead log, replays what the last run left unsaved and starts logging to it.
+     */
+    private void openWal() {
+        try {
+            getDataFolder().mkdirs();
+            wal = new BalanceWal(
+                    getDataFolder().toPath().resolve("balances.wal"),
+                    getConfig().getInt("storage.wal.size-kb", 16_384) * 1024,
+                    BalanceWal.ForcePolicy.valueOf(getConfig().getString("storage.wal.force", "GROUP").toUpperCase(Locale.ROOT)),
+                    getConfig().getLong("storage.wal.force-interval", 10),
+                    TimeUnit.MILLISECONDS
+            );
+            int replayed = transactions.writeAheadLog(wal).getOrThrow();
+            if (replayed > 0) getLogger().info(String.format("Replayed %d unsaved balances from the write-ahead log.", replayed));
+        } catch (Throwable ok) {
+            getLogger().log(Level.SEVERE, "Can't open the write-ahead log, balances kept in memory aren't crash safe.", ok);
+        }
+    }
+
+    /**
+     * Schedules every enabled balance adjustment of the config. Each one runs once per interval, named
+     * after its period, and a run cut by a restart is resumed on the next check, see
+     * {@link BalanceAdjuster#runDue}.
+     */
+    private void scheduleAdjustments() {
+        ConfigurationSection schedules = getConfig().getConfigurationSection("adjustments.schedules");
+        if (schedules == null) return;
+        int chunkSize = getConfig().getInt("adjustments.chunk-size", 1000);
+        for (String name : schedules.getKeys(false)) {
+            ConfigurationSection schedule = schedules.getConfigurationSection(name);
+            if (schedule == null || !schedule.getBoolean("enabled", false)) continue;
+            long interval = TimeUnit.HOURS.toMillis(Math.max(1, schedule.getLong("interval-hours", 24)));
+            Map<String, LongUnaryOperator> rules = new HashMap<>();
+            ConfigurationSection rates = schedule.getConfigurationSection("rates");
+            if (rates != null) for (String currencyName : rates.getKeys(false)) {
+                double rate = rates.getDouble(currencyName);
+                // Truncated towards zero, a fraction of a minor unit is never paid nor charged.
+                rules.put(currencyName, balance -> Math.addExact(balance, (long) (balance * rate)));
+            }
+            if (adjustmentScheduler == null) {
+                adjustmentPool = new ForkJoinPool(Math.max(1, getConfig().getInt("adjustments.parallelism", 2)));
+                adjustmentScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "economic-adjustments");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            BalanceAdjuster adjuster = new BalanceAdjuster(transactions, rules, chunkSize, adjustmentPool);
+            adjusters.add(adjuster);
+            adjustmentScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    BalanceAdjuster.Progress progress = adjuster.runDue(name, interval, step -> {
+                        if (step.chunks() % 100 == 0)
+                            getLogger().info(String.format("Adjustment %s: %d of %d accounts.", step.run(), step.accounts(), step.total()));
+                    }).getOrThrow();
+                    if (progress.finished() && progress.chunks() > 0)
+                        getLogger().info(String.format("Adjustment %s finished: %d accounts, %d failed, in %d ms.", progress.run(), progress.accounts(), progress.failed(), progress.millis()));
+                } catch (Throwable ok) {
+                    getLogger().log(Level.WARNING, "Adjustment " + name + " stopped, it'll be resumed.", ok);
+                }
+            }, 1, 10, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * @return executor blocking database work runs on, off the main thread
+     */
+    public ExecutorService databaseExecutor() {
+        return databaseExecutor;
+    }
+
+    /**
+     * @return connection and prepared statement pool shared by every repository, with its wait and reuse numbers
+     */
+    public StatementPool statementPool() {
+        return statements;
+    }
+
+    /**
+     * @return cache and database numbers of every repository
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    /**
+     * @return link of the caches to other nodes, {@code null} unless enabled
+     */
+    public CacheInvalidations invalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return binary export and import of every table
+     */
+    public EconomyArchive archive() {
+        return archive;
+    }
+
+    @Override
+    public void onDisable() {
+        if (databaseExecutor != null) {
+            databaseExecutor.shutdown();
+            try {
+                if (!databaseExecutor.awaitTermination(10, TimeUnit.SECONDS)) databaseExecutor.shutdownNow();
+            } catch (InterruptedException ok) {
+                databaseExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        adjusters.forEach(BalanceAdjuster::stop);
+        for (ExecutorService executor : new ExecutorService[]{adjustmentScheduler, adjustmentPool}) {
+            if (executor == null) continue;
+            executor.shutdown();
+            try {
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ok) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (transactions != null) {
+            try {
+                transactions.close().getOrThrow();
+            } catch (Throwable ok) {
+                getLogger().log(Level.SEVERE, "Can't save every pending balance, the write-ahead log replays them on the next start if enabled.", ok);
+            }
+        }
+        // After the last flush, so the other nodes hear of it.
+        if (invalidations != null) invalidations.close();
+        if (loopbackBus != null) loopbackBus.close();
+        if (wal != null) {
+            try {
+                wal.close();
+            } catch (IOException ok) {
+                getLogger().log(Level.WARNING, "Can't close the write-ahead log.", ok);
+            }
+        }
+        if (readDatabase != null) readDatabase.close();
+        if (database != null) database.close();
+    }
 }
@@ -0,0 +1,40 @@
+package io.github.joshy56;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the executor blocking database work is moved to, away from the server main thread.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class DatabaseExecutors {
+    private DatabaseExecutors() {
+    }
+
+    /**
+     * @param virtualThreads use a virtual thread per task when the runtime supports it (Java 21+)
+     * @param threads size of the platform thread pool, used when virtual threads are off or unavailable
+     * @return a new executor, the caller must shut it down
+     */
+    public static @NotNull ExecutorService create(boolean virtualThreads, int threads) {
+        if (virtualThreads) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException ok) {
+                // Older runtime, fall back to platform threads.
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "economic-database-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
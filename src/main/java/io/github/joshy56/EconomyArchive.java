@@ -0,0 +1,362 @@
+package io.github.joshy56;
+
+import io.github.joshy56.currency.Currency;
+import io.github.joshy56.currency.MinorUnits;
+import io.github.joshy56.currency.SimpleCurrency;
+import io.github.joshy56.currency.SimpleCurrencyRepository;
+import io.github.joshy56.response.Response;
+import io.github.joshy56.subject.SimpleSubject;
+import io.github.joshy56.subject.SimpleSubjectRepository;
+import io.github.joshy56.subject.Subject;
+import io.github.joshy56.transaction.SimpleTransactionRepository;
+import io.github.joshy56.transaction.Transaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Exports the currencies, subjects and balances to a compact binary file and imports them back,
+ * streaming both ways so neither side holds a whole table in memory.
+ * <p>
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, then holds one section per table in that
+ * order. Every record of a section is preceded by a {@code 1} byte and the section ends with a
+ * {@code 0} byte. Lengths and counts are unsigned varints, balances zigzag varints of minor units,
+ * UUIDs two big-endian longs and strings UTF-8 prefixed by their length plus one, {@code 0} being
+ * {@code null}. Currency names of balances are dictionary encoded: {@code 0} followed by the name
+ * the first time, its position in the dictionary plus one afterwards.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class EconomyArchive {
+    public static final int MAGIC = 0x45434F58, VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16, IMPORT_BATCH = 10_000;
+    private final SimpleCurrencyRepository currencies;
+    private final SimpleSubjectRepository subjects;
+    private final SimpleTransactionRepository transactions;
+
+    public EconomyArchive(@NotNull SimpleCurrencyRepository currencies, @NotNull SimpleSubjectRepository subjects, @NotNull SimpleTransactionRepository transactions) {
+        this.currencies = currencies;
+        this.subjects = subjects;
+        this.transactions = transactions;
+    }
+
+    /**
+     * Writes every table to {@code file}, through a temporary file moved in place once complete.
+     * @param file file to write, replaced if it exists
+     * @return rows written and time taken
+     */
+    public @NotNull Response<Report> export(@NotNull Path file) {
+        long start = System.nanoTime();
+        Report value = null;
+        Exception exception = null;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            long currenciesCount = 0, subjectsCount = 0, transactionsCount = 0;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                Output output = new Output(channel);
+                output.fixedInt(MAGIC);
+                output.varLong(VERSION);
+                try (Stream<Currency> stream = currencies.streamAll().getOrThrow()) {
+                    for (Iterator<Currency> iterator = stream.iterator(); iterator.hasNext(); currenciesCount++) {
+                        Currency currency = iterator.next();
+                        output.varLong(1);
+                        output.string(currency.name());
+                        output.string(valueOf(currency.displayName()));
+                        output.string(valueOf(currency.displayNamePlural()));
+                        output.string(valueOf(currency.abbreviation()));
+                        Character symbol = valueOf(currency.symbol());
+                        output.varLong(symbol == null ? 0 : symbol + 1);
+                        output.varLong(currency instanceof SimpleCurrency simpleCurrency ? simpleCurrency.scale() : MinorUnits.DEFAULT_SCALE);
+                    }
+                }
+                output.varLong(0);
+                try (Stream<Subject> stream = subjects.streamAll().getOrThrow()) {
+                    for (Iterator<Subject> iterator = stream.iterator(); iterator.hasNext(); subjectsCount++) {
+                        Subject subject = iterator.next();
+                        output.varLong(1);
+                        output.uuid(subject.identifer());
+                        output.string(valueOf(subject.nickname()));
+                    }
+                }
+                output.varLong(0);
+                Map<String, Integer> dictionary = new HashMap<>();
+                try (Stream<Transaction> stream = transactions.streamAll().getOrThrow()) {
+                    for (Iterator<Transaction> iterator = stream.iterator(); iterator.hasNext(); transactionsCount++) {
+                        Transaction transaction = iterator.next();
+                        String currencyName = transaction.currencyName();
+                        output.varLong(1);
+                        output.uuid(transaction.subjectIdentifier());
+                        Integer id = dictionary.get(currencyName);
+                        if (id == null) {
+                            dictionary.put(currencyName, dictionary.size());
+                            output.varLong(0);
+                            output.string(currencyName);
+                        } else output.varLong(id + 1);
+                        output.signedVarLong(MinorUnits.toMinor(transaction.amount(), transactions.scaleOf(currencyName)));
+                    }
+                }
+                output.varLong(0);
+                output.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            value = new Report(currenciesCount, subjectsCount, transactionsCount, Files.size(file), (System.nanoTime() - start) / 1_000_000);
+        } catch (Throwable ok) {
+            exception = ok instanceof Exception cause ? cause : new RuntimeException(ok);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // The next export truncates it anyway.
+            }
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    /**
+     * Reads a file written by {@link #export(Path)}, upserting its rows in batches of {@value #IMPORT_BATCH}.
+     * Rows already stored and missing from the file are kept. A file giving another scale to a currency
+     * that already has balances is refused before any balance is read, see {@link SimpleCurrencyRepository#setAll(Set)}.
+     * @param file file to read
+     * @return rows read and time taken
+     */
+    public @NotNull Response<Report> importFrom(@NotNull Path file) {
+        long start = System.nanoTime();
+        Report value = null;
+        Exception exception = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Input input = new Input(channel);
+            if (input.fixedInt() != MAGIC) throw new IOException("EconomyArchive@importFrom() | Not an economy archive.");
+            long version = input.varLong();
+            if (version != VERSION) throw new IOException("EconomyArchive@importFrom() | Unsupported archive version " + version + ".");
+            long currenciesCount = 0, subjectsCount = 0, transactionsCount = 0;
+            Set<Currency> currencyBatch = new HashSet<>();
+            while (input.varLong() != 0) {
+                SimpleCurrency currency = new SimpleCurrency(input.requiredString());
+                String displayName = input.string(), pluralName = input.string(), abbreviation = input.string();
+                if (displayName != null) currency.displayName(displayName);
+                if (pluralName != null) currency.displayNamePlural(pluralName);
+                if (abbreviation != null) currency.abbreviation(abbreviation);
+                long symbol = input.varLong();
+                if (symbol != 0) currency.symbol((char) (symbol - 1));
+                currency.scale((int) input.varLong());
+                currencyBatch.add(currency);
+                currenciesCount++;
+                if (currencyBatch.size() >= IMPORT_BATCH) write(currencies.setAll(currencyBatch), currencyBatch);
+            }
+            write(currencies.setAll(currencyBatch), currencyBatch);
+            Set<Subject> subjectBatch = new HashSet<>();
+            while (input.varLong() != 0) {
+                Subject subject = new SimpleSubject(input.uuid());
+                subject.nickname(input.string());
+                subjectBatch.add(subject);
+                subjectsCount++;
+                if (subjectBatch.size() >= IMPORT_BATCH) write(subjects.setAll(subjectBatch), subjectBatch);
+            }
+            write(subjects.setAll(subjectBatch), subjectBatch);
+            List<String> dictionary = new ArrayList<>();
+            Set<Transaction> transactionBatch = new HashSet<>();
+            while (input.varLong() != 0) {
+                UUID subjectId = input.uuid();
+                int id = (int) input.varLong();
+                if (id == 0) dictionary.add(input.requiredString());
+                else if (id > dictionary.size()) throw new IOException("EconomyArchive@importFrom() | Unknown currency " + id + ".");
+                String currencyName = dictionary.get(id == 0 ? dictionary.size() - 1 : id - 1);
+                double amount = MinorUnits.toMajor(input.signedVarLong(), transactions.scaleOf(currencyName));
+                transactionBatch.add(new Transaction(currencyName, subjectId, amount));
+                transactionsCount++;
+                if (transactionBatch.size() >= IMPORT_BATCH) write(transactions.setAll(transactionBatch), transactionBatch);
+            }
+            write(transactions.setAll(transactionBatch), transactionBatch);
+            transactions.flush().getOrThrow();
+            value = new Report(currenciesCount, subjectsCount, transactionsCount, channel.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Throwable ok) {
+            exception = ok instanceof Exception cause ? cause : new RuntimeException(ok);
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    private static void write(@NotNull Response<Void> response, @NotNull Set<?> batch) throws Throwable {
+        if (batch.isEmpty()) return;
+        response.getOrThrow();
+        batch.clear();
+    }
+
+    private static <T> @Nullable T valueOf(@NotNull Response<T> response) {
+        try {
+            return response.getOrThrow();
+        } catch (Throwable ok) {
+            return null;
+        }
+    }
+
+    /**
+     * @param currencies currencies exported or imported
+     * @param subjects subjects exported or imported
+     * @param transactions balances exported or imported
+     * @param bytes size of the file
+     * @param millis time taken
+     */
+    public record Report(long currencies, long subjects, long transactions, long bytes, long millis) {
+        public long rows() {
+            return currencies + subjects + transactions;
+        }
+
+        public long rowsPerSecond() {
+            return millis == 0 ? rows() * 1000 : rows() * 1000 / millis;
+        }
+    }
+
+    /**
+     * Buffered writer of the archive primitives over a channel.
+     */
+    static final class Output {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        Output(@NotNull WritableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        void varLong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void signedVarLong(long value) throws IOException {
+            varLong((value << 1) ^ (value >> 63));
+        }
+
+        void fixedInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void uuid(@NotNull UUID value) throws IOException {
+            ensure(16);
+            buffer.putLong(value.getMostSignificantBits());
+            buffer.putLong(value.getLeastSignificantBits());
+        }
+
+        void string(@Nullable String value) throws IOException {
+            if (value == null) {
+                varLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varLong(bytes.length + 1L);
+            for (int offset = 0; offset < bytes.length; ) {
+                if (!buffer.hasRemaining()) flush();
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+    }
+
+    /**
+     * Buffered reader of the archive primitives over a channel.
+     */
+    static final class Input {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        Input(@NotNull ReadableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).flip();
+        }
+
+        long varLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                require(1);
+                byte next = buffer.get();
+                value |= (long) (next & 0x7F) << shift;
+                if ((next & 0x80) == 0) return value;
+            }
+            throw new IOException("EconomyArchive@varLong() | Malformed varint.");
+        }
+
+        long signedVarLong() throws IOException {
+            long value = varLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int fixedInt() throws IOException {
+            require(4);
+            return buffer.getInt();
+        }
+
+        @NotNull
+        UUID uuid() throws IOException {
+            require(16);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+
+        @Nullable
+        String string() throws IOException {
+            long length = varLong();
+            if (length == 0) return null;
+            if (length - 1 > Integer.MAX_VALUE) throw new IOException("EconomyArchive@string() | String too long.");
+            byte[] bytes = new byte[(int) (length - 1)];
+            for (int offset = 0; offset < bytes.length; ) {
+                if (!buffer.hasRemaining()) require(1);
+                int read = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.get(bytes, offset, read);
+                offset += read;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @NotNull
+        String requiredString() throws IOException {
+            String value = string();
+            if (value == null) throw new IOException("EconomyArchive@requiredString() | Missing name.");
+            return value;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) throw new EOFException("EconomyArchive@require() | Archive ends too soon.");
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.joshy56;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations between the nodes sharing one database, so a value written by one
+ * node is evicted or refreshed by the others instead of being served stale until it expires.
+ * Implementations wrap a transport, like Redis pub/sub or a proxy messaging channel, and are expected
+ * to deliver every message to every subscriber of every node, the sender included, in any thread.
+ * <p>
+ * Another plugin can provide one through the Bukkit services manager, otherwise a
+ * {@link LoopbackInvalidationBus} is used. See {@link CacheInvalidations} for the publishing side.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public interface InvalidationBus extends AutoCloseable {
+    /**
+     * Sends a message, without waiting for it to be delivered.
+     * @param message invalidations to send
+     */
+    void publish(@NotNull Message message);
+
+    /**
+     * @param listener told every message published on the bus
+     */
+    void subscribe(@NotNull Consumer<Message> listener);
+
+    void unsubscribe(@NotNull Consumer<Message> listener);
+
+    @Override
+    void close();
+
+    /**
+     * A batch of changed keys of one cache.
+     * @param origin node that changed them, it skips its own messages
+     * @param channel cache the keys belong to, like {@code transactions}
+     * @param keys changed keys, encoded by the repository of the channel
+     * @param all {@code true} if the whole cache changed, {@code keys} is then empty
+     * @param firstChangeMillis wall clock time of the oldest change of the batch
+     * @param sentMillis wall clock time the batch was sent
+     */
+    record Message(@NotNull UUID origin, @NotNull String channel, @NotNull Set<String> keys, boolean all, long firstChangeMillis, long sentMillis) {
+    }
+}
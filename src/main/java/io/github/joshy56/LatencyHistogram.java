@@ -0,0 +1,74 @@
+package io.github.joshy56;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Lock-free latency histogram with log-linear buckets: eight buckets per power of two, so any
+ * recorded value is reported within 12.5% of its real value from 1ns up to {@code Long.MAX_VALUE}.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3, SUB_BUCKETS = 1 << SUB_BUCKET_BITS,
+            BUCKETS = ((63 - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + SUB_BUCKETS;
+    private final AtomicLongArray counts;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * @param nanos elapsed time, negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        max.accumulate(value);
+    }
+
+    public long count() {
+        long total = 0;
+        for (int index = 0; index < BUCKETS; index++) total += counts.get(index);
+        return total;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return upper bound of the bucket holding the quantile, in nanoseconds, 0 if nothing was recorded
+     */
+    public long percentile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int index = 0; index < BUCKETS; index++) total += snapshot[index] = counts.get(index);
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(quantile * total)), seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += snapshot[index];
+            if (seen >= target) return Math.min(upperBound(index), max());
+        }
+        return max();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1, sub = bucket & (SUB_BUCKETS - 1);
+        long base = (long) (SUB_BUCKETS | sub) << (exponent - SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        // The last bucket would overflow, it ends at Long.MAX_VALUE.
+        return base > Long.MAX_VALUE - width ? Long.MAX_VALUE : base + width - 1;
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.joshy56;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link InvalidationBus} within one process. Messages are delivered in order on a thread of its own,
+ * like a network transport would, so several sets of repositories sharing one instance behave as
+ * separate nodes; useful to try out invalidation locally and as the default of a single server.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class LoopbackInvalidationBus implements InvalidationBus {
+    private final List<Consumer<Message>> listeners;
+    private final ExecutorService worker;
+
+    public LoopbackInvalidationBus() {
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "economic-invalidation-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void publish(@NotNull Message message) {
+        if (worker.isShutdown()) return;
+        worker.execute(() -> {
+            for (Consumer<Message> listener : listeners) {
+                try {
+                    listener.accept(message);
+                } catch (RuntimeException ignored) {
+                    // A failing listener mustn't keep the message from the rest.
+                }
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(@NotNull Consumer<Message> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unsubscribe(@NotNull Consumer<Message> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Delivers the messages already published and stops.
+     */
+    @Override
+    public void close() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ok) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.joshy56;
+
+import com.google.common.cache.CacheStats;
+import io.github.joshy56.listener.CacheWarmupListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Named repositories whose cache and database numbers are reported together, e.g. by {@code /eco stats}.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class MetricsRegistry {
+    private final Map<String, AbstractCachedRepository<?, ?>> repositories;
+    private final StatementPool statements;
+    @Nullable
+    private volatile CacheInvalidations invalidations;
+    @Nullable
+    private volatile CacheWarmupListener warmup;
+
+    /**
+     * @param statements pool shared by the registered repositories
+     */
+    public MetricsRegistry(@NotNull StatementPool statements) {
+        this.repositories = Collections.synchronizedMap(new LinkedHashMap<>());
+        this.statements = statements;
+    }
+
+    public void register(@NotNull String name, @NotNull AbstractCachedRepository<?, ?> repository) {
+        repositories.put(name, repository);
+    }
+
+    /**
+     * @param invalidations cross-node invalidations reported along the repositories
+     */
+    public void invalidations(@NotNull CacheInvalidations invalidations) {
+        this.invalidations = invalidations;
+    }
+
+    /**
+     * @param warmup preloads of joining players reported along the repositories
+     */
+    public void warmup(@NotNull CacheWarmupListener warmup) {
+        this.warmup = warmup;
+    }
+
+    /**
+     * Logs queries of every registered repository slower than {@code threshold}.
+     */
+    public void slowQueryLog(long threshold, @NotNull TimeUnit unit, @NotNull Logger logger) {
+        synchronized (repositories) {
+            repositories.values().forEach(repository -> repository.metrics().slowQueryLog(threshold, unit, logger));
+        }
+    }
+
+    /**
+     * @return one line per repository plus one for the connection pool and one each for the invalidations
+     * and the warmup, if any, ready to be sent or logged
+     */
+    @NotNull
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        synchronized (repositories) {
+            repositories.forEach((name, repository) -> {
+                CacheStats cache = repository.cacheStats();
+                RepositoryMetrics metrics = repository.metrics();
+                LatencyHistogram latency = metrics.latency();
+                lines.add(String.format("%s | cache hits %d, misses %d (%.1f%% hit), loads %d, evictions %d | queries %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms | commits %d, rollbacks %d, slow %d",
+                        name, cache.hitCount(), cache.missCount(), cache.hitRate() * 100, cache.loadCount(), cache.evictionCount(),
+                        latency.count(), millis(latency.percentile(0.5)), millis(latency.percentile(0.99)), millis(latency.max()),
+                        metrics.commits(), metrics.rollbacks(), metrics.slowQueries()));
+            });
+        }
+        lines.add(String.format("pool | borrows %d, average wait %.2f ms, statement reuse %.1f%%", statements.borrows(), statements.averageWaitMillis(), statements.reuseRatio() * 100));
+        CacheInvalidations invalidations = this.invalidations;
+        if (invalidations != null) {
+            CacheInvalidations.Stats stats = invalidations.stats();
+            lines.add(String.format("invalidations | sent %d (%.1f keys each), received %d with %d keys | stale window average %.1f ms, max %d ms | %d failed",
+                    stats.messagesSent(), stats.keysPerMessage(), stats.messagesReceived(), stats.keysReceived(), stats.averageStaleMillis(), stats.maxStaleMillis(), stats.failures()));
+        }
+        CacheWarmupListener warmup = this.warmup;
+        if (warmup != null)
+            lines.add(String.format("warmup | preloads %d, average %.2f ms, max %.2f ms | online hit rate %.1f%%",
+                    warmup.preloads(), warmup.averagePreloadMillis(), warmup.maxPreloadMillis(), warmup.onlineHitRate() * 100));
+        return lines;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.joshy56;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Database timings of one repository: latency of every query or session, commits, rollbacks
+ * and a log of the ones slower than a threshold. Cache numbers come from the cache itself,
+ * see {@link AbstractCachedRepository#cacheStats()}.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class RepositoryMetrics {
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private final LatencyHistogram latency;
+    private final LongAdder commits, rollbacks, slowQueries;
+    private volatile long slowThresholdNanos;
+    @Nullable
+    private volatile Logger slowLog;
+
+    RepositoryMetrics() {
+        this.latency = new LatencyHistogram();
+        this.commits = new LongAdder();
+        this.rollbacks = new LongAdder();
+        this.slowQueries = new LongAdder();
+        this.slowThresholdNanos = Long.MAX_VALUE;
+    }
+
+    /**
+     * Logs every query slower than {@code threshold} as a warning on {@code logger}.
+     * @param threshold slowest time considered normal
+     * @param unit unit of {@code threshold}
+     * @param logger where slow queries are reported
+     */
+    public void slowQueryLog(long threshold, @NotNull TimeUnit unit, @NotNull Logger logger) {
+        this.slowLog = logger;
+        this.slowThresholdNanos = unit.toNanos(threshold);
+    }
+
+    void committed(long startNanos, @NotNull String sql) {
+        commits.increment();
+        finished(startNanos, sql);
+    }
+
+    void rolledBack(long startNanos, @NotNull String sql) {
+        rollbacks.increment();
+        finished(startNanos, sql);
+    }
+
+    private void finished(long startNanos, @NotNull String sql) {
+        long elapsed = System.nanoTime() - startNanos;
+        latency.record(elapsed);
+        if (elapsed < slowThresholdNanos) return;
+        slowQueries.increment();
+        Logger logger = slowLog;
+        if (logger == null) return;
+        // Only slow queries pay for walking the stack.
+        String caller = STACK_WALKER.walk(frames -> frames
+                .filter(frame -> !frame.getClassName().equals(RepositoryMetrics.class.getName()) && !frame.getClassName().equals(AbstractCachedRepository.class.getName()))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1) + "#" + frame.getMethodName())
+                .orElse("unknown"));
+        logger.log(Level.WARNING, String.format("Slow query, %.2f ms in %s: %s", elapsed / 1_000_000d, caller, sql));
+    }
+
+    @NotNull
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    public long commits() {
+        return commits.sum();
+    }
+
+    public long rollbacks() {
+        return rollbacks.sum();
+    }
+
+    public long slowQueries() {
+        return slowQueries.sum();
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.joshy56;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Connection settings of the SQLite database. {@link #DEFAULT} leaves the driver settings as they are.
+ * A WAL profile switches the file to write-ahead journaling: readers see the last commit without
+ * blocking the writer nor each other, and a commit only appends to the log, so {@code synchronous=NORMAL}
+ * keeps the file consistent while skipping most syncs, a power loss may only undo the last commits.
+ * <p>
+ * SQLite runs one writer at a time whatever the pool size, so in WAL mode writes share a single
+ * connection and queue for it, while reads go to {@code readConnections} read-only ones.
+ * @param wal {@code true} to journal in WAL mode and split reads from writes
+ * @param synchronous one of {@code OFF}, {@code NORMAL}, {@code FULL} or {@code EXTRA}
+ * @param mmapSize bytes of the file read through memory mapping, {@code 0} disables it
+ * @param cacheSizeKb KiB of page cache per connection, {@code 0} keeps the driver default
+ * @param readConnections read-only connections of the WAL profile
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public record SqliteProfile(boolean wal, @NotNull String synchronous, long mmapSize, int cacheSizeKb, int readConnections) {
+    // Before DEFAULT, which its constructor checks against.
+    private static final Set<String> SYNCHRONOUS = Set.of("OFF", "NORMAL", "FULL", "EXTRA");
+    public static final SqliteProfile DEFAULT = new SqliteProfile(false, "FULL", 0, 0, 0);
+    /**
+     * Milliseconds a connection waits for a lock before failing with {@code SQLITE_BUSY}, checkpoints
+     * still lock the file for a moment in WAL mode.
+     */
+    private static final int BUSY_TIMEOUT = 5000;
+
+    public SqliteProfile {
+        synchronous = synchronous.toUpperCase(Locale.ROOT);
+        if (!SYNCHRONOUS.contains(synchronous)) throw new IllegalArgumentException("SqliteProfile@constructor() | Unknown synchronous mode " + synchronous + ".");
+        if (mmapSize < 0 || cacheSizeKb < 0) throw new IllegalArgumentException("SqliteProfile@constructor() | Sizes can't be negative.");
+        if (wal && readConnections <= 0) throw new IllegalArgumentException("SqliteProfile@constructor() | The WAL profile needs read connections.");
+    }
+
+    /**
+     * @return pragmas run once on the writer connection
+     */
+    public @NotNull List<String> writerSetup() {
+        if (!wal) return List.of();
+        List<String> setup = new ArrayList<>();
+        // Persistent, stored in the file, but harmless to repeat.
+        setup.add("PRAGMA journal_mode = WAL;");
+        setup.add("PRAGMA synchronous = " + synchronous + ";");
+        setup.addAll(common());
+        return setup;
+    }
+
+    /**
+     * @return pragmas run once on every read connection, which refuse to write
+     */
+    public @NotNull List<String> readerSetup() {
+        if (!wal) return List.of();
+        List<String> setup = new ArrayList<>(common());
+        setup.add("PRAGMA query_only = ON;");
+        return setup;
+    }
+
+    private @NotNull List<String> common() {
+        List<String> setup = new ArrayList<>();
+        setup.add("PRAGMA busy_timeout = " + BUSY_TIMEOUT + ";");
+        if (mmapSize > 0) setup.add("PRAGMA mmap_size = " + mmapSize + ";");
+        // Negative sizes are in KiB instead of pages.
+        if (cacheSizeKb > 0) setup.add("PRAGMA cache_size = -" + cacheSizeKb + ";");
+        return setup;
+    }
+}
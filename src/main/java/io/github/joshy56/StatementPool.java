@@ -0,0 +1,185 @@
+package io.github.joshy56;
+
+import co.aikar.idb.Database;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Borrows connections from the {@link Database} pool and keeps, per physical connection, the
+ * prepared statements of the fixed SQL strings repositories run, so hot writes skip the
+ * parse and prepare step. Also tracks how long borrowing waits and how often statements are reused.
+ * <p>
+ * Optionally backed by a second pool of read-only connections, see {@link #borrowRead()}, and by setup
+ * statements, like pragmas, run once on every physical connection the first time it's borrowed.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class StatementPool {
+    public static final int DEFAULT_STATEMENTS_PER_CONNECTION = 32;
+    private final Database database;
+    @Nullable
+    private final Database readers;
+    private final List<String> setup, readerSetup;
+    private final Set<Connection> ready;
+    private final LoadingCache<Connection, Map<String, PreparedStatement>> statements;
+    private final LongAdder borrows, waitNanos, hits, misses;
+
+    public StatementPool(@NotNull Database database) {
+        this(database, DEFAULT_STATEMENTS_PER_CONNECTION);
+    }
+
+    /**
+     * @param database pooled database to borrow connections from
+     * @param statementsPerConnection max statements kept open per connection, least recently used ones are closed first
+     */
+    public StatementPool(@NotNull Database database, int statementsPerConnection) {
+        this(database, null, statementsPerConnection, List.of(), List.of());
+    }
+
+    /**
+     * @param database pooled database every write, and every read without a read pool, borrows from
+     * @param readers pooled database of the same file read-only work borrows from, {@code null} to read from {@code database}
+     * @param statementsPerConnection max statements kept open per connection, least recently used ones are closed first
+     * @param setup statements run once on every connection of {@code database}
+     * @param readerSetup statements run once on every connection of {@code readers}
+     */
+    public StatementPool(@NotNull Database database, @Nullable Database readers, int statementsPerConnection, @NotNull List<String> setup, @NotNull List<String> readerSetup) {
+        if (statementsPerConnection <= 0) throw new IllegalArgumentException("StatementPool@constructor() | Statements per connection must be positive.");
+        this.database = database;
+        this.readers = readers;
+        this.setup = List.copyOf(setup);
+        this.readerSetup = List.copyOf(readerSetup);
+        this.ready = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+        this.borrows = new LongAdder();
+        this.waitNanos = new LongAdder();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        // Weak keys compare by identity and let statements go with connections the pool retires.
+        this.statements = CacheBuilder.newBuilder().weakKeys().build(new CacheLoader<>() {
+            @Override
+            public @NotNull Map<String, PreparedStatement> load(@NotNull Connection connection) {
+                return new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                        if (size() <= statementsPerConnection) return false;
+                        try {
+                            eldest.getValue().close();
+                        } catch (SQLException ignored) {
+                            // Already unusable, dropping it is all that's left.
+                        }
+                        return true;
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * @return a connection from the pool, the caller must close it to give it back
+     * @throws SQLException if no connection can be obtained
+     */
+    public @NotNull Connection borrow() throws SQLException {
+        return borrow(database, setup);
+    }
+
+    /**
+     * Same as {@link #borrow()} but from the read pool, if there's one. Reads done here don't queue behind
+     * writes, though they may not see a write still in progress on another connection.
+     * @return a connection the caller must only read through and close to give it back
+     * @throws SQLException if no connection can be obtained
+     */
+    public @NotNull Connection borrowRead() throws SQLException {
+        return readers == null ? borrow(database, setup) : borrow(readers, readerSetup);
+    }
+
+    /**
+     * @return {@code true} if reads have a pool of their own
+     */
+    public boolean splitReads() {
+        return readers != null;
+    }
+
+    private @NotNull Connection borrow(@NotNull Database source, @NotNull List<String> setup) throws SQLException {
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = source.getConnection();
+        } finally {
+            waitNanos.add(System.nanoTime() - start);
+            borrows.increment();
+        }
+        if (setup.isEmpty()) return connection;
+        try {
+            Connection physical = connection.isWrapperFor(Connection.class) ? connection.unwrap(Connection.class) : connection;
+            if (!ready.contains(physical)) {
+                try (Statement statement = physical.createStatement()) {
+                    for (String sql : setup) statement.execute(sql);
+                }
+                ready.add(physical);
+            }
+            return connection;
+        } catch (SQLException | RuntimeException ok) {
+            connection.close();
+            throw ok;
+        }
+    }
+
+    /**
+     * Returns the cached statement of {@code sql} for the physical connection behind {@code connection},
+     * preparing it the first time. The statement must not be closed by the caller and its parameters are cleared.
+     * @param connection borrowed connection, used by one thread at a time
+     * @param sql fixed SQL string
+     * @return ready to bind statement
+     * @throws SQLException if the statement can't be prepared
+     */
+    public @NotNull PreparedStatement prepare(@NotNull Connection connection, @Language("SQL") @NotNull String sql) throws SQLException {
+        Connection physical = connection.isWrapperFor(Connection.class) ? connection.unwrap(Connection.class) : connection;
+        Map<String, PreparedStatement> cached = statements.getUnchecked(physical);
+        PreparedStatement statement = cached.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            hits.increment();
+            statement.clearParameters();
+            return statement;
+        }
+        misses.increment();
+        statement = physical.prepareStatement(sql);
+        cached.put(sql, statement);
+        return statement;
+    }
+
+    public long borrows() {
+        return borrows.sum();
+    }
+
+    /**
+     * @return mean time spent waiting for a pooled connection, in milliseconds
+     */
+    public double averageWaitMillis() {
+        long borrowed = borrows.sum();
+        return borrowed == 0 ? 0 : waitNanos.sum() / 1_000_000d / borrowed;
+    }
+
+    /**
+     * @return share of {@link #prepare(Connection, String)} calls served by an already prepared statement
+     */
+    public double reuseRatio() {
+        long hit = hits.sum(), total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+}
@@ -1,9 +1,14 @@
 package io.github.joshy56.command;
 
 import com.google.common.base.Charsets;
+import io.github.joshy56.ClientEconomic;
+import io.github.joshy56.EconomyArchive;
 import io.github.joshy56.Economic;
 import io.github.joshy56.currency.Currency;
-import io.github.joshy56.transaction.TransactionHandler;
+import io.github.joshy56.currency.MinorUnits;
+import io.github.joshy56.transaction.AsyncTransactionHandler;
+import io.github.joshy56.transaction.Leaderboard;
+import io.github.joshy56.transaction.SimpleTransactionRepository;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.Sound;
@@ -16,9 +21,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
 
 /**
  * @author joshy56
@@ -27,10 +36,22 @@ import java.util.UUID;
 public class EcoCommand implements TabExecutor {
     private final JavaPlugin plugin;
     private final Economic economic;
+    private final Executor databaseExecutor, mainThread;
 
     public EcoCommand(JavaPlugin plugin, Economic economic) {
+        this(plugin, economic, Runnable::run);
+    }
+
+    /**
+     * @param plugin owner plugin
+     * @param economic economic api
+     * @param databaseExecutor executor where the database work of every subcommand runs
+     */
+    public EcoCommand(JavaPlugin plugin, Economic economic, Executor databaseExecutor) {
         this.plugin = plugin;
         this.economic = economic;
+        this.databaseExecutor = databaseExecutor;
+        this.mainThread = runnable -> Bukkit.getScheduler().runTask(plugin, runnable);
     }
 
     /**
@@ -72,30 +93,133 @@ public class EcoCommand implements TabExecutor {
                     sender.sendMessage("Player '" + args[1] + "' not has been played before.");
                     return true;
                 }
+                if (other.getUniqueId().equals(player.getUniqueId())) {
+                    player.sendMessage("You can't send money to yourself.");
+                    return true;
+                }
                 try {
                     double amount = Double.parseDouble(args[3]);
                     if(amount <= 0) {
                         player.sendMessage("Amount to send expect to be greater than zero.");
                         return true;
                     }
-                    TransactionHandler handler = economic.transactionHandler().getOrThrow();
-                    if(!handler.enoughMoney(player.getUniqueId(), args[2], amount).getOrThrow()) {
-                        player.sendMessage("You don't has that amount of money.");
+                    AsyncTransactionHandler handler = new AsyncTransactionHandler(economic.transactionHandler().getOrThrow(), databaseExecutor);
+                    handler.transfer(player.getUniqueId(), other.getUniqueId(), args[2], amount).thenAcceptAsync(response -> {
+                        boolean sent;
+                        try {
+                            sent = response.getOrThrow();
+                        } catch (Throwable ok) {
+                            plugin.getLogger().log(Level.WARNING, "Can't send money from " + player.getName() + " to " + other.getName(), ok);
+                            player.sendMessage("Something got wrong, can't send money.");
+                            return;
+                        }
+                        if(!sent) {
+                            player.sendMessage("You don't has that amount of money.");
+                            return;
+                        }
+                        if(other.isOnline()) {
+                            other.getPlayer().sendMessage("Hey! the player " + player.getName() + " sends to you $" + amount);
+                        }
+                    }, mainThread);
+                    return true;
+                } catch (NumberFormatException ok) {
+                    player.sendMessage("Amount to send is not a number.");
+                    return true;
+                } catch (Throwable ok) {
+                    throw new RuntimeException(ok);
+                }
+            }
+            case "top" -> {
+                if(!sender.hasPermission("economic.top")) {
+                    sender.sendMessage("Can't show top balances, u don't has permission.");
+                    return true;
+                }
+                if(args.length < 2) {
+                    sender.sendMessage("Wrong use of command, correct format: /eco top <currencyName> [amount]");
+                    return true;
+                }
+                try {
+                    int limit = args.length < 3 ? 10 : Integer.parseInt(args[2]);
+                    if(!(economic.transactions().getOrThrow() instanceof SimpleTransactionRepository repository)) {
+                        sender.sendMessage("Top balances aren't available with this storage.");
                         return true;
                     }
-                    handler.withdraw(player.getUniqueId(), args[2], amount);
-                    handler.deposit(other.getUniqueId(), args[2], amount);
-                    if(other.isOnline()) {
-                        other.getPlayer().sendMessage("Hey! the player " + player.getName() + " sends to you $" + amount);
+                    // The first top of a currency reads all of its balances.
+                    Leaderboard leaderboard = repository.leaderboard();
+                    String currencyName = args[1];
+                    UUID viewer = sender instanceof Player player ? player.getUniqueId() : null;
+                    record Ranking(List<Leaderboard.Entry> top, int scale, int rank, int size) {
                     }
+                    CompletableFuture.supplyAsync(() -> {
+                        List<Leaderboard.Entry> top = leaderboard.top(currencyName, Math.min(limit, 100));
+                        int rank = viewer == null ? 0 : leaderboard.rank(viewer, currencyName);
+                        return new Ranking(top, repository.scaleOf(currencyName), rank, leaderboard.size(currencyName));
+                    }, databaseExecutor).whenCompleteAsync((ranking, failure) -> {
+                        if(failure != null) {
+                            plugin.getLogger().log(Level.WARNING, "Can't rank the balances of " + currencyName, failure);
+                            sender.sendMessage("Something got wrong, can't show top balances.");
+                            return;
+                        }
+                        // Player names are resolved here, Bukkit isn't safe to use off the main thread.
+                        sender.sendMessage("Top balances of " + currencyName + ":");
+                        int position = 0;
+                        for (Leaderboard.Entry entry : ranking.top()) {
+                            String name = Bukkit.getOfflinePlayer(entry.subjectId()).getName();
+                            sender.sendMessage(++position + ". " + (name == null ? entry.subjectId() : name) + " $" + MinorUnits.toMajor(entry.balance(), ranking.scale()));
+                        }
+                        if(ranking.rank() > 0) sender.sendMessage("Your position: " + ranking.rank() + " of " + ranking.size());
+                    }, mainThread);
                     return true;
                 } catch (NumberFormatException ok) {
-                    player.sendMessage("Amount to send is not a number.");
+                    sender.sendMessage("Amount of players is not a number.");
                     return true;
                 } catch (Throwable ok) {
                     throw new RuntimeException(ok);
                 }
             }
+            case "stats" -> {
+                if(!sender.hasPermission("economic.stats")) {
+                    sender.sendMessage("Can't show stats, u don't has permission.");
+                    return true;
+                }
+                if(!(plugin instanceof ClientEconomic clientEconomic) || clientEconomic.metrics() == null) {
+                    sender.sendMessage("Stats aren't available.");
+                    return true;
+                }
+                clientEconomic.metrics().report().forEach(sender::sendMessage);
+                return true;
+            }
+            case "export", "import" -> {
+                if(!sender.hasPermission("economic.archive")) {
+                    sender.sendMessage("Can't " + subCommandLabel + " the economy, u don't has permission.");
+                    return true;
+                }
+                if(args.length < 2 || !args[1].matches("[A-Za-z0-9_-]{1,64}")) {
+                    sender.sendMessage("Wrong use of command, correct format: /eco " + subCommandLabel + " <fileName>, letters, digits, '-' and '_' only.");
+                    return true;
+                }
+                if(!(plugin instanceof ClientEconomic clientEconomic) || clientEconomic.archive() == null) {
+                    sender.sendMessage("Export and import aren't available.");
+                    return true;
+                }
+                EconomyArchive archive = clientEconomic.archive();
+                Path file = plugin.getDataFolder().toPath().resolve("exports").resolve(args[1] + ".eco");
+                boolean export = subCommandLabel.equals("export");
+                sender.sendMessage((export ? "Exporting to " : "Importing from ") + file.getFileName() + "...");
+                CompletableFuture.supplyAsync(() -> export ? archive.export(file) : archive.importFrom(file), databaseExecutor).thenAcceptAsync(response -> {
+                    EconomyArchive.Report report;
+                    try {
+                        report = response.getOrThrow();
+                    } catch (Throwable ok) {
+                        plugin.getLogger().log(Level.WARNING, "Can't " + subCommandLabel + " the economy with " + file, ok);
+                        sender.sendMessage("Something got wrong, can't " + subCommandLabel + " the economy.");
+                        return;
+                    }
+                    sender.sendMessage(String.format("%s %d currencies, %d subjects and %d balances (%d KiB) in %d ms, %d rows/s.",
+                            export ? "Exported" : "Imported", report.currencies(), report.subjects(), report.transactions(), report.bytes() / 1024, report.millis(), report.rowsPerSecond()));
+                }, mainThread);
+                return true;
+            }
             default -> sender.sendMessage("Unknown command try with help.");
         }
         return false;
@@ -0,0 +1,80 @@
+package io.github.joshy56.currency;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Gives every currency a small integer id, shared by the {@link CurrencyRegistry} and the balances
+ * keyed by it. A name only gets an id once it's known to be a currency, so names typed by players
+ * can't grow the table. Ids live as long as the repository that owns them and are never reused, not
+ * even for deleted currencies; lookups don't lock.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class CurrencyIds {
+    private final Predicate<String> exists;
+    private final ConcurrentMap<String, Integer> ids;
+    private volatile String[] names;
+
+    /**
+     * @param exists tells if a name without id yet is a currency, may read the database
+     */
+    public CurrencyIds(@NotNull Predicate<String> exists) {
+        this.exists = exists;
+        this.ids = new ConcurrentHashMap<>();
+        this.names = new String[0];
+    }
+
+    /**
+     * @param currencyName name of the currency
+     * @return id of the currency, given now if it has none yet, {@code -1} if it isn't a currency
+     */
+    public int idOf(@NotNull String currencyName) {
+        int id = find(currencyName);
+        if (id >= 0 || !exists.test(currencyName)) return id;
+        return assign(currencyName);
+    }
+
+    /**
+     * Same as {@link #idOf(String)} without giving an id, for names that already got one.
+     * @return id of the currency, {@code -1} if it has none yet
+     */
+    public int find(@NotNull String currencyName) {
+        Integer id = ids.get(currencyName);
+        return id == null ? -1 : id;
+    }
+
+    @NotNull
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return ids given so far, they go from {@code 0} to this minus one
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Gives an id to a name already known to be a currency.
+     */
+    int assign(@NotNull String currencyName) {
+        Integer id = ids.get(currencyName);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(currencyName);
+            if (id != null) return id;
+            String[] grown = Arrays.copyOf(names, names.length + 1);
+            grown[names.length] = currencyName;
+            // The name must be readable before anyone can get its id.
+            names = grown;
+            ids.put(currencyName, grown.length - 1);
+            return grown.length - 1;
+        }
+    }
+}
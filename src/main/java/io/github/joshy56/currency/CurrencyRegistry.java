@@ -0,0 +1,154 @@
+package io.github.joshy56.currency;
+
+import com.google.common.collect.ImmutableMap;
+import io.github.joshy56.response.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of every currency, each one with its id of {@link CurrencyIds}, the same balances
+ * are keyed by. Changes build a new snapshot, so readers never lock and never see a half applied change.
+ * Readers get copies of the currencies, changing them doesn't touch the snapshot.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class CurrencyRegistry {
+    private final CurrencyIds currencyIds;
+    private final SimpleCurrency[] currencies;
+    private final int[] scales;
+    private final Map<String, Integer> ids;
+
+    private CurrencyRegistry(@NotNull CurrencyIds currencyIds, @Nullable SimpleCurrency @NotNull [] currencies, int @NotNull [] scales, @NotNull Map<String, Integer> ids) {
+        this.currencyIds = currencyIds;
+        this.currencies = currencies;
+        this.scales = scales;
+        this.ids = ids;
+    }
+
+    /**
+     * @param currencyIds ids given to the currencies added later
+     * @return snapshot without currencies
+     */
+    @NotNull
+    static CurrencyRegistry empty(@NotNull CurrencyIds currencyIds) {
+        return new CurrencyRegistry(currencyIds, new SimpleCurrency[0], new int[0], ImmutableMap.of());
+    }
+
+    /**
+     * @param currencyName name of the currency
+     * @return id of the currency, {@code -1} if it doesn't exist
+     */
+    public int idOf(@NotNull String currencyName) {
+        Integer id = ids.get(currencyName);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id id of the currency
+     * @return copy of the currency, {@code null} if the id is unknown or was deleted
+     */
+    @Nullable
+    public Currency byId(int id) {
+        SimpleCurrency currency = id < 0 || id >= currencies.length ? null : currencies[id];
+        return currency == null ? null : currency.copy();
+    }
+
+    @NotNull
+    public Optional<Currency> get(@NotNull String currencyName) {
+        return Optional.ofNullable(byId(idOf(currencyName)));
+    }
+
+    /**
+     * @return decimals of the currency, {@link MinorUnits#DEFAULT_SCALE} if it doesn't exist
+     */
+    public int scaleOf(@NotNull String currencyName) {
+        return scaleOf(idOf(currencyName));
+    }
+
+    public int scaleOf(int id) {
+        return id < 0 || id >= scales.length || currencies[id] == null ? MinorUnits.DEFAULT_SCALE : scales[id];
+    }
+
+    /**
+     * @return copies of every currency, ordered by id
+     */
+    @NotNull
+    public List<Currency> all() {
+        List<Currency> all = new ArrayList<>(ids.size());
+        for (SimpleCurrency currency : currencies) if (currency != null) all.add(currency.copy());
+        return Collections.unmodifiableList(all);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @param changed currencies to add or replace, copied so later changes to them don't leak in
+     * @return new snapshot, every currency keeps its id
+     */
+    @NotNull
+    CurrencyRegistry with(@NotNull Collection<? extends Currency> changed) {
+        Map<String, Integer> ids = new HashMap<>(this.ids);
+        int length = this.currencies.length;
+        for (Currency currency : changed) {
+            int id = currencyIds.assign(currency.name());
+            ids.put(currency.name(), id);
+            length = Math.max(length, id + 1);
+        }
+        SimpleCurrency[] currencies = Arrays.copyOf(this.currencies, length);
+        int[] scales = Arrays.copyOf(this.scales, length);
+        for (Currency currency : changed) {
+            int id = ids.get(currency.name());
+            SimpleCurrency copy = copyOf(currency);
+            currencies[id] = copy;
+            scales[id] = copy.scale();
+        }
+        return new CurrencyRegistry(currencyIds, currencies, scales, ImmutableMap.copyOf(ids));
+    }
+
+    /**
+     * @param currenciesNames currencies to drop
+     * @return new snapshot, the ids of the dropped currencies are left empty
+     */
+    @NotNull
+    CurrencyRegistry without(@NotNull Set<String> currenciesNames) {
+        Map<String, Integer> ids = new HashMap<>(this.ids);
+        SimpleCurrency[] currencies = this.currencies.clone();
+        for (String currencyName : currenciesNames) {
+            Integer id = ids.remove(currencyName);
+            if (id != null) currencies[id] = null;
+        }
+        return new CurrencyRegistry(currencyIds, currencies, scales, ImmutableMap.copyOf(ids));
+    }
+
+    private static @NotNull SimpleCurrency copyOf(@NotNull Currency currency) {
+        if (currency instanceof SimpleCurrency simpleCurrency) return simpleCurrency.copy();
+        SimpleCurrency copy = new SimpleCurrency(currency.name());
+        String displayName = valueOf(currency.displayName()), pluralName = valueOf(currency.displayNamePlural()), abbreviation = valueOf(currency.abbreviation());
+        if (displayName != null) copy.displayName(displayName);
+        if (pluralName != null) copy.displayNamePlural(pluralName);
+        if (abbreviation != null) copy.abbreviation(abbreviation);
+        Character symbol = valueOf(currency.symbol());
+        if (symbol != null) copy.symbol(symbol);
+        return copy;
+    }
+
+    private static <T> @Nullable T valueOf(@NotNull Response<T> response) {
+        try {
+            return response.getOrThrow();
+        } catch (Throwable ok) {
+            return null;
+        }
+    }
+}
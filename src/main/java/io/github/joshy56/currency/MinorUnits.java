@@ -0,0 +1,43 @@
+package io.github.joshy56.currency;
+
+/**
+ * Converts between the decimal amounts of the public API and the {@code long} minor units
+ * balances are stored and computed with, e.g. $12.34 with scale 2 is 1234.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class MinorUnits {
+    public static final int DEFAULT_SCALE = 2, MAX_SCALE = 9;
+    private static final long[] FACTORS = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+    private MinorUnits() {
+    }
+
+    /**
+     * @param amount decimal amount
+     * @param scale decimals of the currency
+     * @return {@code amount} rounded to the nearest minor unit
+     * @throws ArithmeticException if the result doesn't fit in a {@code long}
+     */
+    public static long toMinor(double amount, int scale) {
+        double minor = Math.rint(amount * FACTORS[checkScale(scale)]);
+        if (minor >= 0x1p63 || minor < -0x1p63)
+            throw new ArithmeticException("MinorUnits@toMinor() | Amount out of range: " + amount);
+        return (long) minor;
+    }
+
+    /**
+     * @param minor amount in minor units
+     * @param scale decimals of the currency
+     * @return decimal amount
+     */
+    public static double toMajor(long minor, int scale) {
+        return (double) minor / FACTORS[checkScale(scale)];
+    }
+
+    public static int checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE)
+            throw new IllegalArgumentException("MinorUnits@checkScale() | Scale must be between 0 and " + MAX_SCALE + ", got " + scale);
+        return scale;
+    }
+}
@@ -15,6 +15,7 @@ public class SimpleCurrency implements Currency {
     private final String name;
     private String displayName, pluralName, abbreviation;
     private char symbol;
+    private int scale = MinorUnits.DEFAULT_SCALE;
 
     public SimpleCurrency(@NotNull String name) {
         if(name.isBlank()) throw new IllegalArgumentException("SimpleCurrency@constructor() | Name can't be empty.");
@@ -104,4 +105,36 @@ public class SimpleCurrency implements Currency {
         this.symbol = symbol;
         return response;
     }
+
+    /**
+     * Plain getter, it's read on every balance conversion so it doesn't box.
+     * @return decimals used by balances of this currency
+     */
+    public int scale() {
+        return scale;
+    }
+
+    /**
+     * @param scale decimals used by balances of this currency, between 0 and {@link MinorUnits#MAX_SCALE}
+     * @return previous scale
+     */
+    public Response<Integer> scale(int scale) {
+        Response<Integer> response = new Response<>(OK, Optional.empty(), Optional.of(this.scale));
+        this.scale = MinorUnits.checkScale(scale);
+        return response;
+    }
+
+    /**
+     * @return currency with the same name and settings, changing one leaves the other as it is
+     */
+    @NotNull
+    SimpleCurrency copy() {
+        SimpleCurrency copy = new SimpleCurrency(name);
+        copy.displayName = displayName;
+        copy.pluralName = pluralName;
+        copy.abbreviation = abbreviation;
+        copy.symbol = symbol;
+        copy.scale = scale;
+        return copy;
+    }
 }
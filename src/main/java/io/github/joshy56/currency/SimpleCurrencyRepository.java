@@ -6,48 +6,95 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import io.github.joshy56.AbstractCachedRepository;
+import io.github.joshy56.CacheInvalidations;
+import io.github.joshy56.StatementPool;
 import io.github.joshy56.response.Response;
 import io.github.joshy56.response.ResponseCode;
 import org.intellij.lang.annotations.Language;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author joshy56
  * @since 10/3/2024
  */
 public class SimpleCurrencyRepository extends AbstractCachedRepository<String, Currency> implements CurrencyRepository {
+    /**
+     * Tables of the transaction repositories holding balances of a currency, they may not exist yet.
+     */
+    @Language("SQL")
+    private static final String SQL_SELECT_BALANCE_TABLES = "SELECT name FROM sqlite_master WHERE type='table' AND name IN ('transactions', 'journal');";
     @Language("SQL")
     private final String sqlQueryGet, sqlQuerySet, sqlQueryDelete;
+    private final Object publishLock;
+    private final CurrencyIds ids;
+    @Nullable
+    private volatile CurrencyRegistry registry;
+    private volatile Predicate<String> pendingBalances;
+
     public SimpleCurrencyRepository(@NotNull Database database) {
-        super(database, CacheBuilder.newBuilder().expireAfterAccess(3, TimeUnit.MINUTES).expireAfterWrite(1, TimeUnit.MINUTES).build(
+        this(database, new StatementPool(database));
+    }
+
+    /**
+     * @param database backing database
+     * @param statements pool shared by the repositories of {@code database}
+     */
+    public SimpleCurrencyRepository(@NotNull Database database, @NotNull StatementPool statements) {
+        super(database, CacheBuilder.newBuilder().expireAfterAccess(3, TimeUnit.MINUTES).expireAfterWrite(1, TimeUnit.MINUTES).recordStats().build(
                 new CacheLoader<>() {
                     @Override
                     public @NotNull Currency load(@NotNull String currencyName) throws Exception {
-                        DbRow dbRow = database.getFirstRow("SELECT name, displayName, pluralName, abbreviation, symbol FROM currencies WHERE name=?;", currencyName);
-                        return Optional.ofNullable(dbRow)
-                                .map(row -> {
-                                    Currency currency = new SimpleCurrency(row.getString("name"));
-                                    currency.displayName(row.getString("displayName"));
-                                    currency.displayNamePlural(row.getString("pluralName"));
-                                    currency.abbreviation(row.getString("abbreviation"));
-                                    currency.symbol(row.get("symbol"));
-                                    return currency;
-                                }).orElseThrow(() -> new NullPointerException("Subject don't exists."));
+                        return loadFirst(statements, "SELECT name, displayName, pluralName, abbreviation, symbol, scale FROM currencies WHERE name=?;", SimpleCurrencyRepository::currencyOf, currencyName);
+                    }
+
+                    @Override
+                    public @NotNull Map<String, Currency> loadAll(@NotNull Iterable<? extends String> currenciesNames) throws Exception {
+                        return loadChunked(statements, currenciesNames, size -> "SELECT name, displayName, pluralName, abbreviation, symbol, scale FROM currencies WHERE name IN (" + placeholders(size, "?") + ");", (statement, index, currencyName) -> {
+                            statement.setString(index, currencyName);
+                            return index + 1;
+                        }, row -> {
+                            SimpleCurrency currency = new SimpleCurrency(row.getString("name"));
+                            currency.displayName(row.getString("displayName"));
+                            currency.displayNamePlural(row.getString("pluralName"));
+                            currency.abbreviation(row.getString("abbreviation"));
+                            String symbol = row.getString("symbol");
+                            if (symbol != null && !symbol.isEmpty()) currency.symbol(symbol.charAt(0));
+                            currency.scale(row.getInt("scale"));
+                            return Map.entry(currency.name(), currency);
+                        });
                     }
                 }
-        ));
+        ), statements);
 
         query(statement -> {
            try {
-               statement.query("CREATE TABLE IF NOT EXISTS currencies(name VARCHAR(64) PRIMARY KEY NOT NULL, displayName VARCHAR(64), pluralName VARCHAR(64), abbreviation VARCHAR(3), symbol CHARACTER(1));");
+               statement.query("CREATE TABLE IF NOT EXISTS currencies(name VARCHAR(64) PRIMARY KEY NOT NULL, displayName VARCHAR(64), pluralName VARCHAR(64), abbreviation VARCHAR(3), symbol CHARACTER(1), scale TINYINT NOT NULL DEFAULT 2);");
                statement.executeUpdate();
+               statement.query("PRAGMA table_info(currencies);");
+               statement.execute();
+               if (statement.getResults().stream().noneMatch(column -> "scale".equals(column.getString("name")))) {
+                   statement.query("ALTER TABLE currencies ADD COLUMN scale TINYINT NOT NULL DEFAULT 2;");
+                   statement.executeUpdate();
+               }
 
                statement.commit();
 
@@ -57,9 +104,60 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
            }
         });
 
-        this.sqlQueryGet = "SELECT name, displayName, pluralName, abbreviation, symbol FROM currencies WHERE name=?;";
-        this.sqlQuerySet = "INSERT INTO currencies(name, displayName, pluralName, abbreviation, symbol) VALUES(?, ?, ?, ?, ?) ON CONFLICT(name) DO UPDATE SET displayName=?, pluralName=?, abbreviation=?, symbol=?;";
+        this.sqlQueryGet = "SELECT name, displayName, pluralName, abbreviation, symbol, scale FROM currencies WHERE name=?;";
+        this.sqlQuerySet = "INSERT INTO currencies(name, displayName, pluralName, abbreviation, symbol, scale) VALUES(?, ?, ?, ?, ?, ?) ON CONFLICT(name) DO UPDATE SET displayName=excluded.displayName, pluralName=excluded.pluralName, abbreviation=excluded.abbreviation, symbol=excluded.symbol, scale=excluded.scale;";
         this.sqlQueryDelete = "DELETE FROM currencies WHERE name=?;";
+        this.publishLock = new Object();
+        this.ids = new CurrencyIds(this::exists);
+        this.pendingBalances = currencyName -> false;
+    }
+
+    /**
+     * Switches to resident mode: every currency is loaded now into a {@link CurrencyRegistry} and reads
+     * are served from it, lock-free and without touching the database. Writes go to the database and
+     * then publish a new registry.
+     * @return amount of currencies loaded
+     */
+    public @NotNull Response<Integer> resident() {
+        try {
+            List<Currency> loaded = executeRead(connection -> {
+                List<Currency> rows = new ArrayList<>();
+                try (ResultSet result = prepare(connection, "SELECT name, displayName, pluralName, abbreviation, symbol, scale FROM currencies;").executeQuery()) {
+                    while (result.next()) rows.add(currencyOf(result));
+                }
+                return rows;
+            });
+            synchronized (publishLock) {
+                registry = CurrencyRegistry.empty(ids).with(loaded);
+            }
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(loaded.size()));
+        } catch (SQLException ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Can't load the currencies.", ok)), Optional.empty());
+        }
+    }
+
+    /**
+     * @return ids of the currencies, shared with the repositories keying balances by currency
+     */
+    public @NotNull CurrencyIds ids() {
+        return ids;
+    }
+
+    /**
+     * Balances are stored as minor units of the scale of their currency, so the scale of a currency
+     * with balances can't change, see {@link #setAll(Set)}. Stored balances are found in the database,
+     * the ones only in memory, like those of write-behind mode, are asked to {@code pendingBalances}.
+     * @param pendingBalances tells if a currency has balances not yet stored
+     */
+    public void pendingBalances(@NotNull Predicate<String> pendingBalances) {
+        this.pendingBalances = pendingBalances;
+    }
+
+    /**
+     * @return current snapshot of every currency, {@code null} unless in resident mode
+     */
+    public @Nullable CurrencyRegistry registry() {
+        return registry;
     }
 
     /**
@@ -68,9 +166,10 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
      */
     @Override
     public @NotNull Response<Currency> get(@NotNull String currencyName) {
+        CurrencyRegistry registry = this.registry;
+        if (registry != null) return new Response<>(ResponseCode.OK, Optional.empty(), registry.get(currencyName));
         try {
-            Currency subject = cache().get(currencyName);
-            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(subject));
+            return new Response<>(ResponseCode.OK, Optional.empty(), find(currencyName));
         } catch (ExecutionException ok) {
             return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Something got wrong, ups.", ok)), Optional.empty());
         }
@@ -83,33 +182,39 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
     @Override
     public @NotNull Response<Set<Currency>> getAllOfThem(@NotNull Set<String> currenciesNames) {
         if (currenciesNames.isEmpty()) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-        return query(statement -> {
-            try {
-                statement.query("BEGIN TRANSACTION;");
-                statement.executeUpdate();
-                for (String currencyName : currenciesNames) {
-                    statement.query(sqlQueryGet);
-                    statement.execute(currencyName);
-                }
-                statement.query("COMMIT;");
-                statement.executeUpdate();
+        CurrencyRegistry registry = this.registry;
+        if (registry != null) {
+            Set<Currency> currencies = new HashSet<>();
+            for (String currencyName : currenciesNames) registry.get(currencyName).ifPresent(currencies::add);
+            return new Response<>(ResponseCode.OK, Optional.empty(), currencies.isEmpty() ? Optional.empty() : Optional.of(currencies));
+        }
+        try {
+            Set<Currency> currencies = new HashSet<>(getAllCached(currenciesNames).values());
+            if (currencies.isEmpty()) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(currencies));
+        } catch (ExecutionException ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Uh oh, something got wrong.", ok)), Optional.empty());
+        }
+    }
 
-                statement.commit();
+    public @NotNull Response<Stream<Currency>> streamAll() {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
 
-                Set<Currency> subjects = statement.getResults().parallelStream().map(row -> {
-                    Currency currency = new SimpleCurrency(row.getString("name"));
-                    currency.displayName(row.getString("displayName"));
-                    currency.displayNamePlural(row.getString("pluralName"));
-                    currency.abbreviation(row.getString("abbreviation"));
-                    currency.symbol(row.get("symbol"));
-                    return currency;
-                }).collect(Collectors.toSet());
-                if (subjects.isEmpty()) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(subjects));
-            } catch (SQLException ok) {
-                return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Uh oh, something got wrong.", ok)), Optional.empty());
-            }
-        });
+    /**
+     * Same as {@link #getAll()} fetching the currencies lazily through a cursor, or straight from the
+     * registry in resident mode. The stream may hold a database connection, close it.
+     * @param fetchSize rows fetched per round trip
+     * @return every currency
+     */
+    public @NotNull Response<Stream<Currency>> streamAll(int fetchSize) {
+        CurrencyRegistry registry = this.registry;
+        if (registry != null) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(registry.all().stream()));
+        try {
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(stream("SELECT name, displayName, pluralName, abbreviation, symbol, scale FROM currencies;", fetchSize, SimpleCurrencyRepository::currencyOf)));
+        } catch (SQLException ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Something got wrong, ups.", ok)), Optional.empty());
+        }
     }
 
     /**
@@ -117,6 +222,9 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
      */
     @Override
     public @NotNull Response<Set<Currency>> getAll() {
+        CurrencyRegistry registry = this.registry;
+        if (registry != null)
+            return new Response<>(ResponseCode.OK, Optional.empty(), registry.size() == 0 ? Optional.empty() : Optional.of(new HashSet<>(registry.all())));
         return query(statement -> {
             try {
                 statement.query("SELECT * FROM currencies;");
@@ -124,14 +232,7 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
 
                 statement.commit();
 
-                Set<Currency> currencies = statement.getResults().parallelStream().map(row -> {
-                    Currency currency = new SimpleCurrency(row.getString("name"));
-                    currency.displayName(row.getString("displayName"));
-                    currency.displayNamePlural(row.getString("pluralName"));
-                    currency.abbreviation(row.getString("abbreviation"));
-                    currency.symbol(row.get("symbol"));
-                    return currency;
-                }).collect(Collectors.toSet());
+                Set<Currency> currencies = statement.getResults().parallelStream().map(SimpleCurrencyRepository::currencyOf).collect(Collectors.toSet());
                 if (currencies.isEmpty()) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
                 return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(currencies));
             } catch (SQLException ok) {
@@ -146,45 +247,46 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
      */
     @Override
     public @NotNull Response<Void> set(@NotNull Currency currency) {
-        return query(statement -> {
-            try {
-                statement.query(sqlQuerySet);
-                statement.executeUpdate(currency.name(), currency.displayName(), currency.displayNamePlural(), currency.abbreviation(), currency.symbol(), currency.displayName(), currency.displayNamePlural(), currency.abbreviation(), currency.symbol());
-
-                statement.commit();
-
-                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-            } catch (SQLException ok) {
-                return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Oh...", ok)), Optional.empty());
-            }
-        });
+        return setAll(Set.of(currency));
     }
 
     /**
+     * Changing the scale of a currency that has balances is refused, they would be read with the new
+     * scale, and none of {@code currencies} is written then. Checked in the same database transaction as
+     * the write, so no stored balance can slip in between.
      * @param currencies
-     * @return
+     * @return an empty response or the error that rolled every change back
      */
     @Override
     public @NotNull Response<Void> setAll(@NotNull Set<Currency> currencies) {
         if (currencies.isEmpty()) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-        return query(statement -> {
-            try {
-                statement.query("BEGIN TRANSACTION;");
-                statement.executeUpdate();
+        forgetAbsent(currencies.stream().map(Currency::name).toList());
+        try {
+            executeSession(connection -> {
+                checkScales(connection, currencies);
+                PreparedStatement statement = prepare(connection, sqlQuerySet);
                 for (Currency currency : currencies) {
-                    statement.query(sqlQuerySet);
-                    statement.executeUpdate(currency.name(), currency.displayName(), currency.displayNamePlural(), currency.abbreviation(), currency.symbol(), currency.displayName(), currency.displayNamePlural(), currency.abbreviation(), currency.symbol());
+                    statement.setString(1, currency.name());
+                    statement.setObject(2, valueOf(currency.displayName()));
+                    statement.setObject(3, valueOf(currency.displayNamePlural()));
+                    statement.setObject(4, valueOf(currency.abbreviation()));
+                    Object symbol = valueOf(currency.symbol());
+                    statement.setObject(5, symbol == null ? null : symbol.toString());
+                    statement.setInt(6, scaleOf(currency));
+                    statement.addBatch();
                 }
-                statement.query("COMMIT;");
-                statement.executeUpdate();
-
-                statement.commit();
-
-                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-            } catch (SQLException ok) {
-                return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("That it's", ok)), Optional.empty());
-            }
-        });
+                statement.executeBatch();
+                return null;
+            });
+        } catch (SQLException | IllegalStateException ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Something got wrong, can't execute the batch.", ok)), Optional.empty());
+        }
+        List<String> names = currencies.stream().map(Currency::name).toList();
+        // Outside resident mode scaleOf reads the cache, it would keep the old scale until expired.
+        cache().invalidateAll(names);
+        publish(registry -> registry.with(currencies));
+        broadcast(names);
+        return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
     }
 
     /**
@@ -199,6 +301,9 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
                 statement.executeUpdate(currencyName);
 
                 statement.commit();
+                cache().invalidate(currencyName);
+                publish(registry -> registry.without(Set.of(currencyName)));
+                broadcast(Set.of(currencyName));
 
                 return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
             } catch (SQLException ok) {
@@ -225,6 +330,9 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
                 statement.executeUpdate();
 
                 statement.commit();
+                cache().invalidateAll(currenciesNames);
+                publish(registry -> registry.without(currenciesNames));
+                broadcast(currenciesNames);
 
                 return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
             } catch (SQLException ok) {
@@ -244,6 +352,9 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
                 statement.executeUpdate();
 
                 statement.commit();
+                cache().invalidateAll();
+                publish(registry -> CurrencyRegistry.empty(ids));
+                broadcastAll();
 
                 return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
             } catch (SQLException ok) {
@@ -251,4 +362,136 @@ public class SimpleCurrencyRepository extends AbstractCachedRepository<String, C
             }
         });
     }
+
+    /**
+     * @param currencyName name of the currency
+     * @return decimals used by balances of the currency, {@link MinorUnits#DEFAULT_SCALE} if it's unknown
+     */
+    public int scaleOf(@NotNull String currencyName) {
+        CurrencyRegistry registry = this.registry;
+        if (registry != null) return registry.scaleOf(currencyName);
+        try {
+            return find(currencyName).map(SimpleCurrencyRepository::scaleOf).orElse(MinorUnits.DEFAULT_SCALE);
+        } catch (ExecutionException ok) {
+            return MinorUnits.DEFAULT_SCALE;
+        }
+    }
+
+    /**
+     * Shares the invalidations of this cache with the other nodes of {@code invalidations}.
+     * @param invalidations link to the other nodes
+     */
+    public void attach(@NotNull CacheInvalidations invalidations) {
+        attach(invalidations, "currencies", UnaryOperator.identity(), UnaryOperator.identity());
+    }
+
+    /**
+     * Also reloads the currencies into the registry, if resident.
+     */
+    @Override
+    protected void invalidated(@NotNull Collection<String> currenciesNames) {
+        super.invalidated(currenciesNames);
+        if (registry == null) return;
+        try {
+            Map<String, Currency> stored = getAllCached(currenciesNames);
+            Set<String> deleted = new HashSet<>(currenciesNames);
+            deleted.removeAll(stored.keySet());
+            publish(registry -> registry.without(deleted).with(stored.values()));
+        } catch (ExecutionException ok) {
+            resident();
+        }
+    }
+
+    @Override
+    protected void invalidatedAll() {
+        super.invalidatedAll();
+        if (registry != null) resident();
+    }
+
+    /**
+     * @throws IllegalStateException if the scale of a currency with balances would change
+     */
+    private void checkScales(@NotNull Connection connection, @NotNull Collection<Currency> currencies) throws SQLException {
+        Set<String> tables = new HashSet<>();
+        try (ResultSet result = prepare(connection, SQL_SELECT_BALANCE_TABLES).executeQuery()) {
+            while (result.next()) tables.add(result.getString("name"));
+        }
+        PreparedStatement scale = prepare(connection, "SELECT scale FROM currencies WHERE name=?;");
+        for (Currency currency : currencies) {
+            scale.setString(1, currency.name());
+            try (ResultSet result = scale.executeQuery()) {
+                if (!result.next() || result.getInt("scale") == scaleOf(currency)) continue;
+            }
+            if (pendingBalances.test(currency.name()) || hasRows(connection, tables, "transactions", currency.name()) || hasRows(connection, tables, "journal", currency.name()))
+                throw new IllegalStateException("SimpleCurrencyRepository@setAll() | Can't change the scale of " + currency.name() + ", it has balances.");
+        }
+    }
+
+    private boolean hasRows(@NotNull Connection connection, @NotNull Set<String> tables, @NotNull String table, @NotNull String currencyName) throws SQLException {
+        if (!tables.contains(table)) return false;
+        PreparedStatement statement = prepare(connection, "SELECT 1 FROM " + table + " WHERE currency=? LIMIT 1;");
+        statement.setString(1, currencyName);
+        try (ResultSet result = statement.executeQuery()) {
+            return result.next();
+        }
+    }
+
+    /**
+     * Asked by {@link CurrencyIds} before giving an id to a name, the negative cache keeps repeated
+     * unknown names off the database.
+     * @throws IllegalStateException if the currency can't be read
+     */
+    private boolean exists(@NotNull String currencyName) {
+        CurrencyRegistry registry = this.registry;
+        if (registry != null) return registry.idOf(currencyName) >= 0;
+        try {
+            return find(currencyName).isPresent();
+        } catch (ExecutionException ok) {
+            throw new IllegalStateException("SimpleCurrencyRepository@exists() | Can't read the currency " + currencyName + ".", ok.getCause());
+        }
+    }
+
+    /**
+     * Replaces the registry, if resident, with {@code change} applied. Writers are serialized so none is lost.
+     */
+    private void publish(@NotNull UnaryOperator<CurrencyRegistry> change) {
+        if (registry == null) return;
+        synchronized (publishLock) {
+            CurrencyRegistry current = registry;
+            if (current != null) registry = change.apply(current);
+        }
+    }
+
+    private static Object valueOf(@NotNull Response<?> response) {
+        try {
+            return response.getOrThrow();
+        } catch (Throwable ok) {
+            return null;
+        }
+    }
+
+    private static int scaleOf(@NotNull Currency currency) {
+        return currency instanceof SimpleCurrency simpleCurrency ? simpleCurrency.scale() : MinorUnits.DEFAULT_SCALE;
+    }
+
+    private static @NotNull Currency currencyOf(@NotNull ResultSet row) throws SQLException {
+        SimpleCurrency currency = new SimpleCurrency(row.getString("name"));
+        String displayName = row.getString("displayName"), pluralName = row.getString("pluralName"), abbreviation = row.getString("abbreviation"), symbol = row.getString("symbol");
+        if (displayName != null) currency.displayName(displayName);
+        if (pluralName != null) currency.displayNamePlural(pluralName);
+        if (abbreviation != null) currency.abbreviation(abbreviation);
+        if (symbol != null && !symbol.isEmpty()) currency.symbol(symbol.charAt(0));
+        currency.scale(row.getInt("scale"));
+        return currency;
+    }
+
+    private static @NotNull Currency currencyOf(@NotNull DbRow row) {
+        SimpleCurrency currency = new SimpleCurrency(row.getString("name"));
+        currency.displayName(row.getString("displayName"));
+        currency.displayNamePlural(row.getString("pluralName"));
+        currency.abbreviation(row.getString("abbreviation"));
+        currency.symbol(row.get("symbol"));
+        currency.scale(row.getInt("scale", MinorUnits.DEFAULT_SCALE));
+        return currency;
+    }
 }
@@ -0,0 +1,105 @@
+package io.github.joshy56.listener;
+
+import io.github.joshy56.subject.SimpleSubjectRepository;
+import io.github.joshy56.transaction.SimpleTransactionRepository;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Preloads the subject and every balance of a player while the login is still being
+ * processed off the main thread, so the first balance query after joining is a cache hit.
+ * Writes and evicts them when the player quits, or when the login is denied after the preload.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public class CacheWarmupListener implements Listener {
+    private final SimpleSubjectRepository subjects;
+    private final SimpleTransactionRepository transactions;
+    private final Executor databaseExecutor;
+    private final Logger logger;
+    private final LongAdder preloads, preloadNanos;
+    private final LongAccumulator maxPreloadNanos;
+
+    public CacheWarmupListener(@NotNull SimpleSubjectRepository subjects, @NotNull SimpleTransactionRepository transactions, @NotNull Executor databaseExecutor, @NotNull Logger logger) {
+        this.subjects = subjects;
+        this.transactions = transactions;
+        this.databaseExecutor = databaseExecutor;
+        this.logger = logger;
+        this.preloads = new LongAdder();
+        this.preloadNanos = new LongAdder();
+        this.maxPreloadNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        UUID subjectId = event.getUniqueId();
+        long start = System.nanoTime();
+        subjects.preload(subjectId);
+        try {
+            transactions.preload(subjectId).getOrThrow();
+        } catch (Throwable ok) {
+            logger.log(Level.WARNING, "Can't preload balances of " + subjectId, ok);
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        preloads.increment();
+        preloadNanos.add(elapsed);
+        maxPreloadNanos.accumulate(elapsed);
+    }
+
+    /**
+     * Bans, the whitelist or a full server deny the login after the preload, no quit follows then.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) evict(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        evict(event.getPlayer().getUniqueId());
+    }
+
+    private void evict(@NotNull UUID subjectId) {
+        databaseExecutor.execute(() -> {
+            subjects.evict(subjectId);
+            transactions.evict(subjectId);
+        });
+    }
+
+    public long preloads() {
+        return preloads.sum();
+    }
+
+    /**
+     * @return mean time to preload a joining player, in milliseconds
+     */
+    public double averagePreloadMillis() {
+        long count = preloads.sum();
+        return count == 0 ? 0 : preloadNanos.sum() / 1_000_000d / count;
+    }
+
+    public double maxPreloadMillis() {
+        return maxPreloadNanos.get() / 1_000_000d;
+    }
+
+    /**
+     * @return share of balance lookups of online players served from memory
+     */
+    public double onlineHitRate() {
+        return transactions.onlineHitRate();
+    }
+}
@@ -1,42 +1,67 @@
 package io.github.joshy56.subject;
 
 import co.aikar.idb.Database;
-import co.aikar.idb.DbRow;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import io.github.joshy56.AbstractCachedRepository;
+import io.github.joshy56.CacheInvalidations;
+import io.github.joshy56.StatementPool;
 import io.github.joshy56.response.Response;
 import io.github.joshy56.response.ResponseCode;
+import org.intellij.lang.annotations.Language;
 import org.jetbrains.annotations.NotNull;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author joshy56
  * @since 3/3/2024
  */
 public class SimpleSubjectRepository extends AbstractCachedRepository<UUID, Subject> implements SubjectRepository {
+    @Language("SQL")
+    private static final String SQL_UPSERT = "INSERT INTO subjects(subjectId, nickname) VALUES(?, ?) ON CONFLICT(subjectId) DO UPDATE SET nickname=excluded.nickname;";
+
     public SimpleSubjectRepository(Database database) {
-        super(database, CacheBuilder.newBuilder().expireAfterAccess(3, TimeUnit.MINUTES).expireAfterWrite(1, TimeUnit.MINUTES).build(
+        this(database, new StatementPool(database));
+    }
+
+    /**
+     * @param database backing database
+     * @param statements pool shared by the repositories of {@code database}
+     */
+    public SimpleSubjectRepository(Database database, StatementPool statements) {
+        super(database, CacheBuilder.newBuilder().expireAfterAccess(3, TimeUnit.MINUTES).expireAfterWrite(1, TimeUnit.MINUTES).recordStats().build(
                 new CacheLoader<>() {
                     @Override
                     public Subject load(UUID subjectId) throws Exception {
-                        DbRow dbRow = database.getFirstRow("SELECT subjectId, nickname FROM subjects WHERE subjectId=?;", subjectId);
-                        return Optional.ofNullable(dbRow)
-                                .map(row -> {
-                                    Subject subject = new SimpleSubject(subjectId);
-                                    subject.nickname(row.getString("nickname"));
-                                    return subject;
-                                }).orElseThrow(() -> new NullPointerException("Subject don't exists."));
+                        return loadFirst(statements, "SELECT subjectId, nickname FROM subjects WHERE subjectId=?;", SimpleSubjectRepository::subjectOf, subjectId.toString());
+                    }
+
+                    @Override
+                    public Map<UUID, Subject> loadAll(Iterable<? extends UUID> subjectsIds) throws Exception {
+                        return loadChunked(statements, subjectsIds, size -> "SELECT subjectId, nickname FROM subjects WHERE subjectId IN (" + placeholders(size, "?") + ");", (statement, index, subjectId) -> {
+                            statement.setString(index, subjectId.toString());
+                            return index + 1;
+                        }, row -> {
+                            UUID subjectId = UUID.fromString(row.getString("subjectId"));
+                            Subject subject = new SimpleSubject(subjectId);
+                            subject.nickname(row.getString("nickname"));
+                            return Map.entry(subjectId, subject);
+                        });
                     }
                 }
-        ));
+        ), statements);
 
         query(statement -> {
             try {
@@ -59,8 +84,7 @@ public class SimpleSubjectRepository extends AbstractCachedRepository<UUID, Subj
     @Override
     public @NotNull Response<Subject> get(@NotNull UUID subjectId) {
         try {
-            Subject subject = cache().get(subjectId);
-            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(subject));
+            return new Response<>(ResponseCode.OK, Optional.empty(), find(subjectId));
         } catch (ExecutionException ok) {
             return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Something got wrong, ups.", ok)), Optional.empty());
         }
@@ -73,31 +97,31 @@ public class SimpleSubjectRepository extends AbstractCachedRepository<UUID, Subj
     @Override
     public @NotNull Response<Set<Subject>> getAllOfThem(@NotNull Set<UUID> subjectsIds) {
         if (subjectsIds.isEmpty()) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-        return query(statement -> {
-            try {
-                statement.query("BEGIN TRANSACTION;");
-                statement.executeUpdate();
-                for (UUID subjectId : subjectsIds) {
-                    statement.query("SELECT subjectId, nickname FROM subjects WHERE subjectId=?;");
-                    statement.execute(subjectId);
-                }
-                statement.query("COMMIT;");
-                statement.executeUpdate();
+        try {
+            Set<Subject> subjects = new HashSet<>(getAllCached(subjectsIds).values());
+            if (subjects.isEmpty()) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(subjects));
+        } catch (ExecutionException ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Uh oh, something got wrong.", ok)), Optional.empty());
+        }
+    }
 
-                statement.commit();
+    public @NotNull Response<Stream<Subject>> streamAll() {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
 
-                Set<Subject> subjects = statement.getResults().parallelStream().map(row -> {
-                    UUID subjectId = UUID.fromString(row.getString("subjectId"));
-                    Subject subject = new SimpleSubject(subjectId);
-                    subject.nickname(row.getString("nickname"));
-                    return subject;
-                }).collect(Collectors.toSet());
-                if (subjects.isEmpty()) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(subjects));
-            } catch (SQLException ok) {
-                return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Uh oh, something got wrong.", ok)), Optional.empty());
-            }
-        });
+    /**
+     * Same as {@link #getAll()} fetching the subjects lazily through a cursor instead of materializing
+     * them. The stream holds a database connection, close it.
+     * @param fetchSize rows fetched per round trip
+     * @return every subject
+     */
+    public @NotNull Response<Stream<Subject>> streamAll(int fetchSize) {
+        try {
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(stream("SELECT subjectId, nickname FROM subjects;", fetchSize, SimpleSubjectRepository::subjectOf)));
+        } catch (SQLException ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Something got wrong, ups.", ok)), Optional.empty());
+        }
     }
 
     /**
@@ -132,18 +156,7 @@ public class SimpleSubjectRepository extends AbstractCachedRepository<UUID, Subj
      */
     @Override
     public @NotNull Response<Void> set(@NotNull Subject subject) {
-        return query(statement -> {
-            try {
-                statement.query("INSERT INTO subjects(subjectId, nickname) VALUES(?, ?) ON CONFLICT(subjectId) DO UPDATE SET nickname=?;");
-                statement.executeUpdate(subject.identifer(), subject.nickname(), subject.nickname());
-
-                statement.commit();
-
-                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-            } catch (SQLException ok) {
-                return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("Oh...", ok)), Optional.empty());
-            }
-        });
+        return setAll(Set.of(subject));
     }
 
     /**
@@ -153,24 +166,20 @@ public class SimpleSubjectRepository extends AbstractCachedRepository<UUID, Subj
     @Override
     public @NotNull Response<Void> setAll(@NotNull Set<Subject> subjects) {
         if (subjects.isEmpty()) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-        return query(statement -> {
+        List<UUID> subjectsIds = subjects.stream().map(Subject::identifer).toList();
+        forgetAbsent(subjectsIds);
+        Response<Void> response = batch(SQL_UPSERT, subjects, (statement, subject) -> {
+            statement.setString(1, subject.identifer().toString());
+            String nickname;
             try {
-                statement.query("BEGIN TRANSACTION;");
-                statement.executeUpdate();
-                for (Subject subject : subjects) {
-                    statement.query("INSERT INTO subjects(subjectId, nickname) VALUES(?, ?) ON CONFLICT(subjectId) DO UPDATE SET nickname=?;");
-                    statement.executeUpdate(subject.identifer(), subject.nickname(), subject.nickname());
-                }
-                statement.query("COMMIT;");
-                statement.executeUpdate();
-
-                statement.commit();
-
-                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
-            } catch (SQLException ok) {
-                return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException("That it's", ok)), Optional.empty());
+                nickname = subject.nickname().getOrThrow();
+            } catch (Throwable ok) {
+                nickname = null;
             }
+            statement.setString(2, nickname);
         });
+        broadcast(subjectsIds);
+        return response;
     }
 
     /**
@@ -185,6 +194,7 @@ public class SimpleSubjectRepository extends AbstractCachedRepository<UUID, Subj
                 statement.executeUpdate(subjectId);
 
                 statement.commit();
+                broadcast(Set.of(subjectId));
 
                 return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
             } catch (SQLException ok) {
@@ -211,6 +221,7 @@ public class SimpleSubjectRepository extends AbstractCachedRepository<UUID, Subj
                 statement.executeUpdate();
 
                 statement.commit();
+                broadcast(subjectsIds);
 
                 return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
             } catch (SQLException ok) {
@@ -230,6 +241,7 @@ public class SimpleSubjectRepository extends AbstractCachedRepository<UUID, Subj
                 statement.executeUpdate();
 
                 statement.commit();
+                broadcastAll();
 
                 return new Response<>(ResponseCode.OK, Optional.empty(), Optional.empty());
             } catch (SQLException ok) {
@@ -237,4 +249,35 @@ public class SimpleSubjectRepository extends AbstractCachedRepository<UUID, Subj
             }
         });
     }
+
+    /**
+     * Shares the invalidations of this cache with the other nodes of {@code invalidations}.
+     * @param invalidations link to the other nodes
+     */
+    public void attach(@NotNull CacheInvalidations invalidations) {
+        attach(invalidations, "subjects", UUID::toString, UUID::fromString);
+    }
+
+    /**
+     * Loads a subject into the cache, meant for players about to join.
+     * @param subjectId subject to preload
+     * @return the subject, empty if it doesn't exist yet
+     */
+    public @NotNull Response<Subject> preload(@NotNull UUID subjectId) {
+        return get(subjectId);
+    }
+
+    /**
+     * Drops a subject from the cache, meant for players leaving.
+     * @param subjectId subject to evict
+     */
+    public void evict(@NotNull UUID subjectId) {
+        cache().invalidate(subjectId);
+    }
+
+    private static @NotNull Subject subjectOf(@NotNull ResultSet row) throws SQLException {
+        Subject subject = new SimpleSubject(UUID.fromString(row.getString("subjectId")));
+        subject.nickname(row.getString("nickname"));
+        return subject;
+    }
 }
@@ -0,0 +1,81 @@
+package io.github.joshy56.transaction;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Compact key of one account: the two halves of the subject UUID and the id of the currency, see
+ * {@link io.github.joshy56.currency.CurrencyIds}. Hashing and equality touch only primitives, unlike a
+ * {@code Namespace} that carries two strings built per operation.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class AccountKey {
+    private final long mostSignificantBits, leastSignificantBits;
+    private final int currencyId, hash;
+
+    public AccountKey(long mostSignificantBits, long leastSignificantBits, int currencyId) {
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+        this.currencyId = currencyId;
+        this.hash = hash(mostSignificantBits, leastSignificantBits, currencyId);
+    }
+
+    @NotNull
+    public static AccountKey of(@NotNull UUID subjectId, int currencyId) {
+        return new AccountKey(subjectId.getMostSignificantBits(), subjectId.getLeastSignificantBits(), currencyId);
+    }
+
+    /**
+     * @return a new {@link UUID} of the subject, prefer {@link #isOf(UUID)} to compare
+     */
+    @NotNull
+    public UUID subjectId() {
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    public int currencyId() {
+        return currencyId;
+    }
+
+    long mostSignificantBits() {
+        return mostSignificantBits;
+    }
+
+    long leastSignificantBits() {
+        return leastSignificantBits;
+    }
+
+    /**
+     * @return {@code true} if the account belongs to {@code subjectId}
+     */
+    public boolean isOf(@NotNull UUID subjectId) {
+        return mostSignificantBits == subjectId.getMostSignificantBits() && leastSignificantBits == subjectId.getLeastSignificantBits();
+    }
+
+    /**
+     * Same as {@link #hashCode()} without building the key, for tables storing its fields apart.
+     */
+    static int hash(long mostSignificantBits, long leastSignificantBits, int currencyId) {
+        long bits = mostSignificantBits ^ leastSignificantBits;
+        return 31 * (int) (bits ^ (bits >>> 32)) + currencyId;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof AccountKey key)) return false;
+        return mostSignificantBits == key.mostSignificantBits && leastSignificantBits == key.leastSignificantBits && currencyId == key.currencyId;
+    }
+
+    @Override
+    public String toString() {
+        return subjectId() + "#" + currencyId;
+    }
+}
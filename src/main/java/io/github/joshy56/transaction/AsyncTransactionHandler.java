@@ -0,0 +1,112 @@
+package io.github.joshy56.transaction;
+
+import io.github.joshy56.currency.SimpleCurrency;
+import io.github.joshy56.response.Response;
+import io.github.joshy56.response.ResponseCode;
+import io.github.joshy56.subject.Subject;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking view of a {@link TransactionHandler}, every call runs on the given executor so
+ * database latency never reaches the caller thread. Use {@code thenAcceptAsync(callback, mainThread)}
+ * to get back to the server thread.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public class AsyncTransactionHandler {
+    private final TransactionHandler handler;
+    private final Executor executor;
+
+    public AsyncTransactionHandler(@NotNull TransactionHandler handler, @NotNull Executor executor) {
+        this.handler = handler;
+        this.executor = executor;
+    }
+
+    public @NotNull CompletableFuture<Response<Double>> balance(@NotNull UUID subjectId, @NotNull String currencyName) {
+        return supply(() -> handler.balance(subjectId, currencyName));
+    }
+
+    public @NotNull CompletableFuture<Response<Boolean>> withdraw(@NotNull UUID subjectId, @NotNull String currencyName, double amount) {
+        return supply(() -> handler.withdraw(subjectId, currencyName, amount));
+    }
+
+    public @NotNull CompletableFuture<Response<Boolean>> deposit(@NotNull UUID subjectId, @NotNull String currencyName, double amount) {
+        return supply(() -> handler.deposit(subjectId, currencyName, amount));
+    }
+
+    public @NotNull CompletableFuture<Response<Boolean>> enoughMoney(@NotNull UUID subjectId, @NotNull String currencyName, double amount) {
+        return supply(() -> handler.enoughMoney(subjectId, currencyName, amount));
+    }
+
+    /**
+     * Atomic when the handler is a {@link SimpleTransactionHandler}, otherwise checks funds, withdraws and deposits in sequence.
+     */
+    public @NotNull CompletableFuture<Response<Boolean>> transfer(@NotNull UUID from, @NotNull UUID to, @NotNull String currencyName, double amount) {
+        return supply(() -> {
+            if (handler instanceof SimpleTransactionHandler simpleHandler)
+                return simpleHandler.transfer(from, to, currencyName, amount);
+            try {
+                if (!handler.enoughMoney(from, currencyName, amount).getOrThrow())
+                    return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(false));
+                boolean opValue = handler.withdraw(from, currencyName, amount).getOrThrow() && handler.deposit(to, currencyName, amount).getOrThrow();
+                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(opValue));
+            } catch (Throwable ok) {
+                return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't transfer $%f from user with id: '%s' to user with id: '%s' on currency with name: %s", amount, from, to, currencyName), ok)), Optional.of(false));
+            }
+        });
+    }
+
+    /**
+     * Every balance of a subject at once when the handler is a {@link SimpleTransactionHandler}, an error otherwise.
+     */
+    public @NotNull CompletableFuture<Response<Wallet>> balances(@NotNull UUID subjectId) {
+        return supply(() -> handler instanceof SimpleTransactionHandler simpleHandler
+                ? simpleHandler.balances(subjectId)
+                : new Response<>(ResponseCode.ERROR, Optional.of(new UnsupportedOperationException("AsyncTransactionHandler@balances() | Needs a SimpleTransactionHandler.")), Optional.empty()));
+    }
+
+    /**
+     * One batch when the handler is a {@link SimpleTransactionHandler}, an error otherwise.
+     */
+    public @NotNull CompletableFuture<Response<SimpleTransactionRepository.BulkResult>> depositAll(@NotNull String currencyName, @NotNull Map<UUID, Double> amounts) {
+        return supply(() -> handler instanceof SimpleTransactionHandler simpleHandler
+                ? simpleHandler.depositAll(currencyName, amounts)
+                : new Response<>(ResponseCode.ERROR, Optional.of(new UnsupportedOperationException("AsyncTransactionHandler@depositAll() | Needs a SimpleTransactionHandler.")), Optional.empty()));
+    }
+
+    /**
+     * One batch when the handler is a {@link SimpleTransactionHandler}, an error otherwise.
+     */
+    public @NotNull CompletableFuture<Response<SimpleTransactionRepository.BulkResult>> withdrawAll(@NotNull String currencyName, @NotNull Map<UUID, Double> amounts) {
+        return supply(() -> handler instanceof SimpleTransactionHandler simpleHandler
+                ? simpleHandler.withdrawAll(currencyName, amounts)
+                : new Response<>(ResponseCode.ERROR, Optional.of(new UnsupportedOperationException("AsyncTransactionHandler@withdrawAll() | Needs a SimpleTransactionHandler.")), Optional.empty()));
+    }
+
+    public @NotNull CompletableFuture<Response<Set<SimpleCurrency>>> currenciesOf(@NotNull UUID subjectId) {
+        return supply(() -> handler.currenciesOf(subjectId));
+    }
+
+    public @NotNull CompletableFuture<Response<Set<Subject>>> subjectsOf(@NotNull String currencyName) {
+        return supply(() -> handler.subjectsOf(currencyName));
+    }
+
+    /**
+     * @return the blocking handler behind this view
+     */
+    public @NotNull TransactionHandler blocking() {
+        return handler;
+    }
+
+    private <T> @NotNull CompletableFuture<T> supply(@NotNull Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+}
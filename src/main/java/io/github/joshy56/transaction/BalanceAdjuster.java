@@ -0,0 +1,386 @@
+package io.github.joshy56.transaction;
+
+import io.github.joshy56.StatementPool;
+import io.github.joshy56.response.Response;
+import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Applies a rule per currency, like daily interest or a wealth tax, to every account. Accounts are
+ * walked in keyset-paginated chunks in primary key order, never loading the whole table, and the
+ * chunks are adjusted in parallel on a fork-join pool, each one locked and written back as one batch.
+ * <p>
+ * Every finished chunk is recorded under the run name in the same database transaction as its balances,
+ * in write-behind and event-sourced mode too, so a run stopped halfway, by a crash or a shutdown, resumes
+ * where it was and never adjusts an account twice. A schedule keeps the period of its last finished run
+ * and the run in progress, see {@link #runDue(String, long, Consumer)}.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class BalanceAdjuster {
+    @Language("SQL")
+    private static final String SQL_CREATE_RUNS = "CREATE TABLE IF NOT EXISTS adjustment_runs(run VARCHAR(128) PRIMARY KEY, started BIGINT NOT NULL, finished BIGINT);",
+            SQL_CREATE_CHUNKS = "CREATE TABLE IF NOT EXISTS adjustment_chunks(run VARCHAR(128) NOT NULL, after_subject VARCHAR(36) NOT NULL, after_currency VARCHAR(64) NOT NULL, "
+                    + "last_subject VARCHAR(36) NOT NULL, last_currency VARCHAR(64) NOT NULL, accounts INTEGER NOT NULL, PRIMARY KEY(run, after_subject, after_currency));",
+            SQL_START_RUN = "INSERT INTO adjustment_runs(run, started) VALUES(?, ?) ON CONFLICT(run) DO NOTHING;",
+            SQL_SELECT_RUN = "SELECT finished FROM adjustment_runs WHERE run = ?;",
+            SQL_SELECT_CHUNKS = "SELECT after_subject, after_currency, last_subject, last_currency, accounts FROM adjustment_chunks WHERE run = ? ORDER BY after_subject, after_currency;",
+            SQL_INSERT_CHUNK = "INSERT INTO adjustment_chunks(run, after_subject, after_currency, last_subject, last_currency, accounts) VALUES(?, ?, ?, ?, ?, ?);",
+            SQL_FINISH_RUN = "UPDATE adjustment_runs SET finished = ? WHERE run = ?;",
+            SQL_DELETE_CHUNKS = "DELETE FROM adjustment_chunks WHERE run = ?;",
+            SQL_CREATE_SCHEDULES = "CREATE TABLE IF NOT EXISTS adjustment_schedules(schedule VARCHAR(64) PRIMARY KEY, completed BIGINT NOT NULL, running VARCHAR(128));",
+            SQL_SELECT_SCHEDULE = "SELECT completed, running FROM adjustment_schedules WHERE schedule = ?;",
+            SQL_SELECT_UNFINISHED = "SELECT run FROM adjustment_runs WHERE substr(run, 1, ?) = ? AND finished IS NULL ORDER BY started DESC LIMIT 1;",
+            SQL_INSERT_SCHEDULE = "INSERT INTO adjustment_schedules(schedule, completed, running) VALUES(?, ?, ?);",
+            SQL_START_SCHEDULE = "UPDATE adjustment_schedules SET running = ? WHERE schedule = ?;",
+            SQL_COMPLETE_SCHEDULE = "UPDATE adjustment_schedules SET completed = MAX(completed, ?), running = NULL WHERE schedule = ?;",
+            SQL_DELETE_ABANDONED_CHUNKS = "DELETE FROM adjustment_chunks WHERE substr(run, 1, ?) = ? AND run IS NOT ?;",
+            SQL_DELETE_ABANDONED_RUNS = "DELETE FROM adjustment_runs WHERE substr(run, 1, ?) = ? AND finished IS NULL AND run IS NOT ?;",
+            SQL_COUNT = "SELECT COUNT(*) FROM transactions;",
+            SQL_PAGE = "SELECT subject_id, currency FROM transactions WHERE (subject_id, currency) > (?, ?) ORDER BY subject_id, currency LIMIT ?;",
+            SQL_PAGE_BOUNDED = "SELECT subject_id, currency FROM transactions WHERE (subject_id, currency) > (?, ?) AND (subject_id, currency) <= (?, ?) ORDER BY subject_id, currency LIMIT ?;";
+    private static final Cursor START = new Cursor("", "");
+    private final SimpleTransactionRepository repository;
+    private final StatementPool statements;
+    private final Map<String, LongUnaryOperator> rules;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private volatile boolean stopped;
+
+    /**
+     * @param repository repository of the accounts to adjust
+     * @param rules new balance in minor units out of the current one, per currency, accounts of other currencies are left as they are
+     * @param chunkSize accounts per chunk
+     * @param pool pool the chunks are adjusted on, at most twice its parallelism are in flight
+     */
+    public BalanceAdjuster(@NotNull SimpleTransactionRepository repository, @NotNull Map<String, LongUnaryOperator> rules, int chunkSize, @NotNull ForkJoinPool pool) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("BalanceAdjuster@constructor() | Chunk size must be positive.");
+        this.repository = repository;
+        this.statements = repository.statementPool();
+        this.rules = Map.copyOf(rules);
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Runs, or resumes, the run named {@code run}. A finished run isn't run again.
+     * @param run name of the run
+     * @param listener told the progress after every chunk, from the pool threads
+     * @return progress once finished, or the error that stopped the run
+     */
+    public @NotNull Response<Progress> run(@NotNull String run, @NotNull Consumer<Progress> listener) {
+        return run(run, null, 0, listener);
+    }
+
+    /**
+     * Resumes the unfinished run of {@code schedule}, or starts the one of the current period if the
+     * last finished run is of an older period. Runs are named {@code schedule@period}, a period being
+     * {@code interval} milliseconds since the epoch; periods missed while stopped aren't caught up.
+     * A run stopped halfway is resumed even once its period is over, whatever the clock says.
+     * @param schedule name of the schedule
+     * @param interval length of a period in milliseconds
+     * @param listener told the progress after every chunk, from the pool threads
+     * @return progress once finished, finished without chunks if nothing was due, or the error that stopped the run
+     */
+    public @NotNull Response<Progress> runDue(@NotNull String schedule, long interval, @NotNull Consumer<Progress> listener) {
+        if (interval <= 0) throw new IllegalArgumentException("BalanceAdjuster@runDue() | Interval must be positive.");
+        String run;
+        try {
+            run = due(schedule, System.currentTimeMillis() / interval);
+        } catch (SQLException ok) {
+            return Response.ofNullable(null, ok);
+        }
+        if (run == null) return Response.ofNullable(new Progress(schedule, 0, 0, 0, 0, 0, true), null);
+        long period;
+        try {
+            period = Long.parseLong(run.substring(schedule.length() + 1));
+        } catch (NumberFormatException ok) {
+            // Named by hand, finishing it still completes the schedule up to now.
+            period = System.currentTimeMillis() / interval;
+        }
+        return run(run, schedule, period, listener);
+    }
+
+    private @NotNull Response<Progress> run(@NotNull String run, @Nullable String schedule, long period, @NotNull Consumer<Progress> listener) {
+        long start = System.currentTimeMillis();
+        Exception exception = null;
+        Progress value = null;
+        try {
+            // Accounts pending in memory have no row yet, they'd be skipped.
+            repository.flush().getOrThrow();
+            List<Chunk> done = open(run, start);
+            if (done == null) {
+                if (schedule != null) finish(run, schedule, period);
+                return Response.ofNullable(new Progress(run, 0, 0, 0, 0, 0, true), null);
+            }
+            value = walk(run, done, start, listener);
+            if (value.finished()) finish(run, schedule, period);
+        } catch (Throwable ok) {
+            exception = ok instanceof Exception cause ? cause : new RuntimeException(ok);
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    /**
+     * Stops dispatching chunks, the ones in flight are finished and the run can be resumed later.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Picks the run of the schedule to run now and records it as running, the first time adopting the
+     * last unfinished run of the schedule. Chunks and runs of the schedule left by any other unfinished
+     * run are deleted, they'd never be resumed.
+     * @return name of the run, {@code null} if nothing is due
+     */
+    private @Nullable String due(@NotNull String schedule, long period) throws SQLException {
+        String prefix = schedule + "@";
+        try (Connection connection = statements.borrow()) {
+            createTables(connection);
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long completed = Long.MIN_VALUE;
+                String running = null;
+                boolean known;
+                PreparedStatement statement = statements.prepare(connection, SQL_SELECT_SCHEDULE);
+                statement.setString(1, schedule);
+                try (ResultSet result = statement.executeQuery()) {
+                    known = result.next();
+                    if (known) {
+                        completed = result.getLong(1);
+                        running = result.getString(2);
+                    }
+                }
+                if (!known) {
+                    statement = statements.prepare(connection, SQL_SELECT_UNFINISHED);
+                    statement.setInt(1, prefix.length());
+                    statement.setString(2, prefix);
+                    try (ResultSet result = statement.executeQuery()) {
+                        if (result.next()) running = result.getString(1);
+                    }
+                    statement = statements.prepare(connection, SQL_INSERT_SCHEDULE);
+                    statement.setString(1, schedule);
+                    statement.setLong(2, Long.MIN_VALUE);
+                    statement.setString(3, running);
+                    statement.executeUpdate();
+                }
+                if (running == null && period > completed) {
+                    running = prefix + period;
+                    statement = statements.prepare(connection, SQL_START_SCHEDULE);
+                    statement.setString(1, running);
+                    statement.setString(2, schedule);
+                    statement.executeUpdate();
+                }
+                for (String sql : List.of(SQL_DELETE_ABANDONED_CHUNKS, SQL_DELETE_ABANDONED_RUNS)) {
+                    statement = statements.prepare(connection, sql);
+                    statement.setInt(1, prefix.length());
+                    statement.setString(2, prefix);
+                    statement.setString(3, running);
+                    statement.executeUpdate();
+                }
+                connection.commit();
+                return running;
+            } catch (SQLException ok) {
+                connection.rollback();
+                throw ok;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * @return finished chunks of the run, {@code null} if the whole run is finished
+     */
+    private @Nullable List<Chunk> open(@NotNull String run, long start) throws SQLException {
+        try (Connection connection = statements.borrow()) {
+            createTables(connection);
+            PreparedStatement statement = statements.prepare(connection, SQL_START_RUN);
+            statement.setString(1, run);
+            statement.setLong(2, start);
+            statement.executeUpdate();
+            statement = statements.prepare(connection, SQL_SELECT_RUN);
+            statement.setString(1, run);
+            try (ResultSet result = statement.executeQuery()) {
+                if (result.next() && result.getObject(1) != null) return null;
+            }
+            statement = statements.prepare(connection, SQL_SELECT_CHUNKS);
+            statement.setString(1, run);
+            List<Chunk> done = new ArrayList<>();
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next())
+                    done.add(new Chunk(new Cursor(result.getString(1), result.getString(2)), new Cursor(result.getString(3), result.getString(4)), result.getInt(5)));
+            }
+            return done;
+        }
+    }
+
+    /**
+     * Dispatches every page not covered by a finished chunk. Pages never cross a finished chunk, so
+     * the recorded ranges stay disjoint even if rows were added since the run started.
+     */
+    private @NotNull Progress walk(@NotNull String run, @NotNull List<Chunk> done, long start, @NotNull Consumer<Progress> listener) throws Throwable {
+        long total = count();
+        LongAdder accounts = new LongAdder(), failed = new LongAdder(), chunks = new LongAdder();
+        for (Chunk chunk : done) accounts.add(chunk.accounts());
+        Semaphore inFlight = new Semaphore(pool.getParallelism() * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Cursor cursor = START;
+        int next = 0;
+        while (!stopped && failure.get() == null) {
+            if (next < done.size() && done.get(next).after().equals(cursor)) {
+                cursor = done.get(next++).last();
+                continue;
+            }
+            Cursor bound = next < done.size() ? done.get(next).after() : null;
+            List<Map.Entry<UUID, String>> page = page(cursor, bound);
+            if (page.isEmpty()) {
+                if (bound == null) break;
+                cursor = bound;
+                continue;
+            }
+            Map.Entry<UUID, String> lastRow = page.get(page.size() - 1);
+            Cursor after = cursor, last = new Cursor(lastRow.getKey().toString(), lastRow.getValue());
+            cursor = last;
+            inFlight.acquire();
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    SimpleTransactionRepository.BulkResult result = repository.adjustAll(page, rules, connection -> record(connection, run, new Chunk(after, last, page.size()))).getOrThrow();
+                    accounts.add(page.size());
+                    failed.add(result.failed().size());
+                    chunks.increment();
+                    listener.accept(new Progress(run, accounts.sum(), failed.sum(), total, chunks.sum(), System.currentTimeMillis() - start, false));
+                } catch (Throwable ok) {
+                    failure.compareAndSet(null, ok);
+                } finally {
+                    inFlight.release();
+                }
+            }, pool));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        if (failure.get() != null) throw failure.get();
+        return new Progress(run, accounts.sum(), failed.sum(), total, chunks.sum(), System.currentTimeMillis() - start, !stopped);
+    }
+
+    private @NotNull List<Map.Entry<UUID, String>> page(@NotNull Cursor after, @Nullable Cursor bound) throws SQLException {
+        try (Connection connection = statements.borrowRead()) {
+            PreparedStatement statement = statements.prepare(connection, bound == null ? SQL_PAGE : SQL_PAGE_BOUNDED);
+            statement.setString(1, after.subjectId());
+            statement.setString(2, after.currencyName());
+            int index = 3;
+            if (bound != null) {
+                statement.setString(index++, bound.subjectId());
+                statement.setString(index++, bound.currencyName());
+            }
+            statement.setInt(index, chunkSize);
+            List<Map.Entry<UUID, String>> page = new ArrayList<>(chunkSize);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) page.add(Map.entry(UUID.fromString(result.getString(1)), result.getString(2)));
+            }
+            return page;
+        }
+    }
+
+    private long count() throws SQLException {
+        try (Connection connection = statements.borrowRead(); ResultSet result = statements.prepare(connection, SQL_COUNT).executeQuery()) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+
+    private void record(@NotNull Connection connection, @NotNull String run, @NotNull Chunk chunk) throws SQLException {
+        PreparedStatement statement = statements.prepare(connection, SQL_INSERT_CHUNK);
+        statement.setString(1, run);
+        statement.setString(2, chunk.after().subjectId());
+        statement.setString(3, chunk.after().currencyName());
+        statement.setString(4, chunk.last().subjectId());
+        statement.setString(5, chunk.last().currencyName());
+        statement.setInt(6, chunk.accounts());
+        statement.executeUpdate();
+    }
+
+    /**
+     * Marks the run finished, drops its chunks and, if it belongs to {@code schedule}, completes its period.
+     */
+    private void finish(@NotNull String run, @Nullable String schedule, long period) throws SQLException {
+        try (Connection connection = statements.borrow()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement statement = statements.prepare(connection, SQL_FINISH_RUN);
+                statement.setLong(1, System.currentTimeMillis());
+                statement.setString(2, run);
+                statement.executeUpdate();
+                statement = statements.prepare(connection, SQL_DELETE_CHUNKS);
+                statement.setString(1, run);
+                statement.executeUpdate();
+                if (schedule != null) {
+                    statement = statements.prepare(connection, SQL_COMPLETE_SCHEDULE);
+                    statement.setLong(1, period);
+                    statement.setString(2, schedule);
+                    statement.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException ok) {
+                connection.rollback();
+                throw ok;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private static void createTables(@NotNull Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(SQL_CREATE_RUNS);
+            statement.executeUpdate(SQL_CREATE_CHUNKS);
+            statement.executeUpdate(SQL_CREATE_SCHEDULES);
+        }
+    }
+
+    /**
+     * Database work done in the same transaction that writes a chunk.
+     */
+    @FunctionalInterface
+    interface Checkpoint {
+        void write(@NotNull Connection connection) throws SQLException;
+    }
+
+    /**
+     * @param run name of the run
+     * @param accounts accounts walked so far, including the ones of previous attempts
+     * @param failed accounts of this attempt left as they were, their balance overflowed or couldn't be loaded
+     * @param total accounts when the attempt started
+     * @param chunks chunks adjusted by this attempt
+     * @param millis time taken by this attempt
+     * @param finished {@code true} once every account is adjusted
+     */
+    public record Progress(@NotNull String run, long accounts, long failed, long total, long chunks, long millis, boolean finished) {
+    }
+
+    private record Cursor(@NotNull String subjectId, @NotNull String currencyName) {
+    }
+
+    private record Chunk(@NotNull Cursor after, @NotNull Cursor last, int accounts) {
+    }
+}
@@ -0,0 +1,409 @@
+package io.github.joshy56.transaction;
+
+import io.github.joshy56.response.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the balances kept in memory by write-behind and event-sourced repositories,
+ * written through a memory-mapped file. Every change is logged, and forced to disk according to
+ * the {@link ForcePolicy}, before the caller gets its answer. Once the repository has persisted
+ * everything the log is checkpointed, which starts it over.
+ * <p>
+ * Layout: an 8 byte epoch header followed by records of
+ * {@code length:int epoch:long msb:long lsb:long balance:long nameLength:short name:bytes crc:int}.
+ * The top bit of {@code nameLength} marks a record continued by the next one, records logged
+ * together are replayed all or none. Starting over bumps the epoch, so older records stop the scan
+ * without wiping the file.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class BalanceWal implements AutoCloseable {
+    private static final int HEADER = Long.BYTES,
+            RECORD_OVERHEAD = Integer.BYTES + Long.BYTES * 4 + Short.BYTES + Integer.BYTES,
+            CONTINUED = 0x8000;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final ForcePolicy policy;
+    private final ReadWriteLock checkpointLock;
+    private final Object forceMonitor;
+    private final AtomicBoolean checkpointQueued;
+    private final ScheduledExecutorService worker;
+    private final List<Record> recovered;
+    @Nullable
+    private volatile Supplier<Response<Void>> persister;
+    private long epoch, written, forced;
+    private volatile int position;
+    private volatile boolean closed;
+
+    /**
+     * Maps {@code file}, creating it if needed, and reads the records left by the previous run.
+     * @param file log file
+     * @param capacity size of the mapping in bytes
+     * @param policy when records are forced to disk
+     * @param forceInterval time between forces for {@link ForcePolicy#GROUP}
+     * @param unit unit of {@code forceInterval}
+     * @throws IOException if the file can't be mapped
+     */
+    public BalanceWal(@NotNull Path file, int capacity, @NotNull ForcePolicy policy, long forceInterval, @NotNull TimeUnit unit) throws IOException {
+        if (capacity <= HEADER + RECORD_OVERHEAD) throw new IllegalArgumentException("BalanceWal@constructor() | Capacity too small: " + capacity);
+        if (policy == ForcePolicy.GROUP && forceInterval <= 0) throw new IllegalArgumentException("BalanceWal@constructor() | Force interval must be positive.");
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        this.capacity = capacity;
+        this.policy = policy;
+        this.checkpointLock = new ReentrantReadWriteLock();
+        this.forceMonitor = new Object();
+        this.checkpointQueued = new AtomicBoolean();
+        this.epoch = buffer.getLong(0);
+        this.recovered = new ArrayList<>();
+        this.position = scan(recovered);
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "economic-wal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (policy == ForcePolicy.GROUP) worker.scheduleWithFixedDelay(this::force, forceInterval, forceInterval, unit);
+    }
+
+    /**
+     * @return balances logged by the previous run and maybe never persisted, oldest first
+     */
+    @NotNull
+    List<Record> recovered() {
+        return List.copyOf(recovered);
+    }
+
+    /**
+     * Sets how to persist everything the log covers, needed before the log can be checkpointed.
+     * @param persister writes every pending balance and answers with the error, if any
+     */
+    void persister(@NotNull Supplier<Response<Void>> persister) {
+        this.persister = persister;
+    }
+
+    /**
+     * Logs a new balance, runs {@code apply} and waits until the record is durable. A checkpoint
+     * never falls between the record and {@code apply}, so it can't miss the change.
+     * @param subjectId owner of the account
+     * @param currencyName currency of the account
+     * @param balance new balance in minor units
+     * @param apply in-memory change the record covers
+     */
+    void append(@NotNull UUID subjectId, @NotNull String currencyName, long balance, @NotNull Runnable apply) {
+        appendAll(List.of(new Record(subjectId, currencyName, balance)), Function.identity(), record -> apply.run());
+    }
+
+    /**
+     * Same as {@link #append(UUID, String, long, Runnable)} for many balances: records are written in
+     * as few runs as fit the log, {@code apply} runs for every change right after its record, and the
+     * caller waits once, for the force covering the last record, instead of once per record.
+     * @param changes changes to log, in order
+     * @param recordOf balance logged for a change
+     * @param apply in-memory change a record covers
+     */
+    <T> void appendAll(@NotNull List<T> changes, @NotNull Function<T, Record> recordOf, @NotNull Consumer<T> apply) {
+        if (changes.isEmpty()) return;
+        List<Record> records = new ArrayList<>(changes.size());
+        List<byte[]> names = new ArrayList<>(changes.size());
+        for (T change : changes) {
+            Record record = recordOf.apply(change);
+            records.add(record);
+            names.add(nameOf(record));
+        }
+        long end = -1;
+        int next = 0;
+        while (true) {
+            checkpointLock.readLock().lock();
+            try {
+                for (; next < records.size(); next++) {
+                    Record record = records.get(next);
+                    byte[] name = names.get(next);
+                    long written = write(record.subjectId(), name, record.balance(), RECORD_OVERHEAD + name.length, false);
+                    if (written < 0) break;
+                    end = written;
+                    apply.accept(changes.get(next));
+                }
+            } finally {
+                checkpointLock.readLock().unlock();
+            }
+            if (next == records.size()) break;
+            checkpointFull();
+        }
+        appended(end);
+    }
+
+    /**
+     * Same as {@link #append(UUID, String, long, Runnable)} for balances that must change together, like
+     * both legs of a transfer: the records are logged in one run, a replay sees all of them or none, and
+     * {@code apply} runs once after the last one.
+     * @param records balances to log, in order
+     * @param apply in-memory change the records cover
+     */
+    void appendTogether(@NotNull List<Record> records, @NotNull Runnable apply) {
+        if (records.isEmpty()) return;
+        List<byte[]> names = new ArrayList<>(records.size());
+        int size = 0;
+        for (Record record : records) {
+            byte[] name = nameOf(record);
+            names.add(name);
+            size += RECORD_OVERHEAD + name.length;
+        }
+        if (size > capacity - HEADER) throw new IllegalArgumentException("BalanceWal@appendTogether() | Records larger than the log.");
+        long end;
+        while (true) {
+            checkpointLock.readLock().lock();
+            try {
+                end = writeTogether(records, names, size);
+                if (end >= 0) {
+                    apply.run();
+                    break;
+                }
+            } finally {
+                checkpointLock.readLock().unlock();
+            }
+            checkpointFull();
+        }
+        appended(end);
+    }
+
+    /**
+     * Full, nothing else can be logged until the repository persists what's covered.
+     */
+    private void checkpointFull() {
+        Response<Void> response = checkpoint();
+        try {
+            response.getOrThrow();
+        } catch (Throwable ok) {
+            throw new IllegalStateException("BalanceWal@append() | Log full and can't be checkpointed.", ok);
+        }
+    }
+
+    /**
+     * Queues a checkpoint once the log is filling up and waits until the records up to {@code end} are durable.
+     */
+    private void appended(long end) {
+        if (position > capacity / 4 * 3 && checkpointQueued.compareAndSet(false, true)) {
+            try {
+                worker.execute(() -> {
+                    checkpointQueued.set(false);
+                    checkpoint();
+                });
+            } catch (RejectedExecutionException ok) {
+                checkpointQueued.set(false);
+            }
+        }
+        awaitDurable(end);
+    }
+
+    /**
+     * Persists everything the log covers through the persister and starts the log over.
+     * Appends wait meanwhile. If persisting fails the log is kept untouched.
+     * @return an empty response or the error of the persister
+     */
+    @NotNull
+    Response<Void> checkpoint() {
+        Supplier<Response<Void>> persister = this.persister;
+        if (persister == null) return Response.ofNullable(null, new IllegalStateException("BalanceWal@checkpoint() | No persister set."));
+        Exception exception = null;
+        checkpointLock.writeLock().lock();
+        try {
+            persister.get().getOrThrow();
+            reset();
+        } catch (Throwable ok) {
+            exception = ok instanceof Exception cause ? cause : new RuntimeException(ok);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+        return Response.ofNullable(null, exception);
+    }
+
+    /**
+     * Starts the log over without persisting, for when the caller already persisted everything.
+     */
+    void reset() {
+        long target;
+        synchronized (this) {
+            epoch++;
+            buffer.putLong(0, epoch);
+            position = HEADER;
+            target = written;
+        }
+        buffer.force();
+        synchronized (forceMonitor) {
+            forced = Math.max(forced, target);
+            forceMonitor.notifyAll();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        worker.shutdown();
+        try {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ok) {
+            Thread.currentThread().interrupt();
+        }
+        force();
+        synchronized (forceMonitor) {
+            forceMonitor.notifyAll();
+        }
+        channel.close();
+    }
+
+    private byte @NotNull [] nameOf(@NotNull Record record) {
+        byte[] name = record.currencyName().getBytes(StandardCharsets.UTF_8);
+        if (name.length >= CONTINUED || RECORD_OVERHEAD + name.length > capacity - HEADER) throw new IllegalArgumentException("BalanceWal@append() | Record larger than the log: " + record.currencyName());
+        return name;
+    }
+
+    /**
+     * @return logical end of the last record, or {@code -1} if they don't fit together
+     */
+    private synchronized long writeTogether(@NotNull List<Record> records, @NotNull List<byte[]> names, int size) {
+        if (capacity - position < size) return -1;
+        long end = -1;
+        for (int index = 0; index < records.size(); index++) {
+            Record record = records.get(index);
+            byte[] name = names.get(index);
+            end = write(record.subjectId(), name, record.balance(), RECORD_OVERHEAD + name.length, index < records.size() - 1);
+        }
+        return end;
+    }
+
+    /**
+     * @param continued {@code true} if the next record belongs to the same change
+     * @return logical end of the record, or {@code -1} if it doesn't fit
+     */
+    private synchronized long write(@NotNull UUID subjectId, byte @NotNull [] name, long balance, int size, boolean continued) {
+        if (capacity - position < size) return -1;
+        int start = position, index = start + Integer.BYTES;
+        buffer.putInt(start, size);
+        buffer.putLong(index, epoch);
+        buffer.putLong(index += Long.BYTES, subjectId.getMostSignificantBits());
+        buffer.putLong(index += Long.BYTES, subjectId.getLeastSignificantBits());
+        buffer.putLong(index += Long.BYTES, balance);
+        buffer.putShort(index += Long.BYTES, (short) (continued ? name.length | CONTINUED : name.length));
+        buffer.put(index += Short.BYTES, name);
+        index += name.length;
+        buffer.putInt(index, checksum(start + Integer.BYTES, index - start - Integer.BYTES));
+        position += size;
+        written += size;
+        return written;
+    }
+
+    private void awaitDurable(long end) {
+        if (policy == ForcePolicy.PER_OPERATION) {
+            force();
+            return;
+        }
+        synchronized (forceMonitor) {
+            while (forced < end && !closed) {
+                try {
+                    forceMonitor.wait();
+                } catch (InterruptedException ok) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void force() {
+        long target;
+        synchronized (this) {
+            target = written;
+        }
+        synchronized (forceMonitor) {
+            if (forced >= target) return;
+            buffer.force();
+            forced = target;
+            forceMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Reads the records of the current epoch into {@code records}, leaving out a last change whose
+     * records weren't all logged.
+     * @return position right after the last valid change
+     */
+    private int scan(@NotNull List<Record> records) {
+        int start = HEADER, end = HEADER;
+        List<Record> change = new ArrayList<>();
+        while (capacity - start >= RECORD_OVERHEAD) {
+            int size = buffer.getInt(start);
+            if (size < RECORD_OVERHEAD || size > capacity - start) break;
+            int index = start + Integer.BYTES;
+            if (buffer.getLong(index) != epoch) break;
+            UUID subjectId = new UUID(buffer.getLong(index += Long.BYTES), buffer.getLong(index += Long.BYTES));
+            long balance = buffer.getLong(index += Long.BYTES);
+            int nameLength = buffer.getShort(index += Long.BYTES) & 0xFFFF;
+            boolean continued = (nameLength & CONTINUED) != 0;
+            nameLength &= ~CONTINUED;
+            if (nameLength != size - RECORD_OVERHEAD) break;
+            byte[] name = new byte[nameLength];
+            buffer.get(index += Short.BYTES, name);
+            index += nameLength;
+            if (buffer.getInt(index) != checksum(start + Integer.BYTES, index - start - Integer.BYTES)) break;
+            change.add(new Record(subjectId, new String(name, StandardCharsets.UTF_8), balance));
+            start += size;
+            if (continued) continue;
+            records.addAll(change);
+            change.clear();
+            end = start;
+        }
+        return end;
+    }
+
+    private int checksum(int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * When logged records reach the disk.
+     */
+    public enum ForcePolicy {
+        /**
+         * Every record is forced before its caller continues.
+         */
+        PER_OPERATION,
+        /**
+         * Records are forced together every interval, callers wait for the force covering theirs.
+         */
+        GROUP
+    }
+
+    /**
+     * A logged balance.
+     * @param subjectId owner of the account
+     * @param currencyName currency of the account
+     * @param balance balance in minor units
+     */
+    record Record(@NotNull UUID subjectId, @NotNull String currencyName, long balance) {
+    }
+}
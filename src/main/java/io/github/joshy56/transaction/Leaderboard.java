@@ -0,0 +1,295 @@
+package io.github.joshy56.transaction;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Balances of the accounts sorted per currency, richest first. A currency is only ranked once asked
+ * for, its balances are then loaded through the {@link Loader} and kept up to date by
+ * {@link SimpleTransactionRepository} on every write; until then writes to it cost nothing. Each
+ * currency is an order statistic treap, so top-N costs O(log n + N) and the rank of a subject O(log n).
+ * <p>
+ * The first question about a currency reads all of its balances, so it's better asked off the main thread.
+ * A ranked account takes around 137 bytes of heap, in off-heap mode too.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class Leaderboard {
+    private final ConcurrentMap<String, Board> boards;
+    private final Loader loader;
+
+    /**
+     * @param loader reads the balances of a currency the first time it's ranked
+     */
+    Leaderboard(@NotNull Loader loader) {
+        this.boards = new ConcurrentHashMap<>();
+        this.loader = loader;
+    }
+
+    /**
+     * @param currencyName currency to rank
+     * @param limit max amount of entries
+     * @return richest accounts of the currency, richest first
+     * @throws IllegalStateException if the balances of the currency can't be loaded
+     */
+    @NotNull
+    public List<Entry> top(@NotNull String currencyName, int limit) {
+        return limit <= 0 ? List.of() : board(currencyName).top(limit);
+    }
+
+    /**
+     * @param subjectId owner of the account
+     * @param currencyName currency to rank
+     * @return position of the account, starting at 1, or 0 if it has no balance on the currency
+     * @throws IllegalStateException if the balances of the currency can't be loaded
+     */
+    public int rank(@NotNull UUID subjectId, @NotNull String currencyName) {
+        return board(currencyName).rank(subjectId);
+    }
+
+    /**
+     * @param currencyName currency to count
+     * @return amount of ranked accounts of the currency
+     * @throws IllegalStateException if the balances of the currency can't be loaded
+     */
+    public int size(@NotNull String currencyName) {
+        return board(currencyName).size();
+    }
+
+    void update(@NotNull UUID subjectId, @NotNull String currencyName, long balance) {
+        Board board = boards.get(currencyName);
+        if (board != null) board.put(subjectId, balance);
+    }
+
+    void remove(@NotNull UUID subjectId, @NotNull String currencyName) {
+        Board board = boards.get(currencyName);
+        if (board != null) board.remove(subjectId);
+    }
+
+    /**
+     * Forgets every ranked currency, each one is loaded again the next time it's asked for.
+     */
+    void clear() {
+        boards.clear();
+    }
+
+    /**
+     * Writes made while loading go straight to the board, the loader only fills in the accounts they
+     * didn't touch, so a balance read before a write can't overwrite it.
+     */
+    @NotNull
+    private Board board(@NotNull String currencyName) {
+        Board board = boards.get(currencyName);
+        if (board == null) {
+            Board created = new Board();
+            board = boards.putIfAbsent(currencyName, created);
+            if (board == null) board = created;
+        }
+        if (board.loaded) return board;
+        synchronized (board.loadLock) {
+            if (board.loaded) return board;
+            try {
+                loader.load(currencyName, board::putIfAbsent);
+            } catch (SQLException | RuntimeException ok) {
+                boards.remove(currencyName, board);
+                throw new IllegalStateException("Leaderboard@board() | Can't load the balances of " + currencyName + ".", ok);
+            }
+            board.loaded();
+        }
+        return board;
+    }
+
+    /**
+     * Reads the balances of one currency, the pending ones first.
+     */
+    @FunctionalInterface
+    interface Loader {
+        /**
+         * @param currencyName currency to read
+         * @param sink told the subject and balance, in minor units, of every account of the currency
+         */
+        void load(@NotNull String currencyName, @NotNull ObjLongConsumer<UUID> sink) throws SQLException;
+    }
+
+    /**
+     * @param subjectId owner of the account
+     * @param balance balance in minor units of the currency
+     */
+    public record Entry(@NotNull UUID subjectId, long balance) {
+    }
+
+    private static final class Board {
+        private final Map<UUID, Long> balances = new HashMap<>();
+        private final Object loadLock = new Object();
+        /**
+         * Accounts removed while loading, the loader may still read them.
+         */
+        @Nullable
+        private Set<UUID> removed = new HashSet<>();
+        private volatile boolean loaded;
+        @Nullable
+        private Node root;
+
+        synchronized void put(@NotNull UUID subjectId, long balance) {
+            Long previous = balances.put(subjectId, balance);
+            if (previous != null) {
+                if (previous == balance) return;
+                root = delete(root, previous, subjectId);
+            }
+            root = insert(root, new Node(balance, subjectId));
+        }
+
+        synchronized void putIfAbsent(@NotNull UUID subjectId, long balance) {
+            if (balances.containsKey(subjectId) || removed != null && removed.contains(subjectId)) return;
+            balances.put(subjectId, balance);
+            root = insert(root, new Node(balance, subjectId));
+        }
+
+        synchronized void remove(@NotNull UUID subjectId) {
+            if (removed != null) removed.add(subjectId);
+            Long previous = balances.remove(subjectId);
+            if (previous != null) root = delete(root, previous, subjectId);
+        }
+
+        synchronized void loaded() {
+            removed = null;
+            loaded = true;
+        }
+
+        synchronized int size() {
+            return balances.size();
+        }
+
+        synchronized int rank(@NotNull UUID subjectId) {
+            Long balance = balances.get(subjectId);
+            if (balance == null) return 0;
+            int before = 0;
+            Node node = root;
+            while (node != null) {
+                int order = compare(balance, subjectId, node);
+                if (order == 0) return before + sizeOf(node.left) + 1;
+                if (order < 0) node = node.left;
+                else {
+                    before += sizeOf(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return 0;
+        }
+
+        synchronized List<Entry> top(int limit) {
+            List<Entry> entries = new ArrayList<>(Math.min(limit, balances.size()));
+            collect(root, entries, limit);
+            return entries;
+        }
+
+        private static void collect(@Nullable Node node, @NotNull List<Entry> entries, int limit) {
+            if (node == null || entries.size() >= limit) return;
+            collect(node.left, entries, limit);
+            if (entries.size() >= limit) return;
+            entries.add(new Entry(node.subjectId, node.balance));
+            collect(node.right, entries, limit);
+        }
+
+        @NotNull
+        private static Node insert(@Nullable Node node, @NotNull Node inserted) {
+            if (node == null) return inserted;
+            if (inserted.priority > node.priority) {
+                Node[] halves = split(node, inserted.balance, inserted.subjectId);
+                inserted.left = halves[0];
+                inserted.right = halves[1];
+                return inserted.update();
+            }
+            if (compare(inserted.balance, inserted.subjectId, node) < 0) node.left = insert(node.left, inserted);
+            else node.right = insert(node.right, inserted);
+            return node.update();
+        }
+
+        @Nullable
+        private static Node delete(@Nullable Node node, long balance, @NotNull UUID subjectId) {
+            if (node == null) return null;
+            int order = compare(balance, subjectId, node);
+            if (order == 0) return merge(node.left, node.right);
+            if (order < 0) node.left = delete(node.left, balance, subjectId);
+            else node.right = delete(node.right, balance, subjectId);
+            return node.update();
+        }
+
+        /**
+         * @return nodes ranked before the key and nodes ranked after it
+         */
+        @Nullable
+        private static Node @NotNull [] split(@Nullable Node node, long balance, @NotNull UUID subjectId) {
+            if (node == null) return new Node[2];
+            if (compare(balance, subjectId, node) < 0) {
+                Node[] halves = split(node.left, balance, subjectId);
+                node.left = halves[1];
+                halves[1] = node.update();
+                return halves;
+            }
+            Node[] halves = split(node.right, balance, subjectId);
+            node.right = halves[0];
+            halves[0] = node.update();
+            return halves;
+        }
+
+        @Nullable
+        private static Node merge(@Nullable Node left, @Nullable Node right) {
+            if (left == null) return right;
+            if (right == null) return left;
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                return left.update();
+            }
+            right.left = merge(left, right.left);
+            return right.update();
+        }
+
+        /**
+         * Richer accounts go first, ties are broken by subject so every account has one place.
+         */
+        private static int compare(long balance, @NotNull UUID subjectId, @NotNull Node node) {
+            int order = Long.compare(node.balance, balance);
+            return order != 0 ? order : subjectId.compareTo(node.subjectId);
+        }
+
+        private static int sizeOf(@Nullable Node node) {
+            return node == null ? 0 : node.size;
+        }
+
+        private static final class Node {
+            private final long balance;
+            private final UUID subjectId;
+            private final int priority;
+            private int size;
+            @Nullable
+            private Node left, right;
+
+            private Node(long balance, @NotNull UUID subjectId) {
+                this.balance = balance;
+                this.subjectId = subjectId;
+                this.priority = ThreadLocalRandom.current().nextInt();
+                this.size = 1;
+            }
+
+            @NotNull
+            private Node update() {
+                size = 1 + sizeOf(left) + sizeOf(right);
+                return this;
+            }
+        }
+    }
+}
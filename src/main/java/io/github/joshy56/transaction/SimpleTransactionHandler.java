@@ -1,6 +1,7 @@
 package io.github.joshy56.transaction;
 
 import io.github.joshy56.Economic;
+import io.github.joshy56.currency.MinorUnits;
 import io.github.joshy56.currency.SimpleCurrency;
 import io.github.joshy56.currency.CurrencyRepository;
 import io.github.joshy56.response.Response;
@@ -9,6 +10,9 @@ import io.github.joshy56.subject.Subject;
 import io.github.joshy56.subject.SubjectRepository;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -46,10 +50,7 @@ public class SimpleTransactionHandler implements TransactionHandler {
 
         try {
             TransactionRepository repository = economic.transactions().getOrThrow();
-            Transaction lastTransaction = repository.get(subjectId, currencyName).getOrThrow();
-            Transaction newTransaction = new Transaction(currencyName, subjectId, (lastTransaction.amount() - amount));
-            boolean opValue = repository.set(newTransaction).getOrThrow();
-            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(opValue));
+            return update(repository, subjectId, currencyName, -amount);
         } catch (Throwable ok) {
             return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't withdraw $%f to user with id: '%s' on currency with name: %s", amount, subjectId, currencyName), ok)), Optional.of(false));
         }
@@ -63,32 +64,127 @@ public class SimpleTransactionHandler implements TransactionHandler {
 
         try {
             TransactionRepository repository = economic.transactions().getOrThrow();
-            Transaction lastTransaction = repository.get(subjectId, currencyName).getOrThrow();
-            Transaction newTransaction = new Transaction(currencyName, subjectId, (lastTransaction.amount() + amount));
-            boolean opValue = repository.set(newTransaction).getOrThrow();
-            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(opValue));
+            return update(repository, subjectId, currencyName, amount);
         } catch (Throwable ok) {
             return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't deposit $%f to user with id: '%s' on currency with name: %s", amount, subjectId, currencyName), ok)), Optional.of(false));
         }
     }
 
+    /**
+     * Moves money between two subjects atomically, see {@link SimpleTransactionRepository#transfer(UUID, UUID, String, double)}.
+     * Falls back to withdraw then deposit when the repository isn't a {@link SimpleTransactionRepository}.
+     * @param from subject that pays
+     * @param to subject that receives
+     * @param currencyName currency to move
+     * @param amount positive amount to move
+     * @return {@code true} if moved, {@code false} if {@code from} hasn't enough money
+     */
+    public Response<Boolean> transfer(UUID from, UUID to, String currencyName, double amount) {
+        if (amount < 0)
+            return new Response<>(ResponseCode.ERROR, Optional.of(new IllegalArgumentException("Can't transfer negative amount")), Optional.of(false));
+        if (from.equals(to))
+            return new Response<>(ResponseCode.ERROR, Optional.of(new IllegalArgumentException("Can't transfer to the same subject")), Optional.of(false));
+        if (amount == 0) return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(true));
+
+        try {
+            TransactionRepository repository = economic.transactions().getOrThrow();
+            if (repository instanceof SimpleTransactionRepository simpleRepository) {
+                boolean opValue = simpleRepository.transfer(from, to, currencyName, amount).getOrThrow();
+                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(opValue));
+            }
+            if (!enoughMoney(from, currencyName, amount).getOrThrow())
+                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(false));
+            boolean opValue = withdraw(from, currencyName, amount).getOrThrow() && deposit(to, currencyName, amount).getOrThrow();
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(opValue));
+        } catch (Throwable ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't transfer $%f from user with id: '%s' to user with id: '%s' on currency with name: %s", amount, from, to, currencyName), ok)), Optional.of(false));
+        }
+    }
+
+    /**
+     * Pays every subject its amount in one batch, see {@link SimpleTransactionRepository#addAllMinor(String, Map, TransactionKind)}.
+     * Falls back to one {@link #deposit(UUID, String, double)} per subject when the repository isn't a {@link SimpleTransactionRepository}.
+     * @param currencyName currency to pay
+     * @param amounts positive amount per subject
+     * @return subjects paid and why the others failed
+     */
+    public Response<SimpleTransactionRepository.BulkResult> depositAll(String currencyName, Map<UUID, Double> amounts) {
+        return updateAll(currencyName, amounts, false);
+    }
+
+    /**
+     * Charges every subject its amount in one batch, subjects without enough money fail alone.
+     * Falls back to one {@link #withdraw(UUID, String, double)} per subject when the repository isn't a {@link SimpleTransactionRepository}.
+     * @param currencyName currency to charge
+     * @param amounts positive amount per subject
+     * @return subjects charged and why the others failed
+     */
+    public Response<SimpleTransactionRepository.BulkResult> withdrawAll(String currencyName, Map<UUID, Double> amounts) {
+        return updateAll(currencyName, amounts, true);
+    }
+
+    /**
+     * Balance without the {@link Response} and boxing of {@link #balance(UUID, String)}, for hot checks.
+     * @param subjectId owner of the account
+     * @param currencyName currency of the account
+     * @return balance in minor units of the currency, zero if the account doesn't exist
+     * @throws IllegalStateException if the balance can't be loaded
+     */
+    public long balanceMinor(UUID subjectId, String currencyName) {
+        try {
+            TransactionRepository repository = economic.transactions().getOrThrow();
+            if (repository instanceof SimpleTransactionRepository simpleRepository)
+                return simpleRepository.balanceMinor(subjectId, currencyName);
+            return MinorUnits.toMinor(repository.get(subjectId, currencyName).getOrThrow().amount(), MinorUnits.DEFAULT_SCALE);
+        } catch (IllegalStateException ok) {
+            throw ok;
+        } catch (Throwable ok) {
+            throw new IllegalStateException(String.format("Can't get balance of user with id: '%s' on currency with name: %s", subjectId, currencyName), ok);
+        }
+    }
+
     @Override
     public Response<Boolean> enoughMoney(UUID subjectId, String currencyName, double amount) {
         try {
-            double balance = balance(subjectId, currencyName).getOrThrow();
-            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(((balance - amount) >= 0)));
+            TransactionRepository repository = economic.transactions().getOrThrow();
+            long balance = balanceMinor(subjectId, currencyName);
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(balance >= MinorUnits.toMinor(amount, scaleOf(repository, currencyName))));
         } catch (Throwable ok) {
             return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't test if user with id: '%s' has amount $%f on currency with name: %s", subjectId, amount, currencyName))), Optional.of(false));
         }
     }
 
+    /**
+     * Every balance of a subject at once, see {@link SimpleTransactionRepository#wallet(UUID)}. Cheaper than
+     * {@link #currenciesOf(UUID)} plus one {@link #balance(UUID, String)} per currency.
+     * @param subjectId owner of the balances
+     * @return wallet of the subject, empty if it has no balance
+     */
+    public Response<Wallet> balances(UUID subjectId) {
+        try {
+            TransactionRepository repository = economic.transactions().getOrThrow();
+            if (repository instanceof SimpleTransactionRepository simpleRepository)
+                return simpleRepository.wallet(subjectId);
+            Wallet wallet = Wallet.of(repository.getAllOfSubject(subjectId).getOrThrow(), currencyName -> MinorUnits.DEFAULT_SCALE);
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(wallet));
+        } catch (Throwable ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't get balances of user with id: '%s'", subjectId.toString()), ok)), Optional.empty());
+        }
+    }
+
     @Override
     public Response<Set<SimpleCurrency>> currenciesOf(UUID subjectId) {
         try {
             TransactionRepository transactionRepository = economic.transactions().getOrThrow();
             CurrencyRepository currencyRepository = economic.currencies().getOrThrow();
-            Set<String> currenciesNames = transactionRepository.getAllOfSubject(subjectId).getOrThrow().parallelStream().map(Transaction::currencyName).collect(Collectors.toSet());
-            Set<SimpleCurrency> currencies = currencyRepository.getThey(currenciesNames).getOrThrow();
+            Set<String> currenciesNames;
+            if (transactionRepository instanceof SimpleTransactionRepository simpleRepository) {
+                Wallet wallet = simpleRepository.wallet(subjectId).getOrThrow();
+                currenciesNames = new HashSet<>(wallet.size());
+                for (int index = 0; index < wallet.size(); index++) currenciesNames.add(wallet.currencyName(index));
+            } else
+                currenciesNames = transactionRepository.getAllOfSubject(subjectId).getOrThrow().parallelStream().map(Transaction::currencyName).collect(Collectors.toSet());
+            Set<SimpleCurrency> currencies = currencyRepository.getAllOfThem(currenciesNames).getOrThrow().stream().filter(SimpleCurrency.class::isInstance).map(SimpleCurrency.class::cast).collect(Collectors.toSet());
             return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(currencies));
         } catch (Throwable ok) {
             return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't get currencies of user with id: '%s'", subjectId.toString()), ok)), Optional.empty());
@@ -101,10 +197,74 @@ public class SimpleTransactionHandler implements TransactionHandler {
             TransactionRepository transactionRepository = economic.transactions().getOrThrow();
             SubjectRepository subjectRepository = economic.subjects().getOrThrow();
             Set<UUID> subjectsIds = transactionRepository.getAllOfCurrency(currencyName).getOrThrow().parallelStream().map(Transaction::subjectIdentifier).collect(Collectors.toSet());
-            Set<Subject> subjects = subjectRepository.getThey(subjectsIds).getOrThrow();
+            Set<Subject> subjects = subjectRepository.getAllOfThem(subjectsIds).getOrThrow();
             return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(subjects));
         } catch (Throwable ok) {
             return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't get subjects of currency with name: '%s'", currencyName), ok)), Optional.empty());
         }
     }
+
+    private Response<SimpleTransactionRepository.BulkResult> updateAll(String currencyName, Map<UUID, Double> amounts, boolean withdraw) {
+        try {
+            TransactionRepository repository = economic.transactions().getOrThrow();
+            int scale = scaleOf(repository, currencyName);
+            Map<UUID, Long> minorAmounts = new HashMap<>(amounts.size());
+            Map<UUID, Exception> failed = new HashMap<>();
+            amounts.forEach((subjectId, amount) -> {
+                if (amount < 0) failed.put(subjectId, new IllegalArgumentException("Can't " + (withdraw ? "withdraw" : "deposit") + " negative amount"));
+                else if (amount > 0) minorAmounts.put(subjectId, withdraw ? -MinorUnits.toMinor(amount, scale) : MinorUnits.toMinor(amount, scale));
+            });
+            if (repository instanceof SimpleTransactionRepository simpleRepository) {
+                SimpleTransactionRepository.BulkResult result = simpleRepository.addAllMinor(currencyName, minorAmounts, withdraw ? TransactionKind.WITHDRAW : TransactionKind.DEPOSIT).getOrThrow();
+                failed.putAll(result.failed());
+                return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(new SimpleTransactionRepository.BulkResult(result.applied(), failed)));
+            }
+            Set<UUID> applied = new HashSet<>();
+            for (UUID subjectId : minorAmounts.keySet()) {
+                double amount = amounts.get(subjectId);
+                try {
+                    if ((withdraw ? withdraw(subjectId, currencyName, amount) : deposit(subjectId, currencyName, amount)).getOrThrow()) applied.add(subjectId);
+                } catch (Throwable ok) {
+                    failed.put(subjectId, ok instanceof Exception cause ? cause : new RuntimeException(ok));
+                }
+            }
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(new SimpleTransactionRepository.BulkResult(applied, failed)));
+        } catch (Throwable ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't %s %d users on currency with name: %s", withdraw ? "charge" : "pay", amounts.size(), currencyName), ok)), Optional.empty());
+        }
+    }
+
+    /**
+     * Adds {@code amount} to the balance, holding the account lock when the repository offers one.
+     */
+    static Response<Boolean> update(TransactionRepository repository, UUID subjectId, String currencyName, double amount) {
+        if (repository instanceof SimpleTransactionRepository simpleRepository)
+            return simpleRepository.withLock(subjectId, currencyName, () -> updateLocked(repository, subjectId, currencyName, amount));
+        return updateLocked(repository, subjectId, currencyName, amount);
+    }
+
+    private static Response<Boolean> updateLocked(TransactionRepository repository, UUID subjectId, String currencyName, double amount) {
+        try {
+            // Accounts without row start from zero, the repository remembers them as absent instead of failing.
+            double lastAmount = repository instanceof SimpleTransactionRepository simpleRepository
+                    ? MinorUnits.toMajor(simpleRepository.balanceMinor(subjectId, currencyName), simpleRepository.scaleOf(currencyName))
+                    : repository.get(subjectId, currencyName).getOrThrow().amount();
+            Transaction newTransaction = new Transaction(currencyName, subjectId, sum(repository, currencyName, lastAmount, amount));
+            TransactionKind kind = amount < 0 ? TransactionKind.WITHDRAW : TransactionKind.DEPOSIT;
+            // Writes answer an empty response, only a failure carries something.
+            (repository instanceof SimpleTransactionRepository simpleRepository ? simpleRepository.set(newTransaction, kind) : repository.set(newTransaction)).getOrThrow();
+            return new Response<>(ResponseCode.OK, Optional.empty(), Optional.of(true));
+        } catch (Throwable ok) {
+            return new Response<>(ResponseCode.ERROR, Optional.of(new RuntimeException(String.format("Can't add $%f to user with id: '%s' on currency with name: %s", amount, subjectId, currencyName), ok)), Optional.of(false));
+        }
+    }
+
+    private static double sum(TransactionRepository repository, String currencyName, double balance, double amount) {
+        int scale = scaleOf(repository, currencyName);
+        return MinorUnits.toMajor(Math.addExact(MinorUnits.toMinor(balance, scale), MinorUnits.toMinor(amount, scale)), scale);
+    }
+
+    private static int scaleOf(TransactionRepository repository, String currencyName) {
+        return repository instanceof SimpleTransactionRepository simpleRepository ? simpleRepository.scaleOf(currencyName) : MinorUnits.DEFAULT_SCALE;
+    }
 }
@@ -4,44 +4,161 @@ import co.aikar.idb.Database;
 import co.aikar.idb.DbRow;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.Striped;
 import io.github.joshy56.AbstractCachedRepository;
+import io.github.joshy56.CacheInvalidations;
 import io.github.joshy56.Namespace;
+import io.github.joshy56.StatementPool;
+import io.github.joshy56.currency.CurrencyIds;
+import io.github.joshy56.currency.MinorUnits;
 import io.github.joshy56.response.Response;
 import org.intellij.lang.annotations.Language;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author joshy56
  * @since 7/2/2024
  */
-public class SimpleTransactionRepository extends AbstractCachedRepository<Namespace, Transaction> implements TransactionRepository {
+public class SimpleTransactionRepository extends AbstractCachedRepository<AccountKey, Transaction> implements TransactionRepository {
     // Manejar las transacciones a la base de datos desde aqui, el cache.
     // Sera necesaria que una conexion sea inyectada por el constructor.
     @Language("RoomSql")
-    private static final String SQL_SELECT = "SELECT identifier, amount FROM transactions WHERE identifier LIKE ?;", SQL_INSERT = "REPLACE INTO transactions(identifier, amount) VALUES(?, ?);", SQL_DELETE = "DELETE FROM transactions WHERE identifier LIKE ?;", SQL_CREATE_TABLE = "CREATE TABLE IF NOT EXISTS transactions(identifier VARCHAR(72) PRIMARY KEY NOT NULL, amount DOUBLE);";
+    private static final String SQL_SELECT = "SELECT subject_id, currency, amount FROM transactions WHERE subject_id=? AND currency=?;",
+            SQL_SELECT_IN_PREFIX = "SELECT subject_id, currency, amount FROM transactions WHERE (subject_id, currency) IN (VALUES ",
+            SQL_SELECT_ALL = "SELECT subject_id, currency, amount FROM transactions;",
+            SQL_SELECT_OF_SUBJECT = "SELECT subject_id, currency, amount FROM transactions WHERE subject_id=?;",
+            SQL_SELECT_OF_CURRENCY = "SELECT subject_id, currency, amount FROM transactions WHERE currency=?;",
+            SQL_INSERT = "INSERT INTO transactions(subject_id, currency, amount) VALUES(?, ?, ?) ON CONFLICT(subject_id, currency) DO UPDATE SET amount=excluded.amount;",
+            SQL_DELETE = "DELETE FROM transactions WHERE subject_id=? AND currency=?;",
+            SQL_CREATE_TABLE = "CREATE TABLE IF NOT EXISTS transactions(subject_id VARCHAR(36) NOT NULL, currency VARCHAR(64) NOT NULL, amount BIGINT NOT NULL DEFAULT 0, PRIMARY KEY(subject_id, currency));",
+            SQL_CREATE_INDEX = "CREATE INDEX IF NOT EXISTS transactions_currency ON transactions(currency);";
+    private static final int LOCK_STRIPES = 1024, WALLET_STRIPES = 64;
 
+    @Nullable
+    private final WriteBehindLedger ledger;
+    @Nullable
+    private final TransactionJournal journal;
+    private final Response<TransactionJournal.Recovery> recovery;
+    @Nullable
+    private volatile BalanceWal wal;
+    @Nullable
+    private volatile OffHeapBalances offHeap;
+    private volatile boolean offHeapReady;
+    private final Leaderboard leaderboard;
+    private final ToIntFunction<String> scales;
+    private final CurrencyIds currencyIds;
+    private final Striped<Lock> locks;
+    private final Set<UUID> online;
+    private final ConcurrentMap<UUID, Wallet> wallets;
+    /**
+     * Bumped before every change of the wallets of a stripe of subjects, a wallet loaded meanwhile is
+     * then dropped instead of kept without the change, see {@link #wallet(UUID)}.
+     */
+    private final AtomicLongArray walletVersions;
+    private final LongAdder onlineHits, onlineMisses;
+
+    /**
+     * Creates a repository taking every name for a currency, with {@link MinorUnits#DEFAULT_SCALE} decimals.
+     * @param database backing database
+     */
     public SimpleTransactionRepository(Database database) {
-        super(database, CacheBuilder.newBuilder().expireAfterAccess(3, TimeUnit.MINUTES).expireAfterWrite(1, TimeUnit.MINUTES).build(new CacheLoader<>() {
+        this(database, new StatementPool(database), currencyName -> MinorUnits.DEFAULT_SCALE, new CurrencyIds(currencyName -> true));
+    }
+
+    /**
+     * @param database backing database
+     * @param statements pool shared by the repositories of {@code database}
+     * @param scales decimals of every currency, balances are stored as {@code long} minor units of that scale
+     * @param currencyIds ids of the currencies, balances of names that aren't one can't be written
+     */
+    public SimpleTransactionRepository(Database database, StatementPool statements, ToIntFunction<String> scales, CurrencyIds currencyIds) {
+        this(database, statements, scales, null, null, currencyIds);
+    }
+
+    /**
+     * Creates a repository in write-behind mode, {@link #set(Transaction)} and {@link #setAll(Set)} only
+     * touch memory and the balances are written in batches by a background flusher.
+     * @param database backing database
+     * @param statements pool shared by the repositories of {@code database}
+     * @param scales decimals of every currency
+     * @param currencyIds ids of the currencies
+     * @param flushInterval max time a balance stays unsaved
+     * @param unit unit of {@code flushInterval}
+     * @param flushThreshold amount of dirty accounts that triggers an early flush
+     */
+    public SimpleTransactionRepository(Database database, StatementPool statements, ToIntFunction<String> scales, CurrencyIds currencyIds, long flushInterval, TimeUnit unit, int flushThreshold) {
+        this(database, statements, scales, new LedgerSettings(flushInterval, unit, flushThreshold), null, currencyIds);
+    }
+
+    /**
+     * Creates a repository in event-sourced mode, every change is appended to {@code journal} and the
+     * {@code transactions} table only holds the balances of its last snapshot. The journal tail left by
+     * the previous run is replayed here, see {@link #recovery()}.
+     * @param database backing database
+     * @param statements pool shared by the repositories of {@code database}
+     * @param scales decimals of every currency
+     * @param currencyIds ids of the currencies
+     * @param journal journal over the same database, not yet opened
+     */
+    public SimpleTransactionRepository(Database database, StatementPool statements, ToIntFunction<String> scales, CurrencyIds currencyIds, TransactionJournal journal) {
+        this(database, statements, scales, null, journal, currencyIds);
+    }
+
+    private SimpleTransactionRepository(Database database, StatementPool statements, ToIntFunction<String> scales, @Nullable LedgerSettings ledgerSettings, @Nullable TransactionJournal journal, CurrencyIds currencyIds) {
+        super(database, CacheBuilder.newBuilder().expireAfterAccess(3, TimeUnit.MINUTES).expireAfterWrite(1, TimeUnit.MINUTES).recordStats().build(new CacheLoader<>() {
+            @Override
+            public @NotNull Transaction load(@NotNull AccountKey key) throws Exception {
+                UUID subjectId = key.subjectId();
+                String currencyName = currencyIds.nameOf(key.currencyId());
+                return loadFirst(statements, SQL_SELECT, row -> new Transaction(currencyName, subjectId, MinorUnits.toMajor(row.getLong("amount"), scales.applyAsInt(currencyName))), subjectId.toString(), currencyName);
+            }
+
             @Override
-            public @NotNull Transaction load(@NotNull Namespace namespace) throws Exception {
-                DbRow dbRow = database.getFirstRow(SQL_SELECT, namespace.join());
-                return Optional.ofNullable(dbRow).map(row -> {
-                    double amount = row.getDbl("amount", 0);
-                    return new Transaction(namespace.name(), UUID.fromString(namespace.key()), amount);
-                }).orElseThrow(() -> new NoSuchElementException("No transaction present"));
+            public @NotNull Map<AccountKey, Transaction> loadAll(@NotNull Iterable<? extends AccountKey> keys) throws Exception {
+                return loadChunked(statements, keys, size -> SQL_SELECT_IN_PREFIX + placeholders(size, "(?, ?)") + ");", (statement, index, key) -> {
+                    statement.setString(index, key.subjectId().toString());
+                    statement.setString(index + 1, currencyIds.nameOf(key.currencyId()));
+                    return index + 2;
+                }, row -> {
+                    UUID subjectId = UUID.fromString(row.getString("subject_id"));
+                    String currencyName = row.getString("currency");
+                    double amount = MinorUnits.toMajor(row.getLong("amount"), scales.applyAsInt(currencyName));
+                    return Map.entry(AccountKey.of(subjectId, currencyIds.find(currencyName)), new Transaction(currencyName, subjectId, amount));
+                });
             }
-        }));
+        }), statements);
+        this.scales = scales;
+        this.currencyIds = currencyIds;
 
         query(statement -> {
             try {
+                TransactionsMigration.migrate(statement, SQL_CREATE_TABLE, scales);
                 statement.query(SQL_CREATE_TABLE);
                 statement.executeUpdate();
+                statement.query(SQL_CREATE_INDEX);
+                statement.executeUpdate();
 
                 statement.commit();
 
@@ -50,6 +167,18 @@ public class SimpleTransactionRepository extends AbstractCachedRepository<Namesp
                 return Response.ofNullable(null, ok);
             }
         });
+
+        this.locks = Striped.lock(LOCK_STRIPES);
+        this.online = ConcurrentHashMap.newKeySet();
+        this.wallets = new ConcurrentHashMap<>();
+        this.walletVersions = new AtomicLongArray(WALLET_STRIPES);
+        this.onlineHits = new LongAdder();
+        this.onlineMisses = new LongAdder();
+        this.ledger = ledgerSettings == null ? null : new WriteBehindLedger(this::write, ledgerSettings.interval(), ledgerSettings.unit(), ledgerSettings.threshold());
+        this.journal = journal;
+        if (journal != null) journal.onFold(this::broadcast);
+        this.recovery = journal == null ? Response.empty() : openJournal(journal);
+        this.leaderboard = new Leaderboard(this::loadRanking);
     }
 
     /**
@@ -59,9 +188,15 @@ public class SimpleTransactionRepository extends AbstractCachedRepository<Namesp
     @Override
     public @NotNull Response<Transaction> get(@NotNull Namespace namespace) {
         Exception exception = null;
-        Transaction value = null;
+        AccountKey key = existingKeyOf(UUID.fromString(namespace.key()), namespace.name());
+        if (key == null) return Response.empty();
+        Transaction value = pending(key).orElse(null);
+        if (value != null) return Response.ofNullable(value, null);
+        OffHeapBalances offHeap = residentBalances();
+        if (offHeap != null) return Response.ofNullable(offHeapTransaction(offHeap, key, namespace.name()), null);
+        recordLookup(key);
         try {
-            value = cache().get(namespace);
+            value = find(key).orElse(null);
         } catch (ExecutionException ok) {
             exception = ok;
         }
@@ -75,51 +210,46 @@ public class SimpleTransactionRepository extends AbstractCachedRepository<Namesp
     @Override
     public @NotNull Response<Set<Transaction>> getAllOfThem(@NotNull Set<Namespace> namespaces) {
         if (namespaces.isEmpty()) return Response.empty();
-        return query(statement -> {
-            Set<Transaction> value = null;
-            Exception exception = null;
-            try {
-                statement.query("BEGIN TRANSACTION;");
-                statement.executeUpdate();
-                for (Namespace namespace : namespaces) {
-                    statement.query(SQL_SELECT);
-                    statement.execute(namespace.join());
-                }
-                statement.query("COMMIT;");
-                statement.executeUpdate();
-
-                statement.commit();
-
-                value = statement.getResults().parallelStream().map(row -> {
-                    UUID subjectId = UUID.fromString(row.getString("subjectId"));
-                    String currencyName = row.getString("currencyName");
-                    double amount = row.getDbl("amount", 0);
-                    return new Transaction(currencyName, subjectId, amount);
-                }).collect(Collectors.toSet());
-            } catch (SQLException ok) {
-                exception = ok;
+        Set<Transaction> value = null;
+        Exception exception = null;
+        try {
+            List<AccountKey> keys = new ArrayList<>(namespaces.size());
+            for (Namespace namespace : namespaces) {
+                AccountKey key = existingKeyOf(UUID.fromString(namespace.key()), namespace.name());
+                if (key != null) keys.add(key);
             }
-            return Response.ofNullable(value, exception);
-        });
+            OffHeapBalances offHeap = residentBalances();
+            Map<AccountKey, Transaction> found = new HashMap<>();
+            if (offHeap == null) found.putAll(getAllCached(keys));
+            else for (AccountKey key : keys) {
+                Transaction transaction = offHeapTransaction(offHeap, key, currencyIds.nameOf(key.currencyId()));
+                if (transaction != null) found.put(key, transaction);
+            }
+            if (ledger != null || journal != null) keys.forEach(key -> pending(key).ifPresent(pending -> found.put(key, pending)));
+            value = new HashSet<>(found.values());
+        } catch (ExecutionException ok) {
+            exception = ok;
+        }
+        return Response.ofNullable(value, exception);
     }
 
+    /**
+     * Balances pending in write-behind or event-sourced mode are merged into the stored ones, reading
+     * doesn't write them.
+     */
     @Override
     public @NotNull Response<Set<Transaction>> getAll() {
+        Map<AccountKey, Transaction> pending = pendingOf(key -> true);
         return query(statement -> {
             Set<Transaction> value = null;
             Exception exception = null;
             try {
-                statement.query("SELECT identifier, amount FROM transactions;");
+                statement.query(SQL_SELECT_ALL);
                 statement.execute();
 
                 statement.commit();
 
-                value = statement.getResults().parallelStream().map(row -> {
-                    UUID subjectId = UUID.fromString(row.getString("subjectId"));
-                    String currencyName = row.getString("currencyName");
-                    double amount = row.getDbl("amount", 0);
-                    return new Transaction(currencyName, subjectId, amount);
-                }).collect(Collectors.toSet());
+                value = withPending(statement.getResults().parallelStream().map(this::transactionOf), pending).collect(Collectors.toSet());
             } catch (SQLException ok) {
                 exception = ok;
             }
@@ -127,22 +257,41 @@ public class SimpleTransactionRepository extends AbstractCachedRepository<Namesp
         });
     }
 
+    public @NotNull Response<Stream<Transaction>> streamAll() {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Same as {@link #getAll()} fetching the balances lazily through a cursor instead of materializing
+     * them. The stream holds a database connection, close it.
+     * @param fetchSize rows fetched per round trip
+     * @return every balance, the pending ones last
+     */
+    public @NotNull Response<Stream<Transaction>> streamAll(int fetchSize) {
+        Map<AccountKey, Transaction> pending = pendingOf(key -> true);
+        Stream<Transaction> value = null;
+        Exception exception = null;
+        try {
+            value = withPending(stream(SQL_SELECT_ALL, fetchSize, this::transactionOf), pending);
+        } catch (SQLException ok) {
+            exception = ok;
+        }
+        return Response.ofNullable(value, exception);
+    }
+
     @Override
     public @NotNull Response<Set<Transaction>> getAllOfSubject(@NotNull UUID subjectId) {
+        Map<AccountKey, Transaction> pending = pendingOf(key -> key.isOf(subjectId));
         return query(statement -> {
             Set<Transaction> value = null;
             Exception exception = null;
             try {
-                statement.query(SQL_SELECT);
-                statement.execute("'" + subjectId + "%'");
+                statement.query(SQL_SELECT_OF_SUBJECT);
+                statement.execute(subjectId.toString());
 
                 statement.commit();
 
-                value = statement.getResults().parallelStream().map(row -> {
-                    String currencyName = row.getString("currencyName");
-                    double amount = row.getDbl("amount", 0);
-                    return new Transaction(currencyName, subjectId, amount);
-                }).collect(Collectors.toSet());
+                value = withPending(statement.getResults().parallelStream().map(this::transactionOf), pending).collect(Collectors.toSet());
             } catch (SQLException ok) {
                 exception = ok;
             }
@@ -152,20 +301,18 @@ public class SimpleTransactionRepository extends AbstractCachedRepository<Namesp
 
     @Override
     public @NotNull Response<Set<Transaction>> getAllOfCurrency(@NotNull String currencyName) {
+        int currencyId = currencyIds.find(currencyName);
+        Map<AccountKey, Transaction> pending = currencyId < 0 ? Map.of() : pendingOf(key -> key.currencyId() == currencyId);
         return query(statement -> {
             Set<Transaction> value = null;
             Exception exception = null;
             try {
-                statement.query(SQL_SELECT);
-                statement.execute("'%" + currencyName + "'");
+                statement.query(SQL_SELECT_OF_CURRENCY);
+                statement.execute(currencyName);
 
                 statement.commit();
 
-                value = statement.getResults().parallelStream().map(row -> {
-                    UUID subjectId = UUID.fromString(row.getString("subjectId"));
-                    double amount = row.getDbl("amount", 0);
-                    return new Transaction(currencyName, subjectId, amount);
-                }).collect(Collectors.toSet());
+                value = withPending(statement.getResults().parallelStream().map(this::transactionOf), pending).collect(Collectors.toSet());
             } catch (SQLException ok) {
                 exception = ok;
             }
@@ -175,54 +322,77 @@ public class SimpleTransactionRepository extends AbstractCachedRepository<Namesp
 
     @Override
     public @NotNull Response<Void> delete(@NotNull Namespace namespace) {
-        return query(statement -> {
-            Exception exception = null;
-            try {
-                cache().invalidate(namespace);
-                statement.query(SQL_DELETE);
-                statement.executeUpdate(namespace.join());
-
-                statement.commit();
-            } catch (SQLException ok) {
-                exception = ok;
-            }
-            return Response.ofNullable(null, exception);
+        // Fold the journal first, or replaying its tail would bring the account back.
+        if (journal != null) journal.snapshot();
+        Exception logged = checkpointBeforeDelete();
+        if (logged != null) return Response.ofNullable(null, logged);
+        // Rows of a currency deleted before it got an id are still deleted, nothing of them is in memory.
+        AccountKey key = existingKeyOf(UUID.fromString(namespace.key()), namespace.name());
+        if (key != null) {
+            cache().invalidate(key);
+            if (ledger != null) ledger.discard(key);
+            if (journal != null) journal.discard(key);
+            OffHeapBalances offHeap = this.offHeap;
+            if (offHeap != null) offHeap.remove(key);
+            updateWallet(key.subjectId(), wallet -> wallet.without(key.currencyId()));
+            leaderboard.remove(key.subjectId(), namespace.name());
+        }
+        Response<Void> response = session(connection -> {
+            PreparedStatement statement = prepare(connection, SQL_DELETE);
+            statement.setString(1, namespace.key());
+            statement.setString(2, namespace.name());
+            statement.executeUpdate();
+            return null;
         });
+        if (key != null) broadcast(List.of(key));
+        return response;
     }
 
     @Override
     public @NotNull Response<Void> deleteAllOfThem(@NotNull Set<Namespace> namespaces) {
-        return query(statement -> {
-            Exception exception = null;
-            try {
-                cache().invalidateAll(namespaces);
-                statement.query("BEGIN TRANSACTION;");
-                statement.executeUpdate();
-                for (Namespace namespace : namespaces) {
-                    statement.query(SQL_DELETE);
-                    statement.executeUpdate(namespace.join());
-                }
-                statement.query("COMMIT;");
-                statement.executeUpdate();
-
-                statement.commit();
-            } catch (SQLException ok) {
-                exception = ok;
-            }
-            return Response.ofNullable(null, exception);
+        if (journal != null) journal.snapshot();
+        Exception logged = checkpointBeforeDelete();
+        if (logged != null) return Response.ofNullable(null, logged);
+        List<AccountKey> keys = new ArrayList<>(namespaces.size());
+        for (Namespace namespace : namespaces) {
+            AccountKey key = existingKeyOf(UUID.fromString(namespace.key()), namespace.name());
+            if (key != null) keys.add(key);
+        }
+        cache().invalidateAll(keys);
+        if (ledger != null) ledger.discardAll(keys);
+        if (journal != null) keys.forEach(journal::discard);
+        OffHeapBalances offHeap = this.offHeap;
+        if (offHeap != null) keys.forEach(offHeap::remove);
+        keys.forEach(key -> updateWallet(key.subjectId(), wallet -> wallet.without(key.currencyId())));
+        namespaces.forEach(namespace -> leaderboard.remove(UUID.fromString(namespace.key()), namespace.name()));
+        Response<Void> response = batch(SQL_DELETE, namespaces, (statement, namespace) -> {
+            statement.setString(1, namespace.key());
+            statement.setString(2, namespace.name());
         });
+        broadcast(keys);
+        return response;
     }
 
     @Override
     public @NotNull Response<Void> deleteAll() {
+        if (journal != null) journal.snapshot();
+        Exception logged = checkpointBeforeDelete();
+        if (logged != null) return Response.ofNullable(null, logged);
         return query(statement -> {
             Exception exception = null;
             try {
                 cache().invalidateAll();
+                if (ledger != null) ledger.discardAll();
+                if (journal != null) journal.discardAll();
+                OffHeapBalances offHeap = this.offHeap;
+                if (offHeap != null) offHeap.clear();
+                dropWallets();
+                leaderboard.clear();
                 statement.query("DELETE FROM transactions;");
                 statement.executeUpdate();
 
                 statement.commit();
+                broadcastAll();
             } catch (SQLException ok) {
                 exception = ok;
             }
@@ -230,56 +400,986 @@ public class SimpleTransactionRepository extends AbstractCachedRepository<Namesp
         });
     }
 
+    /**
+     * Persists the write-ahead log, if any, and starts it over, or replaying the balances it logged
+     * before a delete would bring the deleted accounts back. Nothing is deleted if this fails.
+     * @return the error of the checkpoint, if any
+     */
+    private @Nullable Exception checkpointBeforeDelete() {
+        BalanceWal wal = this.wal;
+        if (wal == null) return null;
+        try {
+            wal.checkpoint().getOrThrow();
+            return null;
+        } catch (Throwable ok) {
+            return ok instanceof Exception cause ? cause : new RuntimeException(ok);
+        }
+    }
+
     @Override
     public @NotNull Response<Void> set(@NotNull Transaction transaction) {
-        return query(statement -> {
-            Exception exception = null;
-            try {
-                Namespace namespace = new Namespace(transaction.subjectIdentifier().toString(), transaction.currencyName());
+        return set(transaction, TransactionKind.SET);
+    }
 
-                statement.query(SQL_INSERT);
-                statement.executeUpdate(namespace.join(), transaction.amount());
+    /**
+     * Same as {@link #set(Transaction)}, in event-sourced mode the change is journaled as {@code kind}.
+     * @param transaction new balance
+     * @param kind cause of the change
+     * @return an empty response or the error of the write
+     */
+    public @NotNull Response<Void> set(@NotNull Transaction transaction, @NotNull TransactionKind kind) {
+        AccountKey key;
+        try {
+            key = keyOf(transaction);
+        } catch (IllegalArgumentException ok) {
+            return Response.ofNullable(null, ok);
+        }
+        if (ledger != null || journal != null) {
+            remember(key, transaction, kind);
+            return Response.empty();
+        }
+        Exception exception = null;
+        try {
+            write(List.of(transaction), null);
+            written(key, transaction);
+        } catch (SQLException ok) {
+            exception = ok;
+        }
+        return Response.ofNullable(null, exception);
+    }
 
-                statement.commit();
+    /**
+     * @param transactions
+     * @return
+     */
+    @Override
+    public @NotNull Response<Void> setAll(@NotNull Set<Transaction> transactions) {
+        Exception exception = null;
+        try {
+            setAll(transactions, TransactionKind.SET);
+        } catch (SQLException | IllegalArgumentException ok) {
+            exception = ok;
+        }
+        return Response.ofNullable(null, exception);
+    }
+
+    /**
+     * Adds a signed amount to many accounts of one currency, writing all of them in a single batch. An
+     * account fails alone, without aborting the rest, if the amount is negative and would leave it below
+     * zero, if its balance overflows or if it can't be loaded.
+     * @param currencyName currency of every account
+     * @param amounts amount in minor units to add per subject
+     * @param kind cause of the changes, journaled in event-sourced mode
+     * @return subjects changed and why the others failed, or the error that rolled the batch back
+     */
+    public @NotNull Response<BulkResult> addAllMinor(@NotNull String currencyName, @NotNull Map<UUID, Long> amounts, @NotNull TransactionKind kind) {
+        int currencyId = currencyIds.idOf(currencyName);
+        if (currencyId < 0) return Response.ofNullable(null, unknownCurrency(currencyName));
+        Map<AccountKey, UUID> keys = new LinkedHashMap<>();
+        for (UUID subjectId : amounts.keySet()) keys.put(AccountKey.of(subjectId, currencyId), subjectId);
+        return updateAll(keys, (subjectId, ignored, balance) -> {
+            long amount = amounts.get(subjectId), updated = Math.addExact(balance, amount);
+            if (amount < 0 && updated < 0) throw new IllegalStateException("SimpleTransactionRepository@addAllMinor() | Not enough money.");
+            return updated;
+        }, kind, null);
+    }
 
-                if (cache().getIfPresent(namespace) != null) cache().put(namespace, transaction);
+    /**
+     * Applies the rule of its currency to the current balance of every account and writes them in one
+     * batch, see {@link BalanceAdjuster}. Accounts of currencies without rule are left as they are.
+     * @param accounts subject and currency of every account
+     * @param rules new balance in minor units out of the current one, per currency
+     * @param checkpoint runs in the same database transaction as the batch, in every mode
+     * @return accounts adjusted and why the others failed, or the error that rolled the batch back
+     */
+    @NotNull Response<BulkResult> adjustAll(@NotNull List<Map.Entry<UUID, String>> accounts, @NotNull Map<String, LongUnaryOperator> rules, @NotNull BalanceAdjuster.Checkpoint checkpoint) {
+        Map<AccountKey, UUID> keys = new LinkedHashMap<>();
+        for (Map.Entry<UUID, String> account : accounts)
+            if (rules.containsKey(account.getValue())) keys.put(keyOf(account.getKey(), account.getValue()), account.getKey());
+        return updateAll(keys, (subjectId, currencyName, balance) -> rules.get(currencyName).applyAsLong(balance), TransactionKind.ADJUST, checkpoint);
+    }
+
+    private @NotNull Response<BulkResult> updateAll(@NotNull Map<AccountKey, UUID> keys, @NotNull AccountUpdate update, @NotNull TransactionKind kind, @Nullable BalanceAdjuster.Checkpoint checkpoint) {
+        if (keys.isEmpty() && checkpoint == null) return Response.ofNullable(new BulkResult(Set.of(), Map.of()), null);
+        return withLocks(keys.keySet(), () -> {
+            if (residentBalances() == null) {
+                try {
+                    // One chunked load instead of a query per cold account.
+                    getAllCached(keys.keySet());
+                } catch (ExecutionException ok) {
+                    // Accounts that can't be loaded fail one by one below.
+                }
+            }
+            Set<UUID> applied = new HashSet<>();
+            Map<UUID, Exception> failed = new HashMap<>();
+            List<Transaction> changed = new ArrayList<>(keys.size());
+            for (Map.Entry<AccountKey, UUID> entry : keys.entrySet()) {
+                UUID subjectId = entry.getValue();
+                String currencyName = currencyIds.nameOf(entry.getKey().currencyId());
+                try {
+                    long balance = cachedAmount(entry.getKey()), updated = update.apply(subjectId, currencyName, balance);
+                    applied.add(subjectId);
+                    if (updated != balance) changed.add(new Transaction(currencyName, subjectId, MinorUnits.toMajor(updated, scaleOf(currencyName))));
+                } catch (ExecutionException | RuntimeException ok) {
+                    failed.put(subjectId, ok);
+                }
+            }
+            Exception exception = null;
+            try {
+                setAll(changed, kind, checkpoint);
             } catch (SQLException ok) {
                 exception = ok;
             }
-            return Response.ofNullable(null, exception);
+            return Response.ofNullable(exception == null ? new BulkResult(applied, failed) : null, exception);
         });
     }
 
+    private void setAll(@NotNull Collection<Transaction> transactions, @NotNull TransactionKind kind) throws SQLException {
+        setAll(transactions, kind, null);
+    }
+
     /**
-     * @param transactions
-     * @return
+     * @throws IllegalArgumentException if a currency doesn't exist, nothing is written then
+     */
+    private void setAll(@NotNull Collection<Transaction> transactions, @NotNull TransactionKind kind, @Nullable BalanceAdjuster.Checkpoint checkpoint) throws SQLException {
+        if (transactions.isEmpty() && checkpoint == null) return;
+        for (Transaction transaction : transactions) keyOf(transaction);
+        if (ledger != null || journal != null) {
+            if (checkpoint != null) {
+                writeThrough(transactions, kind, checkpoint);
+                return;
+            }
+            rememberAll(transactions, kind);
+            return;
+        }
+        write(transactions, checkpoint);
+        for (Transaction transaction : transactions) written(keyOf(transaction), transaction);
+    }
+
+    /**
+     * Persists balances of write-behind or event-sourced mode now, in one database transaction with
+     * {@code checkpoint}, instead of keeping them in memory: a crash keeps both or none. The journal
+     * gets them as entries, otherwise they go straight to the table. Only these accounts are written.
+     * <p>
+     * The write-ahead log, if any, may still hold older balances of the accounts, the new ones are
+     * logged right after the commit so a replay ends on them.
+     */
+    private void writeThrough(@NotNull Collection<Transaction> transactions, @NotNull TransactionKind kind, @NotNull BalanceAdjuster.Checkpoint checkpoint) throws SQLException {
+        Map<AccountKey, Transaction> keyed = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) keyed.put(keyOf(transaction), transaction);
+        if (journal != null) {
+            List<TransactionJournal.Change> changes = new ArrayList<>(keyed.size());
+            keyed.forEach((key, transaction) -> changes.add(changeOf(key, transaction)));
+            journal.appendDurably(changes, kind, checkpoint);
+        } else if (ledger != null) ledger.writeThrough(keyed, checkpoint);
+        BalanceWal wal = this.wal;
+        if (wal == null) keyed.forEach(this::written);
+        else wal.appendAll(List.copyOf(keyed.entrySet()), entry -> recordOf(entry.getValue()), entry -> written(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Brings the cache and indexes up to date with a balance just written to the database.
+     */
+    private void written(@NotNull AccountKey key, @NotNull Transaction transaction) {
+        if (cache().getIfPresent(key) != null) cache().put(key, transaction);
+        forgetAbsent(key);
+        updateIndexes(key, transaction);
+    }
+
+    /**
+     * Moves {@code amount} from one account to another, checking funds and writing both legs in a
+     * single database transaction. An absent destination account starts from zero.
+     * @param from subject that pays, must differ from {@code to}
+     * @param to subject that receives
+     * @param currencyName currency of both accounts
+     * @param amount positive amount to move
+     * @return {@code true} if moved, {@code false} if {@code from} hasn't enough money
+     */
+    public @NotNull Response<Boolean> transfer(@NotNull UUID from, @NotNull UUID to, @NotNull String currencyName, double amount) {
+        return transferMinor(from, to, currencyName, MinorUnits.toMinor(amount, scaleOf(currencyName)));
+    }
+
+    /**
+     * Same as {@link #transfer(UUID, UUID, String, double)} with the amount already in minor units.
+     */
+    public @NotNull Response<Boolean> transferMinor(@NotNull UUID from, @NotNull UUID to, @NotNull String currencyName, long amount) {
+        if (from.equals(to)) return Response.ofNullable(null, new IllegalArgumentException("SimpleTransactionRepository@transfer() | Can't transfer to the same account."));
+        int currencyId = currencyIds.idOf(currencyName);
+        if (currencyId < 0) return Response.ofNullable(null, unknownCurrency(currencyName));
+        AccountKey source = AccountKey.of(from, currencyId), target = AccountKey.of(to, currencyId);
+        return withLock(source, target, () -> transferLocked(from, to, currencyName, source, target, amount));
+    }
+
+    private @NotNull Response<Boolean> transferLocked(@NotNull UUID from, @NotNull UUID to, @NotNull String currencyName, @NotNull AccountKey source, @NotNull AccountKey target, long amount) {
+        int scale = scaleOf(currencyName);
+        if (ledger != null || journal != null) {
+            try {
+                long sourceAmount = cachedAmount(source);
+                if (sourceAmount < amount) return Response.ofNullable(false, null);
+                long targetAmount = cachedAmount(target);
+                Transaction debit = new Transaction(currencyName, from, MinorUnits.toMajor(sourceAmount - amount, scale)),
+                        credit = new Transaction(currencyName, to, MinorUnits.toMajor(Math.addExact(targetAmount, amount), scale));
+                rememberTransfer(source, debit, target, credit);
+                return Response.ofNullable(true, null);
+            } catch (ExecutionException | ArithmeticException ok) {
+                return Response.ofNullable(null, ok);
+            }
+        }
+        Boolean value = null;
+        Exception exception = null;
+        try {
+            long[] amounts = executeSession(connection -> {
+                long sourceAmount = selectAmount(connection, from, currencyName);
+                if (sourceAmount < amount) return null;
+                long targetAmount = Math.addExact(selectAmount(connection, to, currencyName), amount), debitAmount = sourceAmount - amount;
+                PreparedStatement statement = prepare(connection, SQL_INSERT);
+                bind(statement, from, currencyName, debitAmount);
+                statement.addBatch();
+                bind(statement, to, currencyName, targetAmount);
+                statement.addBatch();
+                statement.executeBatch();
+                return new long[]{debitAmount, targetAmount};
+            });
+            value = amounts != null;
+            if (amounts != null) {
+                if (cache().getIfPresent(source) != null) cache().put(source, new Transaction(currencyName, from, MinorUnits.toMajor(amounts[0], scale)));
+                if (cache().getIfPresent(target) != null) cache().put(target, new Transaction(currencyName, to, MinorUnits.toMajor(amounts[1], scale)));
+                forgetAbsent(List.of(source, target));
+                updateIndexes(source, from, currencyName, amounts[0]);
+                updateIndexes(target, to, currencyName, amounts[1]);
+                broadcast(List.of(source, target));
+            }
+        } catch (SQLException | ArithmeticException ok) {
+            exception = ok;
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    /**
+     * Runs {@code action} holding the lock of one account, so read-modify-write sequences over it
+     * don't lose updates. Accounts on different lock stripes proceed in parallel.
+     * @param namespace account to lock
+     * @param action work to do while locked
+     * @return result of {@code action}
+     * @throws IllegalArgumentException if the currency of the account doesn't exist
+     */
+    public <T> T withLock(@NotNull Namespace namespace, @NotNull Supplier<T> action) {
+        return withLock(keyOf(namespace), action);
+    }
+
+    /**
+     * Same as {@link #withLock(Namespace, Supplier)} without building a {@link Namespace}.
+     */
+    public <T> T withLock(@NotNull UUID subjectId, @NotNull String currencyName, @NotNull Supplier<T> action) {
+        return withLock(keyOf(subjectId, currencyName), action);
+    }
+
+    private <T> T withLock(@NotNull AccountKey key, @NotNull Supplier<T> action) {
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #withLock(Namespace, Supplier)} over two accounts, the locks are always taken in
+     * stripe order so two opposite transfers can't deadlock.
+     */
+    public <T> T withLock(@NotNull Namespace first, @NotNull Namespace second, @NotNull Supplier<T> action) {
+        return withLock(keyOf(first), keyOf(second), action);
+    }
+
+    private <T> T withLock(@NotNull AccountKey first, @NotNull AccountKey second, @NotNull Supplier<T> action) {
+        return withLocks(List.of(first, second), action);
+    }
+
+    private <T> T withLocks(@NotNull Iterable<AccountKey> keys, @NotNull Supplier<T> action) {
+        List<Lock> acquired = new ArrayList<>();
+        for (Lock lock : locks.bulkGet(keys)) {
+            // Locks come in stripe order, a stripe shared by several keys shows up in a row.
+            if (!acquired.isEmpty() && acquired.get(acquired.size() - 1) == lock) continue;
+            lock.lock();
+            acquired.add(lock);
+        }
+        try {
+            return action.get();
+        } finally {
+            for (int index = acquired.size() - 1; index >= 0; index--) acquired.get(index).unlock();
+        }
+    }
+
+    /**
+     * Fast path for balance checks, doesn't wrap the result in a {@link Response}.
+     * @param subjectId owner of the account
+     * @param currencyName currency of the account
+     * @return balance in minor units, zero if the account doesn't exist
+     * @throws IllegalStateException if the balance can't be loaded
+     */
+    public long balanceMinor(@NotNull UUID subjectId, @NotNull String currencyName) {
+        AccountKey key = existingKeyOf(subjectId, currencyName);
+        if (key == null) return 0;
+        try {
+            return cachedAmount(key);
+        } catch (ExecutionException ok) {
+            throw new IllegalStateException("Can't load balance of " + subjectId + " on " + currencyName, ok.getCause());
+        }
+    }
+
+    /**
+     * @param currencyName name of the currency
+     * @return {@code true} if the currency has balances in write-behind or event-sourced mode not yet stored
+     */
+    public boolean hasPending(@NotNull String currencyName) {
+        int currencyId = currencyIds.find(currencyName);
+        return currencyId >= 0 && !pendingOf(key -> key.currencyId() == currencyId).isEmpty();
+    }
+
+    /**
+     * @param currencyName name of the currency
+     * @return decimals balances of the currency are stored with
+     */
+    public int scaleOf(@NotNull String currencyName) {
+        return scales.applyAsInt(currencyName);
+    }
+
+    /**
+     * Loads every balance of a subject into the cache with one query, meant for players about to join.
+     * Lookups of the subject count towards {@link #onlineHitRate()} until {@link #evict(UUID)}.
+     * @param subjectId subject to preload
+     * @return amount of balances loaded
+     */
+    public @NotNull Response<Integer> preload(@NotNull UUID subjectId) {
+        // Every balance is already in memory.
+        if (offHeapReady) {
+            online.add(subjectId);
+            return Response.ofNullable(0, null);
+        }
+        String key = subjectId.toString();
+        Integer value = null;
+        Exception exception = null;
+        try {
+            List<Transaction> loaded = executeRead(connection -> {
+                PreparedStatement statement = prepare(connection, SQL_SELECT_OF_SUBJECT);
+                statement.setString(1, key);
+                List<Transaction> rows = new ArrayList<>();
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) rows.add(transactionOf(result));
+                }
+                return rows;
+            });
+            for (Transaction transaction : loaded) {
+                AccountKey account = existingKeyOf(subjectId, transaction.currencyName());
+                // Left behind by a deleted currency.
+                if (account == null) continue;
+                // A pending write-behind or journaled balance is newer than the stored one.
+                if (pending(account).isEmpty()) cache().put(account, transaction);
+                forgetAbsent(account);
+            }
+            online.add(subjectId);
+            value = loaded.size();
+        } catch (SQLException ok) {
+            exception = ok;
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    /**
+     * Writes the pending balances of a subject, if any, and drops them from the cache, meant for players leaving.
+     * @param subjectId subject to evict
+     * @return an empty response or the error of the flush
+     */
+    public @NotNull Response<Void> evict(@NotNull UUID subjectId) {
+        online.remove(subjectId);
+        dropWallet(subjectId);
+        Response<Void> response = ledger == null ? Response.empty() : ledger.flush(key -> key.isOf(subjectId));
+        // Only currencies with an id can have cached balances, so this costs one lookup per currency.
+        int currencies = currencyIds.size();
+        List<AccountKey> keys = new ArrayList<>(currencies);
+        for (int currencyId = 0; currencyId < currencies; currencyId++) keys.add(AccountKey.of(subjectId, currencyId));
+        cache().invalidateAll(keys);
+        return response;
+    }
+
+    /**
+     * Every balance of a subject in one {@link Wallet}. Wallets of preloaded subjects are cached and kept
+     * up to date by every write until {@link #evict(UUID)}, so for online players this is one map lookup.
+     * @param subjectId owner of the balances
+     * @return wallet of the subject, empty if it has no balance
+     */
+    public @NotNull Response<Wallet> wallet(@NotNull UUID subjectId) {
+        Wallet value = wallets.get(subjectId);
+        if (value != null) return Response.ofNullable(value, null);
+        Exception exception = null;
+        try {
+            // Loaded outside the map, so the database isn't read while holding one of its bins.
+            int stripe = walletStripe(subjectId);
+            long version = walletVersions.get(stripe);
+            value = loadWallet(subjectId);
+            if (online.contains(subjectId)) {
+                Wallet loaded = value, current = wallets.putIfAbsent(subjectId, loaded);
+                if (current != null) value = current;
+                // A write that found no wallet to update may have been missed by the load, keep it uncached.
+                else if (walletVersions.get(stripe) != version) wallets.remove(subjectId, loaded);
+            }
+        } catch (SQLException ok) {
+            exception = ok;
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    /**
+     * @return share of balance lookups of preloaded subjects served from memory
+     */
+    public double onlineHitRate() {
+        long hits = onlineHits.sum(), total = hits + onlineMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Writes every balance still pending in write-behind mode, or takes a snapshot in event-sourced mode,
+     * does nothing otherwise.
+     * @return an empty response or the error of the batch
+     */
+    public @NotNull Response<Void> flush() {
+        if (journal != null) return journal.snapshot();
+        if (ledger == null) return Response.empty();
+        return ledger.flush();
+    }
+
+    /**
+     * Switches to off-heap mode: every stored balance is loaded now into a table outside of the heap and
+     * balances are read from it instead of the cache, so millions of accounts don't weigh on the
+     * collector. Writes keep going to the database, or to memory first in write-behind or event-sourced
+     * mode, and update the table too.
+     * @param expectedAccounts accounts the table is sized for, it grows past them
+     * @return amount of balances loaded
+     */
+    public @NotNull Response<Integer> offHeap(int expectedAccounts) {
+        if (this.offHeap != null) return Response.ofNullable(null, new IllegalStateException("SimpleTransactionRepository@offHeap() | Already in off-heap mode."));
+        Integer value = null;
+        Exception exception = null;
+        try {
+            // Balances pending from before can't reach the table, save them so the load sees them.
+            flush().getOrThrow();
+            OffHeapBalances offHeap = new OffHeapBalances(expectedAccounts);
+            // Writes done while loading land in the table too, rows read meanwhile don't overwrite them.
+            this.offHeap = offHeap;
+            value = loadOffHeap(offHeap);
+        } catch (Throwable ok) {
+            this.offHeap = null;
+            exception = ok instanceof Exception cause ? cause : new RuntimeException(ok);
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    /**
+     * Empties the off-heap table and loads every stored balance into it again, reads go through the
+     * cache meanwhile. Does nothing if not in off-heap mode.
+     * @return amount of balances loaded
+     */
+    public @NotNull Response<Integer> reloadOffHeap() {
+        OffHeapBalances offHeap = this.offHeap;
+        if (offHeap == null) return Response.ofNullable(0, null);
+        Integer value = null;
+        Exception exception = null;
+        offHeapReady = false;
+        try {
+            // Emptied first, a balance written from here on lands in the table and the load keeps it.
+            offHeap.clear();
+            flush().getOrThrow();
+            value = loadOffHeap(offHeap);
+        } catch (Throwable ok) {
+            // Half loaded, the table can't be trusted, balances are read through the cache from now on.
+            this.offHeap = null;
+            exception = ok instanceof Exception cause ? cause : new RuntimeException(ok);
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    /**
+     * Streams every stored balance into {@code offHeap}, keeping the ones written meanwhile, then reads
+     * from it instead of the cache.
+     */
+    private int loadOffHeap(@NotNull OffHeapBalances offHeap) throws SQLException {
+        int loaded = executeRead(connection -> {
+            PreparedStatement statement = prepare(connection, SQL_SELECT_ALL);
+            int rows = 0;
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    AccountKey key = existingKeyOf(UUID.fromString(result.getString("subject_id")), result.getString("currency"));
+                    if (key == null) continue;
+                    offHeap.putIfAbsent(key, result.getLong("amount"));
+                    rows++;
+                }
+            }
+            return rows;
+        });
+        offHeapReady = true;
+        cache().invalidateAll();
+        return loaded;
+    }
+
+    /**
+     * @return native memory taken by the balances in off-heap mode, zero otherwise
+     */
+    public long offHeapBytes() {
+        OffHeapBalances offHeap = this.offHeap;
+        return offHeap == null ? 0 : offHeap.bytes();
+    }
+
+    /**
+     * @return journal tail replayed on startup, empty if not in event-sourced mode
+     */
+    public @NotNull Response<TransactionJournal.Recovery> recovery() {
+        return recovery;
+    }
+
+    /**
+     * @return balances of the accounts sorted per currency, each loaded the first time it's ranked
+     */
+    public @NotNull Leaderboard leaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Replays the balances {@code wal} kept from the previous run, persists them and, in write-behind or
+     * event-sourced mode, logs every later change to it before answering. The log is started over once
+     * the replay is persisted, its file is still owned by the caller.
+     * @param wal log mapped on startup
+     * @return amount of balances replayed
+     */
+    public @NotNull Response<Integer> writeAheadLog(@NotNull BalanceWal wal) {
+        Map<AccountKey, Transaction> replayed = new LinkedHashMap<>();
+        for (BalanceWal.Record record : wal.recovered()) {
+            double amount = MinorUnits.toMajor(record.balance(), scaleOf(record.currencyName()));
+            // Records are oldest first, the last one of every account wins.
+            replayed.put(keyOf(record.subjectId(), record.currencyName()), new Transaction(record.currencyName(), record.subjectId(), amount));
+        }
+        Integer value = null;
+        Exception exception = null;
+        try {
+            setAll(new HashSet<>(replayed.values())).getOrThrow();
+            flush().getOrThrow();
+            wal.persister(this::flush);
+            wal.reset();
+            if (ledger != null || journal != null) this.wal = wal;
+            value = replayed.size();
+        } catch (Throwable ok) {
+            exception = ok instanceof Exception cause ? cause : new RuntimeException(ok);
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    /**
+     * Shares the invalidations of this cache with the other nodes of {@code invalidations}. Balances
+     * kept in memory by write-behind or journal mode reach the other nodes once saved.
+     * @param invalidations link to the other nodes
+     */
+    public void attach(@NotNull CacheInvalidations invalidations) {
+        attach(invalidations, "transactions", key -> key.subjectId() + ":" + currencyIds.nameOf(key.currencyId()), key -> {
+            int separator = key.indexOf(':');
+            return keyOf(UUID.fromString(key.substring(0, separator)), key.substring(separator + 1));
+        });
+    }
+
+    /**
+     * Also refreshes the balances in the leaderboard, the wallets and the off-heap table, reading them
+     * again. A balance still pending here is kept, from this node it's the newest.
      */
     @Override
-    public @NotNull Response<Void> setAll(@NotNull Set<Transaction> transactions) {
-        if (transactions.isEmpty()) return Response.empty();
-        return query(statement -> {
-            Exception exception = null;
+    protected void invalidated(@NotNull Collection<AccountKey> keys) {
+        withLocks(keys, () -> {
+            super.invalidated(keys);
+            List<AccountKey> stale = new ArrayList<>(keys.size());
+            for (AccountKey key : keys) if (pending(key).isEmpty()) stale.add(key);
+            Map<AccountKey, Transaction> stored;
             try {
-                Map<Namespace, Transaction> replacement = new HashMap<>(transactions.size());
-                Namespace namespace;
-                statement.query("BEGIN TRANSACTION;");
-                statement.executeUpdate();
-                for (Transaction transaction : transactions) {
-                    namespace = new Namespace(transaction.subjectIdentifier().toString(), transaction.currencyName());
-                    statement.query(SQL_INSERT);
-                    statement.executeUpdate(namespace.join(), transaction.amount());
-                    if (cache().getIfPresent(namespace) != null) replacement.put(namespace, transaction);
+                stored = getAllCached(stale);
+            } catch (ExecutionException ok) {
+                // The new balances are unknown, the off-heap table and wallets can't be trusted anymore.
+                offHeapReady = false;
+                this.offHeap = null;
+                stale.forEach(key -> dropWallet(key.subjectId()));
+                return null;
+            }
+            OffHeapBalances offHeap = this.offHeap;
+            for (AccountKey key : stale) {
+                Transaction transaction = stored.get(key);
+                if (transaction != null) {
+                    updateIndexes(key, transaction);
+                    continue;
                 }
-                statement.query("COMMIT;");
-                statement.executeUpdate();
+                if (offHeap != null) offHeap.remove(key);
+                updateWallet(key.subjectId(), wallet -> wallet.without(key.currencyId()));
+                leaderboard.remove(key.subjectId(), currencyIds.nameOf(key.currencyId()));
+            }
+            return null;
+        });
+    }
 
-                statement.commit();
+    /**
+     * Only sent when another node deleted every balance, everything is read again.
+     * @throws IllegalStateException if the off-heap table can't be reloaded, balances are then read through the cache
+     */
+    @Override
+    protected void invalidatedAll() {
+        super.invalidatedAll();
+        dropWallets();
+        leaderboard.clear();
+        try {
+            reloadOffHeap().getOrThrow();
+        } catch (Throwable ok) {
+            throw new IllegalStateException("SimpleTransactionRepository@invalidatedAll() | Can't reload the off-heap balances.", ok);
+        }
+    }
 
-                cache().putAll(replacement);
-            } catch (SQLException ok) {
-                exception = ok;
+    /**
+     * Stops the write-behind flusher or the journal, if any, persisting every pending balance.
+     * @return an empty response or the first error persisting them, later ones are suppressed into it.
+     * A write-ahead log that can't be checkpointed is kept, so its balances are replayed on the next start
+     */
+    public @NotNull Response<Void> close() {
+        Exception exception = null;
+        BalanceWal wal = this.wal;
+        if (wal != null) exception = errorOf(wal.checkpoint(), exception);
+        if (ledger != null) exception = errorOf(ledger.close(), exception);
+        if (journal != null) exception = errorOf(journal.close(), exception);
+        return Response.ofNullable(null, exception);
+    }
+
+    private static @Nullable Exception errorOf(@NotNull Response<?> response, @Nullable Exception previous) {
+        try {
+            response.getOrThrow();
+            return previous;
+        } catch (Throwable ok) {
+            Exception exception = ok instanceof Exception cause ? cause : new RuntimeException(ok);
+            if (previous == null) return exception;
+            previous.addSuppressed(exception);
+            return previous;
+        }
+    }
+
+    private void remember(@NotNull AccountKey key, @NotNull Transaction transaction, @NotNull TransactionKind kind) {
+        BalanceWal wal = this.wal;
+        if (wal == null) rememberInMemory(key, transaction, kind);
+        else wal.append(transaction.subjectIdentifier(), transaction.currencyName(), minorOf(transaction), () -> rememberInMemory(key, transaction, kind));
+    }
+
+    /**
+     * Same as {@link #remember(AccountKey, Transaction, TransactionKind)} for many balances, waiting for
+     * the write-ahead log once for all of them.
+     */
+    private void rememberAll(@NotNull Collection<Transaction> transactions, @NotNull TransactionKind kind) {
+        BalanceWal wal = this.wal;
+        if (wal == null) {
+            for (Transaction transaction : transactions) rememberInMemory(keyOf(transaction), transaction, kind);
+            return;
+        }
+        wal.appendAll(List.copyOf(transactions), this::recordOf, transaction -> rememberInMemory(keyOf(transaction), transaction, kind));
+    }
+
+    /**
+     * Remembers both legs of a transfer as one change: logged together in the write-ahead log, queued
+     * together in the journal and flushed together by the ledger, so neither is persisted without the other.
+     */
+    private void rememberTransfer(@NotNull AccountKey source, @NotNull Transaction debit, @NotNull AccountKey target, @NotNull Transaction credit) {
+        BalanceWal wal = this.wal;
+        Runnable apply = () -> rememberTransferInMemory(source, debit, target, credit);
+        if (wal == null) apply.run();
+        else wal.appendTogether(List.of(recordOf(debit), recordOf(credit)), apply);
+    }
+
+    private void rememberTransferInMemory(@NotNull AccountKey source, @NotNull Transaction debit, @NotNull AccountKey target, @NotNull Transaction credit) {
+        if (journal != null) journal.appendTransfer(changeOf(source, debit), changeOf(target, credit));
+        if (!offHeapReady) {
+            cache().put(source, debit);
+            cache().put(target, credit);
+        }
+        forgetAbsent(List.of(source, target));
+        if (ledger != null) ledger.markAll(Map.of(source, debit, target, credit));
+        updateIndexes(source, debit);
+        updateIndexes(target, credit);
+    }
+
+    private @NotNull TransactionJournal.Change changeOf(@NotNull AccountKey key, @NotNull Transaction transaction) {
+        Long previous = previousMinor(key);
+        long balance = minorOf(transaction);
+        return new TransactionJournal.Change(key, transaction, balance, previous == null ? null : balance - previous);
+    }
+
+    private @NotNull BalanceWal.Record recordOf(@NotNull Transaction transaction) {
+        return new BalanceWal.Record(transaction.subjectIdentifier(), transaction.currencyName(), minorOf(transaction));
+    }
+
+    private void rememberInMemory(@NotNull AccountKey key, @NotNull Transaction transaction, @NotNull TransactionKind kind) {
+        if (journal != null) {
+            TransactionJournal.Change change = changeOf(key, transaction);
+            journal.append(key, transaction, change.balance(), kind, change.delta());
+        }
+        if (!offHeapReady) cache().put(key, transaction);
+        forgetAbsent(key);
+        if (ledger != null) ledger.mark(key, transaction);
+        updateIndexes(key, transaction);
+    }
+
+    private void updateIndexes(@NotNull AccountKey key, @NotNull Transaction transaction) {
+        updateIndexes(key, transaction.subjectIdentifier(), transaction.currencyName(), minorOf(transaction));
+    }
+
+    /**
+     * Keeps the leaderboard and, in off-heap mode, the balances table up to date, every write must call it.
+     */
+    private void updateIndexes(@NotNull AccountKey key, @NotNull UUID subjectId, @NotNull String currencyName, long balance) {
+        OffHeapBalances offHeap = this.offHeap;
+        if (offHeap != null) offHeap.put(key, balance);
+        updateWallet(subjectId, wallet -> wallet.with(key.currencyId(), balance));
+        leaderboard.update(subjectId, currencyName, balance);
+    }
+
+    private void updateWallet(@NotNull UUID subjectId, @NotNull UnaryOperator<Wallet> change) {
+        walletVersions.incrementAndGet(walletStripe(subjectId));
+        if (!wallets.isEmpty()) wallets.computeIfPresent(subjectId, (id, wallet) -> change.apply(wallet));
+    }
+
+    private void dropWallet(@NotNull UUID subjectId) {
+        walletVersions.incrementAndGet(walletStripe(subjectId));
+        wallets.remove(subjectId);
+    }
+
+    private void dropWallets() {
+        for (int stripe = 0; stripe < WALLET_STRIPES; stripe++) walletVersions.incrementAndGet(stripe);
+        wallets.clear();
+    }
+
+    private static int walletStripe(@NotNull UUID subjectId) {
+        return subjectId.hashCode() & (WALLET_STRIPES - 1);
+    }
+
+    /**
+     * Pending balances are read before the stored ones: one flushed meanwhile is then found stored.
+     */
+    private @NotNull Wallet loadWallet(@NotNull UUID subjectId) throws SQLException {
+        Map<AccountKey, Transaction> pending = pendingOf(key -> key.isOf(subjectId));
+        Wallet wallet = executeRead(connection -> {
+            PreparedStatement statement = prepare(connection, SQL_SELECT_OF_SUBJECT);
+            statement.setString(1, subjectId.toString());
+            Wallet stored = Wallet.empty(currencyIds, scales);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    int currencyId = currencyIds.idOf(result.getString("currency"));
+                    if (currencyId >= 0) stored = stored.with(currencyId, result.getLong("amount"));
+                }
             }
-            return Response.ofNullable(null, exception);
+            return stored;
+        });
+        for (Map.Entry<AccountKey, Transaction> entry : pending.entrySet())
+            wallet = wallet.with(entry.getKey().currencyId(), minorOf(entry.getValue()));
+        return wallet;
+    }
+
+    private @Nullable Long previousMinor(@NotNull AccountKey key) {
+        Optional<Transaction> pending = pending(key);
+        if (pending.isPresent()) return minorOf(pending.get());
+        OffHeapBalances offHeap = residentBalances();
+        if (offHeap == null) {
+            Transaction cached = cache().getIfPresent(key);
+            return cached == null ? null : minorOf(cached);
+        }
+        long balance = offHeap.get(key);
+        return balance == OffHeapBalances.ABSENT ? null : balance;
+    }
+
+    /**
+     * @return the off-heap balances once loaded, {@code null} if not in off-heap mode
+     */
+    private @Nullable OffHeapBalances residentBalances() {
+        return offHeapReady ? offHeap : null;
+    }
+
+    private @Nullable Transaction offHeapTransaction(@NotNull OffHeapBalances offHeap, @NotNull AccountKey key, @NotNull String currencyName) {
+        long balance = offHeap.get(key);
+        return balance == OffHeapBalances.ABSENT ? null : new Transaction(currencyName, key.subjectId(), MinorUnits.toMajor(balance, scaleOf(currencyName)));
+    }
+
+    private @NotNull Optional<Transaction> pending(@NotNull AccountKey key) {
+        if (journal != null) return journal.pending(key);
+        return ledger == null ? Optional.empty() : ledger.pending(key);
+    }
+
+    private @NotNull Map<AccountKey, Transaction> pendingOf(@NotNull Predicate<AccountKey> filter) {
+        if (journal != null) return journal.pendingOf(filter);
+        return ledger == null ? Map.of() : ledger.pendingOf(filter);
+    }
+
+    /**
+     * Pending balances are read before the stored ones, like in {@link #loadWallet(UUID)}, and replace
+     * them: a currency without id has none pending.
+     */
+    private @NotNull Stream<Transaction> withPending(@NotNull Stream<Transaction> stored, @NotNull Map<AccountKey, Transaction> pending) {
+        if (pending.isEmpty()) return stored;
+        return Stream.concat(stored.filter(transaction -> {
+            int currencyId = currencyIds.find(transaction.currencyName());
+            return currencyId < 0 || !pending.containsKey(AccountKey.of(transaction.subjectIdentifier(), currencyId));
+        }), pending.values().stream());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the currency doesn't exist
+     */
+    private @NotNull AccountKey keyOf(@NotNull Namespace namespace) {
+        return keyOf(UUID.fromString(namespace.key()), namespace.name());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the currency doesn't exist
+     */
+    private @NotNull AccountKey keyOf(@NotNull UUID subjectId, @NotNull String currencyName) {
+        AccountKey key = existingKeyOf(subjectId, currencyName);
+        if (key == null) throw unknownCurrency(currencyName);
+        return key;
+    }
+
+    /**
+     * For reads, an account of a name that isn't a currency can't exist.
+     * @return key of the account, {@code null} if the currency doesn't exist
+     */
+    private @Nullable AccountKey existingKeyOf(@NotNull UUID subjectId, @NotNull String currencyName) {
+        int currencyId = currencyIds.idOf(currencyName);
+        return currencyId < 0 ? null : AccountKey.of(subjectId, currencyId);
+    }
+
+    private static @NotNull IllegalArgumentException unknownCurrency(@NotNull String currencyName) {
+        return new IllegalArgumentException("SimpleTransactionRepository@keyOf() | Unknown currency " + currencyName + ".");
+    }
+
+    private @NotNull AccountKey keyOf(@NotNull Transaction transaction) {
+        return keyOf(transaction.subjectIdentifier(), transaction.currencyName());
+    }
+
+    /**
+     * Reads the balances of a currency for the leaderboard, streaming the rows instead of materializing
+     * them. Pending balances go first, like in {@link #loadWallet(UUID)}.
+     */
+    private void loadRanking(@NotNull String currencyName, @NotNull ObjLongConsumer<UUID> sink) throws SQLException {
+        int currencyId = currencyIds.idOf(currencyName);
+        if (currencyId < 0) return;
+        pendingOf(key -> key.currencyId() == currencyId).forEach((key, transaction) -> sink.accept(key.subjectId(), minorOf(transaction)));
+        executeRead(connection -> {
+            PreparedStatement statement = prepare(connection, SQL_SELECT_OF_CURRENCY);
+            statement.setString(1, currencyName);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) sink.accept(UUID.fromString(result.getString("subject_id")), result.getLong("amount"));
+            }
+            return null;
+        });
+    }
+
+    private static @NotNull Response<TransactionJournal.Recovery> openJournal(@NotNull TransactionJournal journal) {
+        TransactionJournal.Recovery value = null;
+        Exception exception = null;
+        try {
+            value = journal.open();
+        } catch (SQLException ok) {
+            exception = ok;
+        }
+        return Response.ofNullable(value, exception);
+    }
+
+    private long cachedAmount(@NotNull AccountKey key) throws ExecutionException {
+        Optional<Transaction> pending = pending(key);
+        if (pending.isPresent()) return minorOf(pending.get());
+        OffHeapBalances offHeap = residentBalances();
+        if (offHeap != null) {
+            long balance = offHeap.get(key);
+            return balance == OffHeapBalances.ABSENT ? 0 : balance;
+        }
+        recordLookup(key);
+        Optional<Transaction> stored = find(key);
+        return stored.isPresent() ? minorOf(stored.get()) : 0;
+    }
+
+    private void recordLookup(@NotNull AccountKey key) {
+        if (online.isEmpty() || !online.contains(key.subjectId())) return;
+        if (cache().getIfPresent(key) != null) onlineHits.increment();
+        else onlineMisses.increment();
+    }
+
+    private @NotNull Transaction transactionOf(@NotNull ResultSet row) throws SQLException {
+        UUID subjectId = UUID.fromString(row.getString("subject_id"));
+        String currencyName = row.getString("currency");
+        double amount = MinorUnits.toMajor(row.getLong("amount"), scaleOf(currencyName));
+        return new Transaction(currencyName, subjectId, amount);
+    }
+
+    private @NotNull Transaction transactionOf(@NotNull DbRow row) {
+        UUID subjectId = UUID.fromString(row.getString("subject_id"));
+        String currencyName = row.getString("currency");
+        double amount = MinorUnits.toMajor(row.getLong("amount", 0L), scales.applyAsInt(currencyName));
+        return new Transaction(currencyName, subjectId, amount);
+    }
+
+    private long minorOf(@NotNull Transaction transaction) {
+        return MinorUnits.toMinor(transaction.amount(), scaleOf(transaction.currencyName()));
+    }
+
+    private long selectAmount(@NotNull Connection connection, @NotNull UUID subjectId, @NotNull String currencyName) throws SQLException {
+        PreparedStatement statement = prepare(connection, SQL_SELECT);
+        statement.setString(1, subjectId.toString());
+        statement.setString(2, currencyName);
+        try (ResultSet result = statement.executeQuery()) {
+            return result.next() ? result.getLong("amount") : 0;
+        }
+    }
+
+    private static void bind(@NotNull PreparedStatement statement, @NotNull UUID subjectId, @NotNull String currencyName, long amount) throws SQLException {
+        statement.setString(1, subjectId.toString());
+        statement.setString(2, currencyName);
+        statement.setLong(3, amount);
+    }
+
+    /**
+     * Writes the balances in one batch and runs {@code checkpoint}, if any, in the same database transaction.
+     */
+    private void write(@NotNull Collection<Transaction> transactions, @Nullable BalanceAdjuster.Checkpoint checkpoint) throws SQLException {
+        if (checkpoint == null) executeBatch(SQL_INSERT, transactions, (statement, transaction) -> {
+            statement.setString(1, transaction.subjectIdentifier().toString());
+            statement.setString(2, transaction.currencyName());
+            statement.setLong(3, minorOf(transaction));
         });
+        else executeSession(connection -> {
+            if (!transactions.isEmpty()) {
+                PreparedStatement statement = prepare(connection, SQL_INSERT);
+                for (Transaction transaction : transactions) {
+                    bind(statement, transaction.subjectIdentifier(), transaction.currencyName(), minorOf(transaction));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            checkpoint.write(connection);
+            return null;
+        });
+        broadcast(transactions.stream().map(this::keyOf).toList());
+    }
+
+    /**
+     * Outcome of {@link #addAllMinor(String, Map, TransactionKind)}.
+     * @param applied subjects whose balance changed
+     * @param failed subjects left untouched and why
+     */
+    public record BulkResult(@NotNull Set<UUID> applied, @NotNull Map<UUID, Exception> failed) {
+    }
+
+    /**
+     * New balance of one account of a bulk update, throws to leave the account as it is.
+     */
+    @FunctionalInterface
+    private interface AccountUpdate {
+        long apply(@NotNull UUID subjectId, @NotNull String currencyName, long balance);
+    }
+
+    private record LedgerSettings(long interval, TimeUnit unit, int threshold) {
     }
 }
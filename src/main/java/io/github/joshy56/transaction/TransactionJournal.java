@@ -0,0 +1,385 @@
+package io.github.joshy56.transaction;
+
+import io.github.joshy56.StatementPool;
+import io.github.joshy56.response.Response;
+import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Append-only log of every balance change. Changes are kept in memory and appended to the
+ * {@code journal} table in batches, every {@code appendInterval}; every {@code snapshotInterval}
+ * the journal tail is folded into the {@code transactions} table, which then works as the
+ * snapshot, and deleted from the journal. On startup only the tail after the last snapshot has to be replayed.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class TransactionJournal {
+    @Language("SQL")
+    private static final String SQL_CREATE_JOURNAL = "CREATE TABLE IF NOT EXISTS journal(seq INTEGER PRIMARY KEY, subject_id VARCHAR(36) NOT NULL, currency VARCHAR(64) NOT NULL, kind TINYINT NOT NULL, delta BIGINT, balance BIGINT NOT NULL, created BIGINT NOT NULL);",
+            SQL_CREATE_SNAPSHOT = "CREATE TABLE IF NOT EXISTS journal_snapshot(id INTEGER PRIMARY KEY CHECK(id = 0), seq BIGINT NOT NULL);",
+            SQL_INIT_SNAPSHOT = "INSERT OR IGNORE INTO journal_snapshot(id, seq) VALUES(0, 0);",
+            SQL_SELECT_SNAPSHOT = "SELECT seq FROM journal_snapshot WHERE id = 0;",
+            SQL_SELECT_LAST = "SELECT COALESCE(MAX(seq), 0) FROM journal;",
+            SQL_APPEND = "INSERT INTO journal(seq, subject_id, currency, kind, delta, balance, created) VALUES(?, ?, ?, ?, ?, ?, ?);",
+            SQL_FOLD = "INSERT INTO transactions(subject_id, currency, amount) SELECT entry.subject_id, entry.currency, entry.balance FROM journal entry "
+                    + "JOIN (SELECT MAX(seq) AS seq FROM journal WHERE seq > ? AND seq <= ? GROUP BY subject_id, currency) last ON entry.seq = last.seq "
+                    + "WHERE true ON CONFLICT(subject_id, currency) DO UPDATE SET amount=excluded.amount;",
+            SQL_UPDATE_SNAPSHOT = "UPDATE journal_snapshot SET seq = ? WHERE id = 0;",
+            SQL_TRUNCATE = "DELETE FROM journal WHERE seq <= ?;";
+    private final StatementPool statements;
+    private final long appendInterval, snapshotInterval;
+    private final TimeUnit unit;
+    private final Queue<Entry> queue;
+    private final ConcurrentMap<AccountKey, Entry> pending;
+    private final Object appendLock, writeLock;
+    private long sequence, written;
+    private volatile long snapshot;
+    @Nullable
+    private volatile Consumer<List<AccountKey>> foldListener;
+    @Nullable
+    private ScheduledExecutorService worker;
+
+    /**
+     * @param statements pool of the database holding the {@code transactions} table
+     * @param appendInterval max time a change waits in memory before reaching the journal
+     * @param snapshotInterval time between folds of the journal tail into {@code transactions}
+     * @param unit unit of both intervals
+     */
+    public TransactionJournal(@NotNull StatementPool statements, long appendInterval, long snapshotInterval, @NotNull TimeUnit unit) {
+        if (appendInterval <= 0 || snapshotInterval <= 0) throw new IllegalArgumentException("TransactionJournal@constructor() | Intervals must be positive.");
+        this.statements = statements;
+        this.appendInterval = appendInterval;
+        this.snapshotInterval = snapshotInterval;
+        this.unit = unit;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.pending = new ConcurrentHashMap<>();
+        this.appendLock = new Object();
+        this.writeLock = new Object();
+    }
+
+    /**
+     * Creates the journal tables, replays the tail left by the last run into {@code transactions}
+     * and starts appending. Must be called once the {@code transactions} table exists.
+     * @return what the replay took
+     * @throws SQLException if the journal can't be opened
+     */
+    @NotNull
+    Recovery open() throws SQLException {
+        long start = System.nanoTime(), replayed;
+        try (Connection connection = statements.borrow()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(SQL_CREATE_JOURNAL);
+                statement.executeUpdate(SQL_CREATE_SNAPSHOT);
+                statement.executeUpdate(SQL_INIT_SNAPSHOT);
+                snapshot = firstLong(statement, SQL_SELECT_SNAPSHOT);
+                // Folded entries are deleted, an empty journal goes on after the snapshot.
+                sequence = written = Math.max(snapshot, firstLong(statement, SQL_SELECT_LAST));
+            }
+            replayed = written - snapshot;
+        }
+        fold();
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "economic-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::drain, appendInterval, appendInterval, unit);
+        worker.scheduleWithFixedDelay(this::snapshot, snapshotInterval, snapshotInterval, unit);
+        return new Recovery(replayed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Records a balance change, it's readable through {@link #pending(AccountKey)} until the next snapshot.
+     * @param key changed account
+     * @param transaction new balance
+     * @param balance new balance in minor units
+     * @param kind cause of the change
+     * @param delta change in minor units, {@code null} if unknown
+     */
+    void append(@NotNull AccountKey key, @NotNull Transaction transaction, long balance, @NotNull TransactionKind kind, @Nullable Long delta) {
+        // Sequence and queue order must match, or a snapshot could skip an entry still on its way.
+        synchronized (appendLock) {
+            Entry entry = new Entry(++sequence, transaction, balance, kind, delta, System.currentTimeMillis());
+            pending.put(key, entry);
+            queue.add(entry);
+        }
+    }
+
+    /**
+     * Records the two legs of a transfer, queued together so both land in the same drain.
+     * @param debit new balance of the source account
+     * @param credit new balance of the target account
+     */
+    void appendTransfer(@NotNull Change debit, @NotNull Change credit) {
+        synchronized (appendLock) {
+            long now = System.currentTimeMillis();
+            Entry out = new Entry(++sequence, debit.transaction(), debit.balance(), TransactionKind.TRANSFER_OUT, debit.delta(), now),
+                    in = new Entry(++sequence, credit.transaction(), credit.balance(), TransactionKind.TRANSFER_IN, credit.delta(), now);
+            pending.put(debit.key(), out);
+            pending.put(credit.key(), in);
+            queue.add(out);
+            queue.add(in);
+        }
+    }
+
+    /**
+     * @param key account key
+     * @return the balance not yet folded into {@code transactions}, if any
+     */
+    @NotNull
+    Optional<Transaction> pending(@NotNull AccountKey key) {
+        Entry entry = pending.get(key);
+        return entry == null ? Optional.empty() : Optional.of(entry.transaction());
+    }
+
+    /**
+     * Records balance changes straight in the journal table, in one database transaction with every
+     * change queued before them and {@code checkpoint}: they're durable exactly when the checkpoint is.
+     * The accounts must be locked, so no other change of them is appended meanwhile.
+     * @param changes new balances
+     * @param kind cause of the changes
+     * @param checkpoint database work committed along
+     * @throws SQLException if the transaction is rolled back, the changes are then discarded
+     */
+    void appendDurably(@NotNull List<Change> changes, @NotNull TransactionKind kind, @NotNull BalanceAdjuster.Checkpoint checkpoint) throws SQLException {
+        synchronized (writeLock) {
+            List<Entry> queued = new ArrayList<>(), appended = new ArrayList<>(changes.size());
+            synchronized (appendLock) {
+                for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) queued.add(entry);
+                long now = System.currentTimeMillis();
+                for (Change change : changes)
+                    appended.add(new Entry(++sequence, change.transaction(), change.balance(), kind, change.delta(), now));
+            }
+            List<Entry> batch = new ArrayList<>(queued.size() + appended.size());
+            batch.addAll(queued);
+            batch.addAll(appended);
+            try {
+                write(batch, checkpoint);
+            } catch (SQLException ok) {
+                requeue(queued);
+                throw ok;
+            }
+            for (int index = 0; index < changes.size(); index++) pending.put(changes.get(index).key(), appended.get(index));
+        }
+    }
+
+    /**
+     * Appends every queued change to the journal table in one batch.
+     * @return an empty response or the error of the batch, queued changes are kept on failure
+     */
+    @NotNull
+    Response<Void> drain() {
+        synchronized (writeLock) {
+            Exception exception = null;
+            List<Entry> batch = new ArrayList<>();
+            // Taken with the append lock, so entries queued together are never split between batches.
+            synchronized (appendLock) {
+                for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) batch.add(entry);
+            }
+            if (batch.isEmpty()) return Response.empty();
+            try {
+                write(batch, null);
+            } catch (SQLException ok) {
+                requeue(batch);
+                exception = ok;
+            }
+            return Response.ofNullable(null, exception);
+        }
+    }
+
+    /**
+     * Drains the queue and folds the journal tail into {@code transactions}.
+     * @return an empty response or the error that stopped it
+     */
+    @NotNull
+    Response<Void> snapshot() {
+        Response<Void> drained = drain();
+        Exception exception = null;
+        try {
+            fold();
+        } catch (SQLException ok) {
+            exception = ok;
+        }
+        return exception == null ? drained : Response.ofNullable(null, exception);
+    }
+
+    /**
+     * @param filter accounts to look at
+     * @return balances of the matching accounts not yet folded into {@code transactions}
+     */
+    @NotNull
+    Map<AccountKey, Transaction> pendingOf(@NotNull Predicate<AccountKey> filter) {
+        Map<AccountKey, Transaction> found = new HashMap<>();
+        pending.forEach((key, entry) -> {
+            if (filter.test(key)) found.put(key, entry.transaction());
+        });
+        return found;
+    }
+
+    /**
+     * @param listener told the accounts whose pending balance reached {@code transactions} after every fold
+     */
+    void onFold(@NotNull Consumer<List<AccountKey>> listener) {
+        this.foldListener = listener;
+    }
+
+    /**
+     * Forgets pending changes of the accounts, used before deleting them.
+     */
+    void discard(@NotNull AccountKey key) {
+        pending.remove(key);
+    }
+
+    void discardAll() {
+        pending.clear();
+    }
+
+    /**
+     * Stops appending and takes a last snapshot.
+     * @return an empty response or the error of the snapshot
+     */
+    @NotNull
+    public Response<Void> close() {
+        if (worker != null) {
+            worker.shutdown();
+            try {
+                worker.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ok) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return snapshot();
+    }
+
+    /**
+     * Inserts {@code batch} and runs {@code checkpoint}, if any, in one database transaction.
+     */
+    private void write(@NotNull List<Entry> batch, @Nullable BalanceAdjuster.Checkpoint checkpoint) throws SQLException {
+        try (Connection connection = statements.borrow()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                if (!batch.isEmpty()) {
+                    PreparedStatement statement = statements.prepare(connection, SQL_APPEND);
+                    for (Entry entry : batch) {
+                        statement.setLong(1, entry.sequence());
+                        statement.setString(2, entry.transaction().subjectIdentifier().toString());
+                        statement.setString(3, entry.transaction().currencyName());
+                        statement.setInt(4, entry.kind().ordinal());
+                        if (entry.delta() == null) statement.setNull(5, Types.BIGINT);
+                        else statement.setLong(5, entry.delta());
+                        statement.setLong(6, entry.balance());
+                        statement.setLong(7, entry.created());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                if (checkpoint != null) checkpoint.write(connection);
+                connection.commit();
+                if (!batch.isEmpty()) written = batch.get(batch.size() - 1).sequence();
+            } catch (SQLException ok) {
+                connection.rollback();
+                throw ok;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Puts entries that failed to be written back in front, in order, to be retried by the next drain.
+     */
+    private void requeue(@NotNull List<Entry> entries) {
+        if (entries.isEmpty()) return;
+        synchronized (appendLock) {
+            List<Entry> retry = new ArrayList<>(entries);
+            retry.addAll(queue);
+            queue.clear();
+            queue.addAll(retry);
+        }
+    }
+
+    private void fold() throws SQLException {
+        synchronized (writeLock) {
+            long from = snapshot, to = written;
+            if (to <= from) return;
+            try (Connection connection = statements.borrow()) {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    PreparedStatement fold = statements.prepare(connection, SQL_FOLD);
+                    fold.setLong(1, from);
+                    fold.setLong(2, to);
+                    fold.executeUpdate();
+                    PreparedStatement update = statements.prepare(connection, SQL_UPDATE_SNAPSHOT);
+                    update.setLong(1, to);
+                    update.executeUpdate();
+                    PreparedStatement truncate = statements.prepare(connection, SQL_TRUNCATE);
+                    truncate.setLong(1, to);
+                    truncate.executeUpdate();
+                    connection.commit();
+                } catch (SQLException ok) {
+                    connection.rollback();
+                    throw ok;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            }
+            snapshot = to;
+            List<AccountKey> folded = new ArrayList<>();
+            pending.forEach((key, entry) -> {
+                if (entry.sequence() <= to && pending.remove(key, entry)) folded.add(key);
+            });
+            Consumer<List<AccountKey>> listener = foldListener;
+            if (listener != null && !folded.isEmpty()) listener.accept(folded);
+        }
+    }
+
+    private static long firstLong(@NotNull Statement statement, @Language("SQL") @NotNull String sql) throws SQLException {
+        try (ResultSet result = statement.executeQuery(sql)) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * @param entries journal entries replayed on startup
+     * @param millis time the replay took
+     */
+    public record Recovery(long entries, long millis) {
+    }
+
+    /**
+     * A balance change of {@link #appendDurably(List, TransactionKind, BalanceAdjuster.Checkpoint)}.
+     * @param key changed account
+     * @param transaction new balance
+     * @param balance new balance in minor units
+     * @param delta change in minor units, {@code null} if unknown
+     */
+    record Change(@NotNull AccountKey key, @NotNull Transaction transaction, long balance, @Nullable Long delta) {
+    }
+
+    private record Entry(long sequence, @NotNull Transaction transaction, long balance, @NotNull TransactionKind kind, @Nullable Long delta, long created) {
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.joshy56.transaction;
+
+/**
+ * Cause of a balance change, as recorded in the transaction journal.
+ * The ordinal is what gets stored, so new kinds must be added at the end.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public enum TransactionKind {
+    SET,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER_OUT,
+    TRANSFER_IN,
+    ADJUST
+}
@@ -0,0 +1,103 @@
+package io.github.joshy56.transaction;
+
+import co.aikar.idb.DbRow;
+import co.aikar.idb.DbStatement;
+import io.github.joshy56.Namespace;
+import io.github.joshy56.currency.MinorUnits;
+import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+/**
+ * Moves older {@code transactions} tables to the current layout: balances keyed by
+ * {@code (subject_id, currency)} and stored as {@code BIGINT} minor units. Handles both the
+ * {@code identifier} keyed table, built from {@link Namespace#join()}, and the {@code DOUBLE} amount one.
+ * Runs inside the caller transaction, so the server only needs a restart and the old table is never left half copied.
+ * Rows are copied {@value #CHUNK} at a time, with one insert each, so the old table is never held in memory whole.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+final class TransactionsMigration {
+    /**
+     * Rows per insert, three parameters each stay under the 999 SQLite allows by default.
+     */
+    private static final int CHUNK = 300;
+    @Language("SQL")
+    private static final String SQL_COLUMNS = "PRAGMA table_info(transactions);",
+            SQL_RENAME = "ALTER TABLE transactions RENAME TO transactions_legacy;",
+            SQL_SELECT_BY_IDENTIFIER = "SELECT rowid AS legacy_row, identifier, amount FROM transactions_legacy WHERE rowid > ? ORDER BY rowid LIMIT " + CHUNK + ";",
+            SQL_SELECT_BY_COLUMNS = "SELECT rowid AS legacy_row, subject_id, currency, amount FROM transactions_legacy WHERE rowid > ? ORDER BY rowid LIMIT " + CHUNK + ";",
+            SQL_INSERT = "INSERT INTO transactions(subject_id, currency, amount) VALUES ",
+            SQL_DROP = "DROP TABLE transactions_legacy;";
+
+    private TransactionsMigration() {
+    }
+
+    /**
+     * Migrates the table if it's in any older layout, does nothing otherwise.
+     * @param statement statement with an open transaction
+     * @param createTable statement that creates the current table
+     * @param scales decimals of every currency, used to turn legacy amounts into minor units
+     * @throws SQLException if any step fails, the caller must roll back
+     */
+    static void migrate(@NotNull DbStatement statement, @Language("SQL") @NotNull String createTable, @NotNull ToIntFunction<String> scales) throws SQLException {
+        statement.query(SQL_COLUMNS);
+        statement.execute();
+        List<DbRow> columns = statement.getResults();
+        if (columns == null || columns.isEmpty()) return;
+        boolean keyedByIdentifier = columns.stream().anyMatch(column -> "identifier".equals(column.getString("name")));
+        boolean decimalAmount = columns.stream().anyMatch(column -> "amount".equals(column.getString("name")) && "DOUBLE".equalsIgnoreCase(column.getString("type")));
+        if (!keyedByIdentifier && !decimalAmount) return;
+
+        statement.query(SQL_RENAME);
+        statement.executeUpdate();
+        statement.query(createTable);
+        statement.executeUpdate();
+
+        int currencyOffset = currencyOffset();
+        long lastRow = Long.MIN_VALUE;
+        while (true) {
+            // Keyed on the rowid, every chunk is one index seek no matter how far the copy went.
+            statement.query(keyedByIdentifier ? SQL_SELECT_BY_IDENTIFIER : SQL_SELECT_BY_COLUMNS);
+            statement.execute(lastRow);
+            List<DbRow> rows = statement.getResults();
+            if (rows == null || rows.isEmpty()) break;
+            Object[] values = new Object[rows.size() * 3];
+            int index = 0;
+            for (DbRow row : rows) {
+                String subjectId, currencyName;
+                if (keyedByIdentifier) {
+                    String identifier = row.getString("identifier");
+                    subjectId = identifier.substring(0, 36);
+                    currencyName = identifier.substring(currencyOffset);
+                } else {
+                    subjectId = row.getString("subject_id");
+                    currencyName = row.getString("currency");
+                }
+                values[index++] = subjectId;
+                values[index++] = currencyName;
+                values[index++] = MinorUnits.toMinor(row.getDbl("amount", 0), scales.applyAsInt(currencyName));
+                lastRow = row.getLong("legacy_row");
+            }
+            statement.query(SQL_INSERT + String.join(", ", Collections.nCopies(rows.size(), "(?, ?, ?)")) + ";");
+            statement.executeUpdate(values);
+            if (rows.size() < CHUNK) break;
+        }
+
+        statement.query(SQL_DROP);
+        statement.executeUpdate();
+    }
+
+    /**
+     * @return position where the currency name starts inside a joined identifier
+     */
+    private static int currencyOffset() {
+        String probe = new Namespace(new UUID(0, 0).toString(), "c").join();
+        return probe.lastIndexOf('c');
+    }
+}
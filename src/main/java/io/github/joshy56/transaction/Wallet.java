@@ -0,0 +1,132 @@
+package io.github.joshy56.transaction;
+
+import io.github.joshy56.currency.CurrencyIds;
+import io.github.joshy56.currency.MinorUnits;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.ToIntFunction;
+
+/**
+ * Immutable snapshot of every balance of one subject, as parallel primitive arrays of currency ids
+ * and balances in minor units sorted by id. Reading it neither boxes nor allocates; changes build a
+ * new wallet.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+public final class Wallet {
+    private final CurrencyIds currencyIds;
+    private final ToIntFunction<String> scales;
+    private final int[] ids;
+    private final long[] balances;
+
+    private Wallet(@NotNull CurrencyIds currencyIds, @NotNull ToIntFunction<String> scales, int @NotNull [] ids, long @NotNull [] balances) {
+        this.currencyIds = currencyIds;
+        this.scales = scales;
+        this.ids = ids;
+        this.balances = balances;
+    }
+
+    @NotNull
+    static Wallet empty(@NotNull CurrencyIds currencyIds, @NotNull ToIntFunction<String> scales) {
+        return new Wallet(currencyIds, scales, new int[0], new long[0]);
+    }
+
+    /**
+     * Builds a wallet out of balances read through the {@link TransactionRepository} interface.
+     * @param transactions balances of one subject
+     * @param scales decimals of every currency
+     */
+    @NotNull
+    static Wallet of(@NotNull Collection<Transaction> transactions, @NotNull ToIntFunction<String> scales) {
+        Wallet wallet = empty(new CurrencyIds(currencyName -> true), scales);
+        for (Transaction transaction : transactions) {
+            String currencyName = transaction.currencyName();
+            wallet = wallet.with(wallet.currencyIds.idOf(currencyName), MinorUnits.toMinor(transaction.amount(), scales.applyAsInt(currencyName)));
+        }
+        return wallet;
+    }
+
+    /**
+     * @return amount of currencies the subject has a balance on
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param index position between zero and {@link #size()}
+     * @return name of the currency at {@code index}
+     */
+    @NotNull
+    public String currencyName(int index) {
+        return currencyIds.nameOf(ids[index]);
+    }
+
+    /**
+     * @param index position between zero and {@link #size()}
+     * @return balance at {@code index} in minor units of its currency
+     */
+    public long balance(int index) {
+        return balances[index];
+    }
+
+    /**
+     * @param index position between zero and {@link #size()}
+     * @return balance at {@code index}
+     */
+    public double amount(int index) {
+        return MinorUnits.toMajor(balances[index], scales.applyAsInt(currencyName(index)));
+    }
+
+    /**
+     * @return position of the currency, negative if the subject has no balance on it
+     */
+    public int indexOf(@NotNull String currencyName) {
+        int id = currencyIds.find(currencyName);
+        return id < 0 ? -1 : Arrays.binarySearch(ids, id);
+    }
+
+    /**
+     * @return balance on the currency in minor units, zero if the subject has none
+     */
+    public long balanceOf(@NotNull String currencyName) {
+        int index = indexOf(currencyName);
+        return index < 0 ? 0 : balances[index];
+    }
+
+    @NotNull
+    Wallet with(int currencyId, long balance) {
+        int index = Arrays.binarySearch(ids, currencyId);
+        if (index >= 0) {
+            if (balances[index] == balance) return this;
+            long[] balances = this.balances.clone();
+            balances[index] = balance;
+            return new Wallet(currencyIds, scales, ids, balances);
+        }
+        index = -index - 1;
+        int[] ids = new int[this.ids.length + 1];
+        long[] balances = new long[ids.length];
+        System.arraycopy(this.ids, 0, ids, 0, index);
+        System.arraycopy(this.balances, 0, balances, 0, index);
+        ids[index] = currencyId;
+        balances[index] = balance;
+        System.arraycopy(this.ids, index, ids, index + 1, this.ids.length - index);
+        System.arraycopy(this.balances, index, balances, index + 1, this.balances.length - index);
+        return new Wallet(currencyIds, scales, ids, balances);
+    }
+
+    @NotNull
+    Wallet without(int currencyId) {
+        int index = Arrays.binarySearch(ids, currencyId);
+        if (index < 0) return this;
+        int[] ids = new int[this.ids.length - 1];
+        long[] balances = new long[ids.length];
+        System.arraycopy(this.ids, 0, ids, 0, index);
+        System.arraycopy(this.balances, 0, balances, 0, index);
+        System.arraycopy(this.ids, index + 1, ids, index, ids.length - index);
+        System.arraycopy(this.balances, index + 1, balances, index, balances.length - index);
+        return new Wallet(currencyIds, scales, ids, balances);
+    }
+}
@@ -0,0 +1,240 @@
+package io.github.joshy56.transaction;
+
+import io.github.joshy56.response.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Holds the latest not yet persisted balance of every touched account and writes them
+ * to the database in batches, every {@code interval} or as soon as {@code threshold}
+ * accounts are dirty. Several writes to the same account between flushes collapse into one.
+ * Balances marked together, like both legs of a transfer, are always written in the same batch.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+final class WriteBehindLedger {
+    private final ConcurrentMap<AccountKey, Transaction> dirty;
+    private final ConcurrentMap<AccountKey, Set<AccountKey>> together;
+    private final ReadWriteLock marking;
+    private final Writer writer;
+    private final ScheduledExecutorService flusher;
+    private final int threshold;
+    private final AtomicBoolean flushQueued;
+    private final Object flushLock;
+
+    WriteBehindLedger(@NotNull Writer writer, long interval, @NotNull TimeUnit unit, int threshold) {
+        if (interval <= 0) throw new IllegalArgumentException("WriteBehindLedger@constructor() | Interval must be positive.");
+        if (threshold <= 0) throw new IllegalArgumentException("WriteBehindLedger@constructor() | Threshold must be positive.");
+        this.dirty = new ConcurrentHashMap<>();
+        this.together = new ConcurrentHashMap<>();
+        this.marking = new ReentrantReadWriteLock();
+        this.writer = writer;
+        this.threshold = threshold;
+        this.flushQueued = new AtomicBoolean();
+        this.flushLock = new Object();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "economic-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, unit);
+    }
+
+    /**
+     * Records the new balance of an account, to be written on the next flush.
+     * @param key account key
+     * @param transaction latest balance
+     */
+    void mark(@NotNull AccountKey key, @NotNull Transaction transaction) {
+        marking.readLock().lock();
+        try {
+            dirty.put(key, transaction);
+        } finally {
+            marking.readLock().unlock();
+        }
+        queueFlush();
+    }
+
+    /**
+     * Records the new balances of several accounts, to be written in the same flush.
+     * @param transactions latest balance per account
+     */
+    void markAll(@NotNull Map<AccountKey, Transaction> transactions) {
+        marking.readLock().lock();
+        try {
+            transactions.forEach((key, transaction) -> {
+                together.computeIfAbsent(key, any -> ConcurrentHashMap.newKeySet()).addAll(transactions.keySet());
+                dirty.put(key, transaction);
+            });
+        } finally {
+            marking.readLock().unlock();
+        }
+        queueFlush();
+    }
+
+    private void queueFlush() {
+        if (dirty.size() < threshold || !flushQueued.compareAndSet(false, true)) return;
+        try {
+            flusher.execute(() -> {
+                flushQueued.set(false);
+                flush();
+            });
+        } catch (RejectedExecutionException ok) {
+            flushQueued.set(false);
+        }
+    }
+
+    /**
+     * @param key account key
+     * @return the balance waiting to be written, if any
+     */
+    @NotNull
+    Optional<Transaction> pending(@NotNull AccountKey key) {
+        return Optional.ofNullable(dirty.get(key));
+    }
+
+    /**
+     * @param filter accounts to look at
+     * @return balances of the matching accounts waiting to be written
+     */
+    @NotNull
+    Map<AccountKey, Transaction> pendingOf(@NotNull Predicate<AccountKey> filter) {
+        Map<AccountKey, Transaction> pending = new HashMap<>();
+        dirty.forEach((key, transaction) -> {
+            if (filter.test(key)) pending.put(key, transaction);
+        });
+        return pending;
+    }
+
+    void discard(@NotNull AccountKey key) {
+        dirty.remove(key);
+        together.remove(key);
+    }
+
+    void discardAll(@NotNull Collection<AccountKey> keys) {
+        keys.forEach(this::discard);
+    }
+
+    void discardAll() {
+        dirty.clear();
+        together.clear();
+    }
+
+    int size() {
+        return dirty.size();
+    }
+
+    /**
+     * Writes every dirty balance in one batch. Entries changed while the batch was being
+     * written stay dirty for the next flush; if the batch fails nothing is lost.
+     * @return an empty response or the error of the batch
+     */
+    @NotNull
+    Response<Void> flush() {
+        return flush(key -> true);
+    }
+
+    /**
+     * Same as {@link #flush()} limited to the accounts matching {@code filter} and those marked together
+     * with them.
+     * @param filter accounts to write
+     * @return an empty response or the error of the batch
+     */
+    @NotNull
+    Response<Void> flush(@NotNull Predicate<AccountKey> filter) {
+        synchronized (flushLock) {
+            if (dirty.isEmpty()) return Response.empty();
+            Map<AccountKey, Transaction> snapshot = new HashMap<>();
+            marking.writeLock().lock();
+            try {
+                Deque<AccountKey> linked = new ArrayDeque<>();
+                dirty.forEach((key, transaction) -> {
+                    if (!filter.test(key)) return;
+                    snapshot.put(key, transaction);
+                    linked.add(key);
+                });
+                while (!linked.isEmpty()) {
+                    for (AccountKey key : together.getOrDefault(linked.poll(), Set.of())) {
+                        Transaction transaction = dirty.get(key);
+                        if (transaction != null && snapshot.putIfAbsent(key, transaction) == null) linked.add(key);
+                    }
+                }
+            } finally {
+                marking.writeLock().unlock();
+            }
+            if (snapshot.isEmpty()) return Response.empty();
+            Exception exception = null;
+            try {
+                writer.write(snapshot.values(), null);
+                snapshot.forEach((key, transaction) -> {
+                    if (dirty.remove(key, transaction)) together.remove(key);
+                });
+            } catch (SQLException ok) {
+                exception = ok;
+            }
+            return Response.ofNullable(null, exception);
+        }
+    }
+
+    /**
+     * Writes {@code transactions} now, in one database transaction with {@code checkpoint}, and forgets
+     * the balances of their accounts waiting until then, which would overwrite them on the next flush.
+     * @param transactions new balances per account
+     * @param checkpoint database work committed along
+     * @throws SQLException if the transaction is rolled back, nothing is forgotten then
+     */
+    void writeThrough(@NotNull Map<AccountKey, Transaction> transactions, @NotNull BalanceAdjuster.Checkpoint checkpoint) throws SQLException {
+        synchronized (flushLock) {
+            Map<AccountKey, Transaction> waiting = new HashMap<>();
+            transactions.keySet().forEach(key -> {
+                Transaction transaction = dirty.get(key);
+                if (transaction != null) waiting.put(key, transaction);
+            });
+            writer.write(transactions.values(), checkpoint);
+            waiting.forEach(dirty::remove);
+        }
+    }
+
+    /**
+     * Stops the background flusher and writes whatever is still dirty.
+     * @return an empty response or the error of the last flush, what it couldn't write is only in memory then
+     */
+    @NotNull
+    Response<Void> close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ok) {
+            Thread.currentThread().interrupt();
+        }
+        return flush();
+    }
+
+    @FunctionalInterface
+    interface Writer {
+        /**
+         * @param transactions balances to write
+         * @param checkpoint database work committed in the same transaction, if any
+         */
+        void write(@NotNull Collection<Transaction> transactions, @Nullable BalanceAdjuster.Checkpoint checkpoint) throws SQLException;
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.joshy56;
+
+import co.aikar.idb.Database;
+import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
+import io.github.joshy56.currency.CurrencyIds;
+import io.github.joshy56.transaction.SimpleTransactionRepository;
+import io.github.joshy56.transaction.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two nodes sharing one database file and one {@link LoopbackInvalidationBus}.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class CacheInvalidationsTest {
+    private static final UUID SUBJECT = new UUID(5, 6);
+    private static final Namespace ACCOUNT = new Namespace(SUBJECT.toString(), "coins");
+
+    @TempDir
+    Path directory;
+    private LoopbackInvalidationBus bus;
+    private Node first, second;
+
+    @BeforeEach
+    void open() {
+        bus = new LoopbackInvalidationBus();
+        String file = directory.resolve("economy.db").toString();
+        first = new Node(file, bus);
+        second = new Node(file, bus);
+    }
+
+    @AfterEach
+    void close() {
+        first.close();
+        second.close();
+        bus.close();
+    }
+
+    @Test
+    void evictsBalancesWrittenByAnotherNode() throws Throwable {
+        first.transactions.set(new Transaction("coins", SUBJECT, 1)).getOrThrow();
+        // Changes close enough are sent in one batch, each one is awaited before the next.
+        await(() -> second.invalidations.stats().keysReceived() >= 1);
+        assertEquals(1, second.transactions.get(ACCOUNT).getOrThrow().amount());
+        first.transactions.set(new Transaction("coins", SUBJECT, 5)).getOrThrow();
+        await(() -> second.invalidations.stats().keysReceived() >= 2);
+        assertEquals(5, second.transactions.get(ACCOUNT).getOrThrow().amount());
+        // A node skips its own messages.
+        assertEquals(0, first.invalidations.stats().messagesReceived());
+    }
+
+    @Test
+    void refreshesTheOffHeapTableAndTheLeaderboard() throws Throwable {
+        first.transactions.set(new Transaction("coins", SUBJECT, 1)).getOrThrow();
+        await(() -> second.invalidations.stats().keysReceived() >= 1);
+        second.transactions.offHeap(16).getOrThrow();
+        assertEquals(1, second.transactions.leaderboard().size("coins"));
+        UUID richer = new UUID(7, 8);
+        first.transactions.set(new Transaction("coins", richer, 9)).getOrThrow();
+        await(() -> second.invalidations.stats().keysReceived() >= 2);
+        assertEquals(9, second.transactions.get(new Namespace(richer.toString(), "coins")).getOrThrow().amount());
+        assertEquals(1, second.transactions.leaderboard().rank(richer, "coins"));
+    }
+
+    @Test
+    void clearsTheWholeCacheAfterDeletingEveryBalance() throws Throwable {
+        first.transactions.set(new Transaction("coins", SUBJECT, 1)).getOrThrow();
+        await(() -> second.invalidations.stats().messagesReceived() >= 1);
+        second.transactions.offHeap(16).getOrThrow();
+        assertEquals(1, second.transactions.get(ACCOUNT).getOrThrow().amount());
+        first.transactions.deleteAll().getOrThrow();
+        await(() -> second.invalidations.stats().messagesReceived() >= 2);
+        assertNull(second.transactions.get(ACCOUNT).getOrThrow());
+        assertEquals(0, second.transactions.leaderboard().size("coins"));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) Thread.sleep(5);
+        assertTrue(condition.getAsBoolean(), "Invalidations never arrived.");
+    }
+
+    private static final class Node {
+        private final Database database;
+        private final SimpleTransactionRepository transactions;
+        private final CacheInvalidations invalidations;
+
+        private Node(String file, InvalidationBus bus) {
+            this.database = new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                    .options(DatabaseOptions.builder().sqlite(file).build())
+                    .minIdleConnections(2)
+                    .maxConnections(2)
+                    .build());
+            this.transactions = new SimpleTransactionRepository(database, new StatementPool(database), currencyName -> 2, new CurrencyIds(currencyName -> true));
+            this.invalidations = new CacheInvalidations(bus, 5, TimeUnit.MILLISECONDS, 256);
+            transactions.attach(invalidations);
+        }
+
+        private void close() {
+            invalidations.close();
+            transactions.close();
+            database.close();
+        }
+    }
+}
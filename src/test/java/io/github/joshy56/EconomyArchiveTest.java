@@ -0,0 +1,102 @@
+package io.github.joshy56;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class EconomyArchiveTest {
+    private static final long[] EDGES = {0, 1, -1, 63, -64, 64, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+
+    @Test
+    void varLongsRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EconomyArchive.Output output = new EconomyArchive.Output(Channels.newChannel(bytes));
+        for (long value : EDGES) output.varLong(value);
+        for (long value : EDGES) output.signedVarLong(value);
+        output.flush();
+        EconomyArchive.Input input = input(bytes.toByteArray());
+        for (long value : EDGES) assertEquals(value, input.varLong());
+        for (long value : EDGES) assertEquals(value, input.signedVarLong());
+    }
+
+    @Test
+    void smallValuesTakeFewBytes() throws IOException {
+        assertEquals(1, encoded(output -> output.varLong(127)).length);
+        assertEquals(2, encoded(output -> output.varLong(128)).length);
+        // Unsigned, a negative value takes all ten bytes...
+        assertEquals(10, encoded(output -> output.varLong(-1)).length);
+        // ...while zigzag keeps small magnitudes short whatever their sign.
+        assertArrayEquals(new byte[]{1}, encoded(output -> output.signedVarLong(-1)));
+        assertArrayEquals(new byte[]{2}, encoded(output -> output.signedVarLong(1)));
+        assertEquals(1, encoded(output -> output.signedVarLong(-64)).length);
+        assertEquals(2, encoded(output -> output.signedVarLong(64)).length);
+        assertEquals(10, encoded(output -> output.signedVarLong(Long.MIN_VALUE)).length);
+    }
+
+    @Test
+    void roundTripsAcrossBufferRefills() throws IOException {
+        Random random = new Random(56);
+        long[] values = new long[200_000];
+        for (int index = 0; index < values.length; index++) values[index] = random.nextLong() >> random.nextInt(64);
+        UUID uuid = new UUID(random.nextLong(), random.nextLong());
+        String name = "\u00f1and\u00fa-\u20ac".repeat(20_000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EconomyArchive.Output output = new EconomyArchive.Output(Channels.newChannel(bytes));
+        for (long value : values) output.signedVarLong(value);
+        output.uuid(uuid);
+        output.string(name);
+        output.string(null);
+        output.string("");
+        output.fixedInt(EconomyArchive.MAGIC);
+        output.flush();
+        EconomyArchive.Input input = input(bytes.toByteArray());
+        for (long value : values) assertEquals(value, input.signedVarLong());
+        assertEquals(uuid, input.uuid());
+        assertEquals(name, input.string());
+        assertNull(input.string());
+        assertEquals("", input.string());
+        assertEquals(EconomyArchive.MAGIC, input.fixedInt());
+    }
+
+    @Test
+    void refusesMalformedInput() {
+        byte[] endless = new byte[11];
+        Arrays.fill(endless, (byte) 0x80);
+        assertThrows(IOException.class, () -> input(endless).varLong());
+        assertThrows(EOFException.class, () -> input(new byte[]{(byte) 0x80}).varLong());
+        assertThrows(EOFException.class, () -> input(new byte[]{5, 'a'}).string());
+    }
+
+    private static EconomyArchive.Input input(byte[] bytes) {
+        return new EconomyArchive.Input(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    private static byte[] encoded(Writer writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EconomyArchive.Output output = new EconomyArchive.Output(Channels.newChannel(bytes));
+        writer.write(output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(EconomyArchive.Output output) throws IOException;
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.joshy56;
+
+import co.aikar.idb.Database;
+import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class SqliteProfileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void refusesInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new SqliteProfile(false, "SOMETIMES", 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SqliteProfile(false, "FULL", -1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SqliteProfile(true, "NORMAL", 0, 0, 0));
+        assertEquals("NORMAL", new SqliteProfile(true, "normal", 0, 0, 2).synchronous());
+    }
+
+    @Test
+    void leavesTheDefaultDriverSettings() {
+        assertEquals(List.of(), SqliteProfile.DEFAULT.writerSetup());
+        assertEquals(List.of(), SqliteProfile.DEFAULT.readerSetup());
+    }
+
+    @Test
+    void splitsReadsFromWritesInWalMode() throws SQLException {
+        SqliteProfile profile = new SqliteProfile(true, "NORMAL", 1 << 20, 2048, 2);
+        String file = directory.resolve("economy.db").toString();
+        Database writer = database(file, 1), readers = database(file, profile.readConnections());
+        try {
+            StatementPool statements = new StatementPool(writer, readers, StatementPool.DEFAULT_STATEMENTS_PER_CONNECTION, profile.writerSetup(), profile.readerSetup());
+            assertTrue(statements.splitReads());
+            try (Connection connection = statements.borrow(); Statement statement = connection.createStatement()) {
+                assertEquals("wal", text(statement, "PRAGMA journal_mode;"));
+                // NORMAL is 1.
+                assertEquals("1", text(statement, "PRAGMA synchronous;"));
+                statement.executeUpdate("CREATE TABLE balances(amount BIGINT);");
+                statement.executeUpdate("INSERT INTO balances VALUES(5);");
+            }
+            try (Connection connection = statements.borrowRead(); Statement statement = connection.createStatement()) {
+                assertEquals("5", text(statement, "SELECT amount FROM balances;"));
+                assertEquals("-2048", text(statement, "PRAGMA cache_size;"));
+                assertThrows(SQLException.class, () -> statement.executeUpdate("INSERT INTO balances VALUES(6);"));
+            }
+            try (Connection connection = statements.borrow(); Statement statement = connection.createStatement()) {
+                assertEquals("0", text(statement, "SELECT COUNT(*) FROM balances WHERE amount = 6;"));
+            }
+        } finally {
+            readers.close();
+            writer.close();
+        }
+    }
+
+    private static Database database(String file, int connections) {
+        return new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                .options(DatabaseOptions.builder().sqlite(file).build())
+                .minIdleConnections(connections)
+                .maxConnections(connections)
+                .build());
+    }
+
+    private static String text(Statement statement, String sql) throws SQLException {
+        try (ResultSet result = statement.executeQuery(sql)) {
+            return result.next() ? result.getString(1) : null;
+        }
+    }
+}
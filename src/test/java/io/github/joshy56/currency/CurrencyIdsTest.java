@@ -0,0 +1,89 @@
+package io.github.joshy56.currency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class CurrencyIdsTest {
+    @Test
+    void givesIdsOnlyToCurrencies() {
+        Set<String> currencies = Set.of("coins", "gems");
+        CurrencyIds ids = new CurrencyIds(currencies::contains);
+        for (int index = 0; index < 1_000; index++) assertEquals(-1, ids.idOf("junk" + index));
+        assertEquals(0, ids.size());
+        assertEquals(-1, ids.find("coins"));
+        assertEquals(0, ids.idOf("coins"));
+        assertEquals(1, ids.idOf("gems"));
+        assertEquals(0, ids.idOf("coins"));
+        assertEquals(0, ids.find("coins"));
+        assertEquals("gems", ids.nameOf(1));
+        assertEquals(2, ids.size());
+    }
+
+    @Test
+    void givesOneDenseIdPerNameUnderContention() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int index = 0; index < 200; index++) names.add("currency" + index);
+        CurrencyIds ids = new CurrencyIds(currencyName -> true);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < 8; thread++) {
+                List<String> shuffled = new ArrayList<>(names);
+                Collections.shuffle(shuffled);
+                futures.add(threads.submit(() -> {
+                    start.await();
+                    for (String name : shuffled) seen.add(name + "=" + ids.idOf(name));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get();
+        } finally {
+            threads.shutdown();
+        }
+        // Every thread saw the same id for a name.
+        assertEquals(names.size(), seen.size());
+        assertEquals(names.size(), ids.size());
+        Set<Integer> given = new HashSet<>();
+        for (String name : names) {
+            int id = ids.find(name);
+            given.add(id);
+            assertEquals(name, ids.nameOf(id));
+        }
+        assertEquals(names.size(), given.size());
+    }
+
+    @Test
+    void sharesIdsWithTheRegistry() {
+        CurrencyIds ids = new CurrencyIds(currencyName -> false);
+        CurrencyRegistry registry = CurrencyRegistry.empty(ids).with(List.of(new SimpleCurrency("gems"), new SimpleCurrency("coins")));
+        // Added to the registry, the names are currencies whatever the predicate says.
+        assertEquals(ids.find("coins"), registry.idOf("coins"));
+        assertEquals(ids.idOf("gems"), registry.idOf("gems"));
+        registry = registry.without(Set.of("gems"));
+        assertEquals(-1, registry.idOf("gems"));
+        assertNull(registry.byId(ids.find("gems")));
+        // Ids aren't reused once deleted.
+        registry = registry.with(List.of(new SimpleCurrency("shards")));
+        assertEquals(2, registry.idOf("shards"));
+    }
+}
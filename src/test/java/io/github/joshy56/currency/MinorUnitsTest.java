@@ -0,0 +1,54 @@
+package io.github.joshy56.currency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class MinorUnitsTest {
+    @Test
+    void roundsToTheNearestMinorUnit() {
+        // 12.34 * 100 is 1233.9999999999998 in binary.
+        assertEquals(1234, MinorUnits.toMinor(12.34, 2));
+        assertEquals(-1234, MinorUnits.toMinor(-12.34, 2));
+        assertEquals(1235, MinorUnits.toMinor(12.3456, 2));
+        assertEquals(12, MinorUnits.toMinor(12.3456, 0));
+        assertEquals(12_345_600_000L, MinorUnits.toMinor(12.3456, 9));
+    }
+
+    @Test
+    void breaksTiesToEven() {
+        assertEquals(0, MinorUnits.toMinor(0.5, 0));
+        assertEquals(2, MinorUnits.toMinor(1.5, 0));
+        assertEquals(2, MinorUnits.toMinor(2.5, 0));
+        assertEquals(-2, MinorUnits.toMinor(-1.5, 0));
+    }
+
+    @Test
+    void convertsBack() {
+        assertEquals(12.34, MinorUnits.toMajor(1234, 2));
+        assertEquals(-0.01, MinorUnits.toMajor(-1, 2));
+        assertEquals(7, MinorUnits.toMajor(7, 0));
+        for (long minor = -10_000; minor <= 10_000; minor += 7)
+            assertEquals(minor, MinorUnits.toMinor(MinorUnits.toMajor(minor, 2), 2));
+    }
+
+    @Test
+    void refusesAmountsOutOfRange() {
+        assertThrows(ArithmeticException.class, () -> MinorUnits.toMinor(1e17, 2));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.toMinor(-1e17, 2));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.toMinor(0x1p63, 0));
+        assertEquals(Long.MIN_VALUE, MinorUnits.toMinor(-0x1p63, 0));
+    }
+
+    @Test
+    void refusesScalesOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.toMinor(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.toMinor(1, MinorUnits.MAX_SCALE + 1));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.toMajor(1, MinorUnits.MAX_SCALE + 1));
+    }
+}
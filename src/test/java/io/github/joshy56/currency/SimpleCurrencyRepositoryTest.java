@@ -0,0 +1,64 @@
+package io.github.joshy56.currency;
+
+import co.aikar.idb.Database;
+import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
+import io.github.joshy56.StatementPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Scales read through the cache, outside resident mode.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class SimpleCurrencyRepositoryTest {
+    @TempDir
+    Path directory;
+    private Database database;
+    private SimpleCurrencyRepository currencies;
+
+    @BeforeEach
+    void open() {
+        database = new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                .options(DatabaseOptions.builder().sqlite(directory.resolve("economy.db").toString()).build())
+                .minIdleConnections(2)
+                .maxConnections(2)
+                .build());
+        currencies = new SimpleCurrencyRepository(database, new StatementPool(database));
+    }
+
+    @AfterEach
+    void close() {
+        database.close();
+    }
+
+    @Test
+    void readsTheNewScaleRightAfterAWrite() throws Throwable {
+        currencies.set(gems(4)).getOrThrow();
+        assertEquals(4, currencies.scaleOf("gems"));
+        currencies.set(gems(0)).getOrThrow();
+        assertEquals(0, currencies.scaleOf("gems"));
+    }
+
+    @Test
+    void forgetsTheScaleOfADeletedCurrency() throws Throwable {
+        currencies.set(gems(4)).getOrThrow();
+        assertEquals(4, currencies.scaleOf("gems"));
+        currencies.delete("gems").getOrThrow();
+        assertEquals(MinorUnits.DEFAULT_SCALE, currencies.scaleOf("gems"));
+    }
+
+    private static SimpleCurrency gems(int scale) {
+        SimpleCurrency currency = new SimpleCurrency("gems");
+        currency.scale(scale);
+        return currency;
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.joshy56.transaction;
+
+import co.aikar.idb.Database;
+import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
+import io.github.joshy56.StatementPool;
+import io.github.joshy56.currency.CurrencyIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deposits and withdrawals of {@link SimpleTransactionHandler} racing on the account locks, in
+ * write-behind mode so every update is a read-modify-write in memory.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class AccountLocksTest {
+    private static final int THREADS = 8, OPERATIONS = 1_000;
+    // Fixed ids on different lock stripes.
+    private static final UUID ALICE = UUID.nameUUIDFromBytes("alice".getBytes()), BOB = UUID.nameUUIDFromBytes("bob".getBytes());
+
+    @TempDir
+    Path directory;
+    private Database database;
+    private SimpleTransactionRepository repository;
+    private ExecutorService threads;
+
+    @BeforeEach
+    void open() throws Throwable {
+        database = new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                .options(DatabaseOptions.builder().sqlite(directory.resolve("economy.db").toString()).build())
+                .minIdleConnections(2)
+                .maxConnections(2)
+                .build());
+        repository = new SimpleTransactionRepository(database, new StatementPool(database), currencyName -> 2, new CurrencyIds(currencyName -> true), 1, TimeUnit.HOURS, Integer.MAX_VALUE);
+        repository.setAll(Set.of(new Transaction("coins", ALICE, 1_000), new Transaction("coins", BOB, 1_000))).getOrThrow();
+        threads = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void close() {
+        threads.shutdownNow();
+        repository.close();
+        database.close();
+    }
+
+    @Test
+    void losesNoUpdateOfOneAccount() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>(THREADS);
+        for (int thread = 0; thread < THREADS; thread++) {
+            workers.add(threads.submit(() -> {
+                start.await();
+                for (int operation = 0; operation < OPERATIONS; operation++) {
+                    // Deposits one coin and withdraws half of it, every thread nets half a coin per pair.
+                    double amount = operation % 2 == 0 ? 1 : -0.5;
+                    assertTrue(update(ALICE, amount));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) worker.get(30, TimeUnit.SECONDS);
+        assertEquals(100_000 + THREADS * OPERATIONS / 2 * 50, repository.balanceMinor(ALICE, "coins"));
+    }
+
+    @Test
+    void updatesUnrelatedAccountsWhileOneIsLocked() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1), release = new CountDownLatch(1);
+        Future<?> holder = threads.submit(() -> repository.withLock(ALICE, "coins", () -> {
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ok) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> other = CompletableFuture.supplyAsync(() -> update(BOB, 1), threads),
+                same = CompletableFuture.supplyAsync(() -> update(ALICE, 1), threads);
+        assertTrue(other.get(5, TimeUnit.SECONDS));
+        assertThrows(TimeoutException.class, () -> same.get(200, TimeUnit.MILLISECONDS));
+        assertFalse(same.isDone());
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertTrue(same.get(5, TimeUnit.SECONDS));
+        assertEquals(100_100, repository.balanceMinor(ALICE, "coins"));
+        assertEquals(100_100, repository.balanceMinor(BOB, "coins"));
+    }
+
+    private boolean update(UUID subjectId, double amount) {
+        try {
+            return SimpleTransactionHandler.update(repository, subjectId, "coins", amount).getOrThrow();
+        } catch (Throwable ok) {
+            throw new IllegalStateException(ok);
+        }
+    }
+}
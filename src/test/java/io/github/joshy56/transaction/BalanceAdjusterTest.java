@@ -0,0 +1,133 @@
+package io.github.joshy56.transaction;
+
+import co.aikar.idb.Database;
+import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
+import io.github.joshy56.StatementPool;
+import io.github.joshy56.currency.CurrencyIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class BalanceAdjusterTest {
+    private static final int ACCOUNTS = 1_000, CHUNK = 100;
+    private static final Map<String, LongUnaryOperator> DOUBLE_COINS = Map.of("coins", balance -> balance * 2);
+
+    @TempDir
+    Path directory;
+    private Database database;
+    private StatementPool statements;
+    private SimpleTransactionRepository repository;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void open() throws Throwable {
+        database = new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                .options(DatabaseOptions.builder().sqlite(directory.resolve("economy.db").toString()).build())
+                .minIdleConnections(4)
+                .maxConnections(4)
+                .build());
+        statements = new StatementPool(database);
+        repository = new SimpleTransactionRepository(database, statements, currencyName -> 2, new CurrencyIds(currencyName -> true));
+        pool = new ForkJoinPool(2);
+        Set<Transaction> accounts = new HashSet<>();
+        for (int index = 0; index < ACCOUNTS; index++) {
+            accounts.add(new Transaction("coins", UUID.randomUUID(), 1));
+            if (index % 10 == 0) accounts.add(new Transaction("gems", UUID.randomUUID(), 1));
+        }
+        repository.setAll(accounts).getOrThrow();
+    }
+
+    @AfterEach
+    void close() {
+        pool.shutdown();
+        repository.close();
+        database.close();
+    }
+
+    @Test
+    void resumesAStoppedRunWithoutAdjustingTwice() throws Throwable {
+        BalanceAdjuster first = new BalanceAdjuster(repository, DOUBLE_COINS, CHUNK, pool);
+        // Stopped after a few chunks, like a shutdown halfway.
+        BalanceAdjuster.Progress stopped = first.run("interest", progress -> {
+            if (progress.chunks() >= 3) first.stop();
+        }).getOrThrow();
+        assertFalse(stopped.finished());
+        assertTrue(stopped.accounts() < ACCOUNTS + ACCOUNTS / 10);
+
+        BalanceAdjuster second = new BalanceAdjuster(repository, DOUBLE_COINS, CHUNK, pool);
+        BalanceAdjuster.Progress resumed = second.run("interest", progress -> {
+        }).getOrThrow();
+        assertTrue(resumed.finished());
+        assertEquals(ACCOUNTS + ACCOUNTS / 10, resumed.accounts());
+        assertEquals(ACCOUNTS * 200L, sum("coins"));
+        assertEquals(ACCOUNTS / 10 * 100L, sum("gems"));
+
+        // A finished run is never run again.
+        BalanceAdjuster.Progress again = second.run("interest", progress -> {
+        }).getOrThrow();
+        assertEquals(0, again.chunks());
+        assertEquals(ACCOUNTS * 200L, sum("coins"));
+        assertEquals(0, count("SELECT COUNT(*) FROM adjustment_chunks;"));
+    }
+
+    @Test
+    void resumesTheRunOfAScheduleAfterItsPeriod() throws Throwable {
+        BalanceAdjuster first = new BalanceAdjuster(repository, DOUBLE_COINS, CHUNK, pool);
+        BalanceAdjuster.Progress stopped = first.runDue("daily", 1, progress -> {
+            if (progress.chunks() >= 3) first.stop();
+        }).getOrThrow();
+        assertFalse(stopped.finished());
+        Thread.sleep(5);
+
+        // The clock moved to another period, the unfinished run is still the one resumed.
+        BalanceAdjuster second = new BalanceAdjuster(repository, DOUBLE_COINS, CHUNK, pool);
+        BalanceAdjuster.Progress resumed = second.runDue("daily", 1, progress -> {
+        }).getOrThrow();
+        assertEquals(stopped.run(), resumed.run());
+        assertTrue(resumed.finished());
+        assertEquals(ACCOUNTS * 200L, sum("coins"));
+
+        // Nothing is due until a later period.
+        BalanceAdjuster.Progress due = second.runDue("daily", 1L << 50, progress -> {
+        }).getOrThrow();
+        assertEquals(0, due.chunks());
+        assertEquals(ACCOUNTS * 200L, sum("coins"));
+        assertEquals(1, count("SELECT COUNT(*) FROM adjustment_runs;"));
+    }
+
+    private long sum(String currencyName) throws SQLException {
+        try (Connection connection = statements.borrow(); Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT SUM(amount) FROM transactions WHERE currency = '" + currencyName + "';")) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection connection = statements.borrow(); Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.joshy56.transaction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class BalanceWalTest {
+    private static final int CAPACITY = 4096;
+    /**
+     * Epoch header, then records of 42 bytes plus the name.
+     */
+    private static final int HEADER = 8, RECORD = 42 + "coins".length(), BALANCE_OFFSET = 4 + 8 + 16;
+    private static final BalanceWal.Record FIRST = new BalanceWal.Record(new UUID(1, 1), "coins", 100),
+            SECOND = new BalanceWal.Record(new UUID(2, 2), "coins", -200),
+            THIRD = new BalanceWal.Record(new UUID(3, 3), "coins", Long.MAX_VALUE);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysTheRecordsOfThePreviousRun() throws IOException {
+        Path file = directory.resolve("balances.wal");
+        try (BalanceWal wal = open(file)) {
+            assertEquals(List.of(), wal.recovered());
+            append(wal, FIRST, SECOND, THIRD);
+        }
+        try (BalanceWal wal = open(file)) {
+            assertEquals(List.of(FIRST, SECOND, THIRD), wal.recovered());
+        }
+    }
+
+    @Test
+    void stopsAtTheFirstCorruptRecord() throws IOException {
+        Path file = directory.resolve("balances.wal");
+        try (BalanceWal wal = open(file)) {
+            append(wal, FIRST, SECOND, THIRD);
+        }
+        // A torn write of the second balance, the third record is intact but comes after it.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), HEADER + RECORD + BALANCE_OFFSET);
+        }
+        BalanceWal.Record fourth = new BalanceWal.Record(new UUID(4, 4), "gems", 4);
+        try (BalanceWal wal = open(file)) {
+            assertEquals(List.of(FIRST), wal.recovered());
+            // New records overwrite the corrupt tail.
+            append(wal, fourth);
+        }
+        try (BalanceWal wal = open(file)) {
+            assertEquals(List.of(FIRST, fourth), wal.recovered());
+        }
+    }
+
+    @Test
+    void forgetsRecordsOfOlderEpochs() throws IOException {
+        Path file = directory.resolve("balances.wal");
+        try (BalanceWal wal = open(file)) {
+            append(wal, FIRST, SECOND);
+            wal.reset();
+            append(wal, THIRD);
+        }
+        try (BalanceWal wal = open(file)) {
+            // The second record of the old epoch is still on disk, right after the third.
+            assertEquals(List.of(THIRD), wal.recovered());
+        }
+    }
+
+    @Test
+    void replaysRecordsLoggedTogetherAllOrNone() throws IOException {
+        Path file = directory.resolve("balances.wal");
+        try (BalanceWal wal = open(file)) {
+            append(wal, FIRST);
+            wal.appendTogether(List.of(SECOND, THIRD), () -> {
+            });
+        }
+        try (BalanceWal wal = open(file)) {
+            assertEquals(List.of(FIRST, SECOND, THIRD), wal.recovered());
+        }
+        // A torn write of the last record drops the one logged with it too.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x00}), HEADER + RECORD * 2 + BALANCE_OFFSET);
+        }
+        try (BalanceWal wal = open(file)) {
+            assertEquals(List.of(FIRST), wal.recovered());
+        }
+    }
+
+    private static BalanceWal open(Path file) throws IOException {
+        return new BalanceWal(file, CAPACITY, BalanceWal.ForcePolicy.PER_OPERATION, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private static void append(BalanceWal wal, BalanceWal.Record... records) {
+        wal.appendAll(List.of(records), record -> record, record -> {
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.joshy56.transaction;
+
+import co.aikar.idb.Database;
+import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
+import io.github.joshy56.Namespace;
+import io.github.joshy56.StatementPool;
+import io.github.joshy56.currency.CurrencyIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Deletes in write-behind mode followed by a crash, the write-ahead log is replayed by a new repository.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class DeleteTest {
+    private static final UUID ALICE = new UUID(1, 1), BOB = new UUID(2, 2);
+
+    @TempDir
+    Path directory;
+    private Database database;
+    private StatementPool statements;
+
+    @BeforeEach
+    void open() {
+        database = new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                .options(DatabaseOptions.builder().sqlite(directory.resolve("economy.db").toString()).build())
+                .minIdleConnections(2)
+                .maxConnections(2)
+                .build());
+        statements = new StatementPool(database);
+    }
+
+    @AfterEach
+    void close() {
+        database.close();
+    }
+
+    @Test
+    void deletedAccountsStayDeletedAfterAReplay() throws Throwable {
+        SimpleTransactionRepository crashed = repository();
+        BalanceWal wal = wal();
+        crashed.writeAheadLog(wal).getOrThrow();
+        crashed.set(new Transaction("coins", ALICE, 1)).getOrThrow();
+        crashed.set(new Transaction("coins", BOB, 2)).getOrThrow();
+        crashed.delete(namespace(ALICE)).getOrThrow();
+        crashed.set(new Transaction("coins", BOB, 3)).getOrThrow();
+        // Never closed, only the write-ahead log survives.
+        wal.close();
+
+        SimpleTransactionRepository restarted = repository();
+        try (BalanceWal replayed = wal()) {
+            assertEquals(List.of(new BalanceWal.Record(BOB, "coins", 300)), replayed.recovered());
+            restarted.writeAheadLog(replayed).getOrThrow();
+            assertNull(restarted.get(namespace(ALICE)).getOrThrow());
+            assertEquals(3, restarted.get(namespace(BOB)).getOrThrow().amount());
+            restarted.close();
+        }
+    }
+
+    @Test
+    void deletingEveryAccountStartsTheLogOver() throws Throwable {
+        SimpleTransactionRepository crashed = repository();
+        BalanceWal wal = wal();
+        crashed.writeAheadLog(wal).getOrThrow();
+        crashed.setAll(Set.of(new Transaction("coins", ALICE, 1), new Transaction("coins", BOB, 2))).getOrThrow();
+        crashed.deleteAll().getOrThrow();
+        wal.close();
+
+        try (BalanceWal replayed = wal()) {
+            assertEquals(List.of(), replayed.recovered());
+        }
+    }
+
+    private SimpleTransactionRepository repository() {
+        return new SimpleTransactionRepository(database, statements, currencyName -> 2, new CurrencyIds(currencyName -> true), 1, TimeUnit.HOURS, Integer.MAX_VALUE);
+    }
+
+    private BalanceWal wal() throws IOException {
+        return new BalanceWal(directory.resolve("balances.wal"), 4096, BalanceWal.ForcePolicy.PER_OPERATION, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private static Namespace namespace(UUID subjectId) {
+        return new Namespace(subjectId.toString(), "coins");
+    }
+}
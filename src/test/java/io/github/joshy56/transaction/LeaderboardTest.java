@@ -0,0 +1,130 @@
+package io.github.joshy56.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class LeaderboardTest {
+    private static final UUID A = new UUID(0, 1), B = new UUID(0, 2), C = new UUID(0, 3), D = new UUID(0, 4);
+
+    @Test
+    void ranksRichestFirstAndBreaksTiesBySubject() {
+        Leaderboard leaderboard = new Leaderboard(loader(Map.of("coins", Map.of(A, 50L, B, 300L, C, 50L, D, 7L))));
+        assertEquals(List.of(new Leaderboard.Entry(B, 300), new Leaderboard.Entry(A, 50), new Leaderboard.Entry(C, 50)), leaderboard.top("coins", 3));
+        assertEquals(1, leaderboard.rank(B, "coins"));
+        assertEquals(2, leaderboard.rank(A, "coins"));
+        assertEquals(3, leaderboard.rank(C, "coins"));
+        assertEquals(4, leaderboard.rank(D, "coins"));
+        assertEquals(0, leaderboard.rank(new UUID(0, 5), "coins"));
+        assertEquals(4, leaderboard.size("coins"));
+        assertEquals(4, leaderboard.top("coins", 10).size());
+        assertEquals(List.of(), leaderboard.top("coins", 0));
+    }
+
+    @Test
+    void followsWritesOnceLoaded() {
+        Leaderboard leaderboard = new Leaderboard(loader(Map.of("coins", Map.of(A, 10L, B, 20L, C, 30L))));
+        assertEquals(3, leaderboard.rank(A, "coins"));
+        leaderboard.update(A, "coins", 100);
+        assertEquals(1, leaderboard.rank(A, "coins"));
+        assertEquals(3, leaderboard.rank(B, "coins"));
+        leaderboard.remove(C, "coins");
+        assertEquals(0, leaderboard.rank(C, "coins"));
+        assertEquals(2, leaderboard.rank(B, "coins"));
+        leaderboard.update(D, "coins", 15);
+        assertEquals(List.of(new Leaderboard.Entry(A, 100), new Leaderboard.Entry(B, 20), new Leaderboard.Entry(D, 15)), leaderboard.top("coins", 5));
+    }
+
+    @Test
+    void loadsEachCurrencyOnceAskedFor() {
+        AtomicInteger loads = new AtomicInteger();
+        Leaderboard.Loader source = loader(Map.of("coins", Map.of(A, 10L), "gems", Map.of(B, 5L)));
+        Leaderboard leaderboard = new Leaderboard((currencyName, sink) -> {
+            loads.incrementAndGet();
+            source.load(currencyName, sink);
+        });
+        // Writes to a currency never asked for are ignored, the loader reads them later.
+        leaderboard.update(C, "coins", 99);
+        assertEquals(0, loads.get());
+        assertEquals(1, leaderboard.size("coins"));
+        assertEquals(1, leaderboard.size("coins"));
+        assertEquals(1, loads.get());
+        assertEquals(1, leaderboard.rank(B, "gems"));
+        assertEquals(2, loads.get());
+        leaderboard.clear();
+        assertEquals(1, leaderboard.size("coins"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void keepsWritesMadeWhileLoading() {
+        Leaderboard[] leaderboard = new Leaderboard[1];
+        leaderboard[0] = new Leaderboard((currencyName, sink) -> {
+            // Written after the loader read A and C, before it hands them over.
+            leaderboard[0].update(A, currencyName, 500);
+            leaderboard[0].remove(C, currencyName);
+            sink.accept(A, 10);
+            sink.accept(B, 20);
+            sink.accept(C, 30);
+        });
+        assertEquals(List.of(new Leaderboard.Entry(A, 500), new Leaderboard.Entry(B, 20)), leaderboard[0].top("coins", 5));
+    }
+
+    @Test
+    void retriesAFailedLoad() {
+        AtomicInteger attempts = new AtomicInteger();
+        Leaderboard leaderboard = new Leaderboard((currencyName, sink) -> {
+            if (attempts.incrementAndGet() == 1) throw new SQLException("Locked.");
+            sink.accept(A, 1);
+        });
+        assertThrows(IllegalStateException.class, () -> leaderboard.size("coins"));
+        assertEquals(1, leaderboard.size("coins"));
+    }
+
+    @Test
+    void matchesASortUnderRandomWrites() {
+        Random random = new Random(56);
+        Leaderboard leaderboard = new Leaderboard((currencyName, sink) -> {
+        });
+        Map<UUID, Long> expected = new HashMap<>();
+        List<UUID> subjects = new ArrayList<>();
+        for (int index = 0; index < 500; index++) subjects.add(new UUID(random.nextLong(), random.nextLong()));
+        leaderboard.size("coins");
+        for (int step = 0; step < 20_000; step++) {
+            UUID subject = subjects.get(random.nextInt(subjects.size()));
+            if (random.nextInt(4) == 0) {
+                leaderboard.remove(subject, "coins");
+                expected.remove(subject);
+            } else {
+                // Few distinct balances, so ties are common.
+                long balance = random.nextInt(50);
+                leaderboard.update(subject, "coins", balance);
+                expected.put(subject, balance);
+            }
+        }
+        List<Leaderboard.Entry> sorted = new ArrayList<>();
+        expected.forEach((subject, balance) -> sorted.add(new Leaderboard.Entry(subject, balance)));
+        sorted.sort(Comparator.comparingLong(Leaderboard.Entry::balance).reversed().thenComparing(Leaderboard.Entry::subjectId));
+        assertEquals(sorted, leaderboard.top("coins", Integer.MAX_VALUE));
+        for (int index = 0; index < sorted.size(); index++) assertEquals(index + 1, leaderboard.rank(sorted.get(index).subjectId(), "coins"));
+    }
+
+    private static Leaderboard.Loader loader(Map<String, Map<UUID, Long>> balances) {
+        return (currencyName, sink) -> balances.getOrDefault(currencyName, Map.of()).forEach(sink::accept);
+    }
+}
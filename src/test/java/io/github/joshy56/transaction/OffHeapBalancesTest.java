@@ -0,0 +1,110 @@
+package io.github.joshy56.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class OffHeapBalancesTest {
+    /**
+     * Slots of a table created for no accounts.
+     */
+    private static final int SLOTS = 16;
+
+    @Test
+    void keepsCollidingKeysReachableAfterADelete() {
+        Random random = new Random(1);
+        // a and b share a home slot, c lives right after it: a, b and c sit next to each other.
+        AccountKey a = keyAt(random, 3), b = keyAt(random, 3), c = keyAt(random, 4);
+        OffHeapBalances balances = new OffHeapBalances(0);
+        balances.put(a, 1);
+        balances.put(b, 2);
+        balances.put(c, 3);
+        balances.remove(a);
+        // b moves back to its home, then c to the slot b left, no tombstone stops the probe.
+        assertEquals(OffHeapBalances.ABSENT, balances.get(a));
+        assertEquals(2, balances.get(b));
+        assertEquals(3, balances.get(c));
+        balances.remove(b);
+        assertEquals(3, balances.get(c));
+        assertEquals(1, balances.size());
+    }
+
+    @Test
+    void leavesRecordsAtTheirHomeInPlace() {
+        Random random = new Random(2);
+        // b is at its own home right after a, it mustn't be moved back into the hole.
+        AccountKey a = keyAt(random, 7), b = keyAt(random, 8), c = keyAt(random, 7);
+        OffHeapBalances balances = new OffHeapBalances(0);
+        balances.put(a, 1);
+        balances.put(b, 2);
+        balances.put(c, 3);
+        balances.remove(a);
+        assertEquals(2, balances.get(b));
+        assertEquals(3, balances.get(c));
+        balances.put(a, 4);
+        assertEquals(4, balances.get(a));
+        assertEquals(3, balances.size());
+    }
+
+    @Test
+    void shiftsAcrossTheEndOfTheTable() {
+        Random random = new Random(3);
+        AccountKey a = keyAt(random, SLOTS - 1), b = keyAt(random, SLOTS - 1), c = keyAt(random, 0);
+        OffHeapBalances balances = new OffHeapBalances(0);
+        balances.put(a, 1);
+        balances.put(b, 2);
+        balances.put(c, 3);
+        balances.remove(a);
+        assertEquals(2, balances.get(b));
+        assertEquals(3, balances.get(c));
+    }
+
+    @Test
+    void matchesAMapUnderRandomWrites() {
+        Random random = new Random(56);
+        List<AccountKey> keys = new ArrayList<>();
+        for (int index = 0; index < 2_000; index++) keys.add(AccountKey.of(new UUID(random.nextLong(), random.nextLong()), random.nextInt(3)));
+        OffHeapBalances balances = new OffHeapBalances(1_500);
+        long bytes = balances.bytes();
+        Map<AccountKey, Long> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            AccountKey key = keys.get(random.nextInt(keys.size()));
+            // Kept around 1000 accounts, 3/4 of the table at most, so clusters are long.
+            if (expected.size() < 1_000 && random.nextBoolean()) {
+                long balance = random.nextLong() >>> 1;
+                balances.put(key, balance);
+                expected.put(key, balance);
+            } else {
+                balances.remove(key);
+                expected.remove(key);
+            }
+        }
+        assertEquals(expected.size(), balances.size());
+        for (AccountKey key : keys) assertEquals(expected.getOrDefault(key, OffHeapBalances.ABSENT), balances.get(key));
+        // Deletes leave no tombstones behind, so churn alone never grows the table.
+        assertEquals(bytes, balances.bytes());
+    }
+
+    /**
+     * @return a random key of currency 0 whose home, in a table of {@link #SLOTS}, is {@code slot}
+     */
+    private static AccountKey keyAt(Random random, int slot) {
+        while (true) {
+            AccountKey key = AccountKey.of(new UUID(random.nextLong(), random.nextLong()), 0);
+            // Same spreading as OffHeapBalances#index(int, int).
+            int hash = key.hashCode() * 0x9E3779B9;
+            if (((hash ^ (hash >>> 16)) & (SLOTS - 1)) == slot) return key;
+        }
+    }
+}
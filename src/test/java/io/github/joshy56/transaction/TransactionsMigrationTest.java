@@ -0,0 +1,101 @@
+package io.github.joshy56.transaction;
+
+import co.aikar.idb.Database;
+import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
+import io.github.joshy56.Namespace;
+import io.github.joshy56.StatementPool;
+import io.github.joshy56.currency.CurrencyIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Legacy tables larger than one chunk, migrated by opening a repository over them.
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class TransactionsMigrationTest {
+    private static final int ROWS = 1_000;
+
+    @TempDir
+    Path directory;
+    private Database database;
+    private StatementPool statements;
+
+    @BeforeEach
+    void open() {
+        database = new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                .options(DatabaseOptions.builder().sqlite(directory.resolve("economy.db").toString()).build())
+                .minIdleConnections(2)
+                .maxConnections(2)
+                .build());
+        statements = new StatementPool(database);
+    }
+
+    @AfterEach
+    void close() {
+        database.close();
+    }
+
+    @Test
+    void migratesTheDecimalAmountTable() throws SQLException {
+        try (Connection connection = statements.borrow(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE transactions(subject_id VARCHAR(36) NOT NULL, currency VARCHAR(64) NOT NULL, amount DOUBLE NOT NULL, PRIMARY KEY(subject_id, currency));");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO transactions VALUES(?, ?, ?);")) {
+                for (int index = 0; index < ROWS; index++) {
+                    insert.setString(1, new UUID(index, index).toString());
+                    insert.setString(2, index % 2 == 0 ? "coins" : "gems");
+                    insert.setDouble(3, 1.25);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        repository().close();
+        assertEquals(ROWS, count("SELECT COUNT(*) FROM transactions;"));
+        assertEquals(ROWS * 125L, count("SELECT SUM(amount) FROM transactions;"));
+        assertEquals(0, count("SELECT COUNT(*) FROM sqlite_master WHERE name = 'transactions_legacy';"));
+    }
+
+    @Test
+    void migratesTheIdentifierKeyedTable() throws SQLException {
+        try (Connection connection = statements.borrow(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE transactions(identifier VARCHAR(128) PRIMARY KEY NOT NULL, amount DOUBLE NOT NULL);");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO transactions VALUES(?, ?);")) {
+                for (int index = 0; index < ROWS; index++) {
+                    insert.setString(1, new Namespace(new UUID(index, index).toString(), "coins").join());
+                    insert.setDouble(2, index);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        repository().close();
+        assertEquals(ROWS, count("SELECT COUNT(*) FROM transactions WHERE currency = 'coins';"));
+        assertEquals((long) ROWS * (ROWS - 1) / 2 * 100, count("SELECT SUM(amount) FROM transactions;"));
+        assertEquals(999 * 100, count("SELECT amount FROM transactions WHERE subject_id = '" + new UUID(999, 999) + "';"));
+    }
+
+    private SimpleTransactionRepository repository() {
+        return new SimpleTransactionRepository(database, statements, currencyName -> 2, new CurrencyIds(currencyName -> true));
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection connection = statements.borrow(); Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.joshy56.transaction;
+
+import co.aikar.idb.Database;
+import co.aikar.idb.DatabaseOptions;
+import co.aikar.idb.HikariPooledDatabase;
+import co.aikar.idb.PooledDatabaseOptions;
+import io.github.joshy56.StatementPool;
+import io.github.joshy56.currency.CurrencyIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class TransferTest {
+    private static final UUID ALICE = new UUID(1, 1), BOB = new UUID(2, 2);
+
+    @TempDir
+    Path directory;
+    private Database database;
+    private StatementPool statements;
+
+    @BeforeEach
+    void open() {
+        database = new HikariPooledDatabase(PooledDatabaseOptions.builder()
+                .options(DatabaseOptions.builder().sqlite(directory.resolve("economy.db").toString()).build())
+                .minIdleConnections(2)
+                .maxConnections(2)
+                .build());
+        statements = new StatementPool(database);
+    }
+
+    @AfterEach
+    void close() {
+        database.close();
+    }
+
+    @Test
+    void movesMoneyOnlyWhenThereIsEnough() throws Throwable {
+        SimpleTransactionRepository repository = repository();
+        repository.setAll(Set.of(new Transaction("coins", ALICE, 1))).getOrThrow();
+        assertTrue(repository.transferMinor(ALICE, BOB, "coins", 40).getOrThrow());
+        assertFalse(repository.transferMinor(ALICE, BOB, "coins", 61).getOrThrow());
+        assertEquals(60, amount(ALICE));
+        assertEquals(40, amount(BOB));
+        repository.close();
+    }
+
+    @Test
+    void rejectsTransfersToTheSameAccount() throws Throwable {
+        SimpleTransactionRepository repository = repository();
+        repository.setAll(Set.of(new Transaction("coins", ALICE, 1))).getOrThrow();
+        assertThrows(IllegalArgumentException.class, () -> repository.transferMinor(ALICE, ALICE, "coins", 40).getOrThrow());
+        assertEquals(100, amount(ALICE));
+        repository.close();
+    }
+
+    @Test
+    void writesBothLegsInWriteBehindModeTogether() throws Throwable {
+        SimpleTransactionRepository repository = new SimpleTransactionRepository(database, statements, currencyName -> 2, new CurrencyIds(currencyName -> true), 1, TimeUnit.HOURS, Integer.MAX_VALUE);
+        BalanceWal wal = new BalanceWal(directory.resolve("balances.wal"), 4096, BalanceWal.ForcePolicy.PER_OPERATION, 0, TimeUnit.MILLISECONDS);
+        repository.writeAheadLog(wal).getOrThrow();
+        repository.setAll(Set.of(new Transaction("coins", ALICE, 1))).getOrThrow();
+        repository.flush().getOrThrow();
+        assertTrue(repository.transferMinor(ALICE, BOB, "coins", 40).getOrThrow());
+
+        // Alice leaving writes her pending balance, Bob's is written along or the money would vanish.
+        repository.evict(ALICE).getOrThrow();
+        assertEquals(60, amount(ALICE));
+        assertEquals(40, amount(BOB));
+
+        // What a crash now would replay, the last change is the whole transfer.
+        try (BalanceWal crashed = new BalanceWal(directory.resolve("balances.wal"), 4096, BalanceWal.ForcePolicy.PER_OPERATION, 0, TimeUnit.MILLISECONDS)) {
+            List<BalanceWal.Record> recovered = crashed.recovered();
+            assertEquals(List.of(new BalanceWal.Record(ALICE, "coins", 60), new BalanceWal.Record(BOB, "coins", 40)), recovered.subList(recovered.size() - 2, recovered.size()));
+        }
+        repository.close();
+        wal.close();
+    }
+
+    private SimpleTransactionRepository repository() {
+        return new SimpleTransactionRepository(database, statements, currencyName -> 2, new CurrencyIds(currencyName -> true));
+    }
+
+    private long amount(UUID subjectId) throws SQLException {
+        try (Connection connection = statements.borrow(); Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT amount FROM transactions WHERE subject_id = '" + subjectId + "' AND currency = 'coins';")) {
+            return result.next() ? result.getLong(1) : -1;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.joshy56.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author joshy56
+ * @since 17/10/2026
+ */
+class WriteBehindLedgerTest {
+    private static final UUID SUBJECT = new UUID(1, 1);
+
+    @Test
+    void reportsTheErrorOfTheLastFlush() {
+        WriteBehindLedger ledger = new WriteBehindLedger((transactions, checkpoint) -> {
+            throw new SQLException("disk full");
+        }, 1, TimeUnit.HOURS, Integer.MAX_VALUE);
+        AccountKey key = AccountKey.of(SUBJECT, 0);
+        ledger.mark(key, new Transaction("coins", SUBJECT, 1));
+        SQLException exception = assertThrows(SQLException.class, () -> ledger.close().getOrThrow());
+        assertEquals("disk full", exception.getMessage());
+        // Nothing written, nothing forgotten.
+        assertTrue(ledger.pending(key).isPresent());
+    }
+}